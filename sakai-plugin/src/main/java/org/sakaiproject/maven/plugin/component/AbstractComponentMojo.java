@@ -32,17 +32,29 @@ import java.io.Reader;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import org.apache.maven.archiver.MavenArchiveConfiguration;
 import org.apache.maven.archiver.MavenArchiver;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.factory.ArtifactFactory;
 import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.AbstractArtifactResolutionException;
 import org.apache.maven.artifact.resolver.ArtifactResolver;
 import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter;
 import org.apache.maven.model.Resource;
@@ -58,7 +70,7 @@ import org.codehaus.plexus.archiver.manager.NoSuchArchiverException;
 import org.codehaus.plexus.util.DirectoryScanner;
 import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.IOUtil;
-import org.codehaus.plexus.util.InterpolationFilterReader;
+import org.codehaus.plexus.util.SelectorUtils;
 import org.codehaus.plexus.util.StringUtils;
 
 public abstract class AbstractComponentMojo extends AbstractMojo {
@@ -151,6 +163,117 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 	 * @required
 	 */
 	private File workDirectory;
+
+	/**
+	 * Whether to keep a manifest of the files copied into the webapp in the
+	 * <tt>workDirectory</tt>, so that a rebuild only copies files whose
+	 * content changed. When disabled files are copied if their source is
+	 * newer.
+	 * 
+	 * @parameter expression="${sakai.incrementalCopy}" default-value="true"
+	 */
+	private boolean incrementalCopy = true;
+
+	/**
+	 * Whether a rebuild with <tt>incrementalCopy</tt> deletes the files it
+	 * copied last time which are no longer part of the webapp. By default
+	 * they are left in place and only counted.
+	 * 
+	 * @parameter expression="${sakai.incrementalCopy.removeStale}"
+	 *            default-value="false"
+	 */
+	private boolean removeStale = false;
+
+	/**
+	 * The manifest of the webapp being built, or <tt>null</tt> outside
+	 * {@link #buildWebapp(MavenProject, File)}.
+	 */
+	private CopyManifest copyManifest;
+
+	/**
+	 * The filter tokens resolved while building the webapp, or <tt>null</tt>
+	 * outside {@link #buildWebapp(MavenProject, File)}.
+	 */
+	private Map<String, String> resolvedTokens;
+
+	/**
+	 * The source of each file of the webapp, keyed by its path in the webapp,
+	 * while {@link #collectWebapp(MavenProject, File)} works them out instead
+	 * of copying them.
+	 */
+	private Map<String, File> webappEntries;
+
+	/**
+	 * The directory the paths in {@link #webappEntries} are relative to,
+	 * ending with a separator.
+	 */
+	private String webappEntriesRoot;
+
+	/**
+	 * The number of threads used to copy the libraries of the webapp and
+	 * unpack the dependent wars. Defaults to the number of processors.
+	 * Dependent wars are always overlaid one at a time, in order.
+	 * 
+	 * @parameter expression="${sakai.stagingThreads}"
+	 */
+	private int stagingThreads;
+
+	/**
+	 * Whether to resolve the artifacts to deploy in the background, one at a
+	 * time, while the ones resolved already are copied. When false, each
+	 * artifact is resolved when it is needed.
+	 * 
+	 * @parameter expression="${sakai.resolveAhead}" default-value="true"
+	 */
+	private boolean resolveAhead = true;
+
+	/**
+	 * Whether to keep a ledger of what each module deployed in the deploy
+	 * directory. A module whose artifacts did not change and whose deployed
+	 * files are still in place is not deployed again.
+	 * 
+	 * @parameter expression="${sakai.deploy.ledger}" default-value="true"
+	 */
+	private boolean useLedger = true;
+
+	/**
+	 * Whether to remove the files which a module deployed last time, according
+	 * to the ledger, but no longer deploys. The deploy directory is usually
+	 * shared with other deployments, so by default they are only logged.
+	 * 
+	 * @parameter expression="${sakai.deploy.deleteOrphans}"
+	 *            default-value="false"
+	 */
+	private boolean deleteOrphans = false;
+
+	/**
+	 * The ledger of the deploy directory, or <tt>null</tt> when none is kept.
+	 */
+	private DeployLedger ledger;
+
+	/**
+	 * Whether to log where the time of the sakai goals of the reactor went,
+	 * once the last module is done.
+	 * 
+	 * @parameter expression="${sakai.timings}" default-value="false"
+	 */
+	private boolean timings;
+
+	/**
+	 * A file to write where the time of the sakai goals of the reactor went
+	 * to, as JSON, once the last module is done.
+	 * 
+	 * @parameter expression="${sakai.timings.file}"
+	 */
+	private File timingsFile;
+
+	/**
+	 * The projects in the reactor.
+	 * 
+	 * @parameter expression="${reactorProjects}"
+	 * @readonly
+	 */
+	protected List reactorProjects;
 	
     /** 
      * @component
@@ -226,6 +349,43 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 
 	private static final String[] EMPTY_STRING_ARRAY = {};
 
+	/**
+	 * The artifacts being resolved in the background, or <tt>null</tt> when
+	 * each artifact is resolved when it is needed.
+	 */
+	private ArtifactResolutions resolutions;
+
+	/**
+	 * The timings of the reactor, looked up when first needed.
+	 */
+	private BuildTimings buildTimings;
+
+	/**
+	 * The source directories watched by {@link #pushChanges()}, or
+	 * <tt>null</tt> when not watching.
+	 */
+	private List<WatchedSource> watchedSources;
+
+	/**
+	 * The timestamps of the single files being watched: the filters, and the
+	 * web.xml and context.xml given outside of the war source directory.
+	 */
+	private Map<File, Long> watchedFiles;
+
+	/**
+	 * Where each of the single files being watched is copied to, filters
+	 * have no target.
+	 */
+	private Map<File, File> watchedFileTargets;
+
+	/**
+	 * The filter properties and resolved tokens of the resources pushed while
+	 * watching, which are worked out again when a filter changes.
+	 */
+	private Map watchFilterProperties;
+
+	private Map<String, String> watchResolvedTokens;
+
 	public MavenProject getProject() {
 		return project;
 	}
@@ -427,14 +587,17 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 				String targetPath = (resource.getTargetPath() == null) ? ""
 						: resource.getTargetPath();
 				File destination = new File(webappDirectory, targetPath);
+				Map<String, String> resolved = resolvedTokens != null ? resolvedTokens
+						: new HashMap<String, String>();
 				for (int i = 0; i < fileNames.length; i++) {
 					if (resource.isFiltering()) {
+						File filtered = new File(destination, fileNames[i]);
 						copyFilteredFile(new File(resource.getDirectory(),
-								fileNames[i]), new File(destination,
-								fileNames[i]), null, getFilterWrappers(),
-								filterProperties);
+								fileNames[i]), filtered, null,
+								filterProperties, resolved);
+						recordEntry(filtered, filtered, true);
 					} else {
-						copyFileIfModified(new File(resource.getDirectory(),
+						copyFile(new File(resource.getDirectory(),
 								fileNames[i]), new File(destination,
 								fileNames[i]));
 					}
@@ -463,7 +626,7 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 			if (warSourceDirectory.exists()) {
 				String[] fileNames = getWarFiles(sourceDirectory);
 				for (int i = 0; i < fileNames.length; i++) {
-					copyFileIfModified(new File(sourceDirectory, fileNames[i]),
+					copyFile(new File(sourceDirectory, fileNames[i]),
 							new File(webappDirectory, fileNames[i]));
 				}
 			}
@@ -487,15 +650,18 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 
 		archiver.setOutputFile(jarFile);
 
+		long start = getTimings().start();
 		try {
 			archiver.getArchiver().addDirectory(classesDirectory,
 					getIncludes(), getExcludes());
 
 			archiver.createArchive(project, archive);
+			getTimings().record(BuildTimings.ARCHIVE, start);
 		} catch (Exception e) {
 			// TODO: improve error handling
 			throw new MojoExecutionException("Error assembling JAR", e);
 		}
+		recordEntry(jarFile, jarFile, true);
 	}
 
 	protected void checkComponentWebXmlExists(File webXml) {
@@ -526,6 +692,299 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 				"Assembling webapp " + project.getArtifactId() + " in "
 						+ webappDirectory);
 
+		if (incrementalCopy && workDirectory != null) {
+			copyManifest = new CopyManifest(new File(workDirectory,
+					webappDirectory.getName() + ".copy-manifest"));
+		}
+		resolvedTokens = new HashMap<String, String>();
+		try {
+			buildWebappContents(project, webappDirectory);
+			if (copyManifest != null) {
+				if (removeStale) {
+					List removed = copyManifest.removeStale();
+					if (!removed.isEmpty()) {
+						getLog().info(
+								"Removed " + removed.size()
+										+ " file(s) no longer part of the webapp");
+					}
+				} else {
+					List stale = copyManifest.getStale();
+					if (!stale.isEmpty()) {
+						getLog().info(
+								"Left " + stale.size()
+										+ " file(s) no longer part of the webapp"
+										+ " (set sakai.incrementalCopy.removeStale"
+										+ " to remove them)");
+					}
+				}
+				copyManifest.store();
+			}
+		} finally {
+			copyManifest = null;
+			resolvedTokens = null;
+		}
+	}
+
+	/**
+	 * Starts watching the sources of a webapp built in a directory: the web
+	 * resources, the war source directory, the classes, the filters and the
+	 * web.xml and context.xml files. Dependencies are not watched.
+	 * 
+	 * @param webappDirectory
+	 *            the directory the changes are pushed to
+	 */
+	protected void startWatching(File webappDirectory)
+			throws MojoExecutionException {
+		watchedSources = new ArrayList<WatchedSource>();
+		watchedFiles = new HashMap<File, Long>();
+		watchedFileTargets = new HashMap<File, File>();
+		watchResolvedTokens = new HashMap<String, String>();
+
+		if (webResources != null) {
+			for (int i = 0; i < webResources.length; i++) {
+				Resource resource = webResources[i];
+				if (resource.getDirectory().equals(webappDirectory.getPath())) {
+					continue;
+				}
+				String[] includes = resource.getIncludes() != null
+						&& !resource.getIncludes().isEmpty() ? (String[]) resource
+						.getIncludes().toArray(EMPTY_STRING_ARRAY)
+						: DEFAULT_INCLUDES;
+				String[] excludes = resource.getExcludes() != null ? (String[]) resource
+						.getExcludes().toArray(EMPTY_STRING_ARRAY)
+						: EMPTY_STRING_ARRAY;
+				String targetPath = (resource.getTargetPath() == null) ? ""
+						: resource.getTargetPath();
+				watchedSources.add(new WatchedSource(new SourceWatcher(
+						new File(resource.getDirectory()), includes, excludes),
+						new File(webappDirectory, targetPath), resource
+								.isFiltering()));
+				if (resource.isFiltering() && watchFilterProperties == null) {
+					watchFilterProperties = getBuildFilterProperties();
+				}
+			}
+		}
+		if (!warSourceDirectory.equals(webappDirectory)) {
+			watchedSources.add(new WatchedSource(new SourceWatcher(
+					warSourceDirectory, getIncludes(), getExcludes()),
+					webappDirectory, false));
+		}
+		File webappClassesDirectory = new File(webappDirectory, WEB_INF
+				+ "/classes");
+		if (!classesDirectory.equals(webappClassesDirectory)) {
+			if (archiveClasses) {
+				getLog().warn(
+						"Classes are archived into a jar, changes to them"
+								+ " are not pushed");
+			} else {
+				watchedSources.add(new WatchedSource(new SourceWatcher(
+						classesDirectory, DEFAULT_INCLUDES, EMPTY_STRING_ARRAY),
+						webappClassesDirectory, false));
+			}
+		}
+
+		if (filters != null) {
+			for (Iterator i = filters.iterator(); i.hasNext();) {
+				watchFile(new File((String) i.next()), null);
+			}
+		}
+		if (webXml != null && StringUtils.isNotEmpty(webXml.getName())) {
+			watchFile(webXml, new File(webappDirectory, WEB_INF + "/web.xml"));
+		}
+		if (containerConfigXML != null
+				&& StringUtils.isNotEmpty(containerConfigXML.getName())) {
+			watchFile(containerConfigXML, new File(webappDirectory, META_INF
+					+ "/" + containerConfigXML.getName()));
+		}
+	}
+
+	private void watchFile(File file, File target) {
+		watchedFiles.put(file, Long.valueOf(file.lastModified()));
+		if (target != null) {
+			watchedFileTargets.put(file, target);
+		}
+	}
+
+	/**
+	 * Copies the files which changed since the last call, or since
+	 * {@link #startWatching(File)}, and removes the files whose source was
+	 * removed. Filtered resources are filtered as they are copied, and all of
+	 * them are filtered again when a filter changes.
+	 * 
+	 * @return the number of files copied or removed
+	 */
+	protected int pushChanges() throws MojoExecutionException, IOException {
+		int pushed = 0;
+		boolean refilter = false;
+		for (Map.Entry<File, Long> e : watchedFiles.entrySet()) {
+			File file = e.getKey();
+			long time = file.lastModified();
+			if (time == e.getValue().longValue()) {
+				continue;
+			}
+			e.setValue(Long.valueOf(time));
+			File target = watchedFileTargets.get(file);
+			if (target == null) {
+				refilter = true;
+			} else if (file.isFile()) {
+				pushFile(file, target);
+				pushed++;
+			}
+		}
+		if (refilter && watchFilterProperties != null) {
+			getLog().info("Filters changed, filtering the web resources again");
+			watchFilterProperties = getBuildFilterProperties();
+			watchResolvedTokens.clear();
+		}
+
+		List<String> changed = new ArrayList<String>();
+		List<String> removed = new ArrayList<String>();
+		for (WatchedSource source : watchedSources) {
+			changed.clear();
+			removed.clear();
+			source.watcher.poll(changed, removed);
+			if (refilter && source.filtering) {
+				changed.clear();
+				changed.addAll(source.watcher.getPaths());
+			}
+			File directory = source.watcher.getDirectory();
+			for (String path : changed) {
+				File from = new File(directory, path);
+				File to = new File(source.target, path);
+				if (source.filtering) {
+					copyFilteredFile(from, to, null, watchFilterProperties,
+							watchResolvedTokens);
+				} else {
+					pushFile(from, to);
+				}
+				getLog().debug("Pushed " + to);
+				pushed++;
+			}
+			for (String path : removed) {
+				File to = new File(source.target, path);
+				if (to.delete()) {
+					getLog().debug("Removed " + to);
+					pushed++;
+				}
+			}
+		}
+		return pushed;
+	}
+
+	/**
+	 * Copies a changed file, keeping its timestamp so that a later build sees
+	 * the target as up to date. The copy is made whatever the timestamp of
+	 * the target, as an edit may restore an older file.
+	 */
+	private static void pushFile(File from, File to) throws IOException {
+		FileTransfer.copy(from, to);
+		to.setLastModified(from.lastModified());
+	}
+
+	/**
+	 * Stops watching the sources of the webapp.
+	 */
+	protected void stopWatching() {
+		if (watchedSources != null) {
+			for (WatchedSource source : watchedSources) {
+				source.watcher.close();
+			}
+		}
+		watchedSources = null;
+		watchedFiles = null;
+		watchedFileTargets = null;
+		watchFilterProperties = null;
+		watchResolvedTokens = null;
+	}
+
+	/**
+	 * A directory being watched and where its files go.
+	 */
+	private static final class WatchedSource {
+		private final SourceWatcher watcher;
+
+		private final File target;
+
+		private final boolean filtering;
+
+		WatchedSource(SourceWatcher watcher, File target, boolean filtering) {
+			this.watcher = watcher;
+			this.target = target;
+			this.filtering = filtering;
+		}
+	}
+
+	/**
+	 * Works out the files which make up the webapp, without copying them. Only
+	 * the files which have to be generated, like filtered resources, are
+	 * written, to <tt>generatedDirectory</tt>.
+	 * 
+	 * @param project
+	 *            the maven project
+	 * @param generatedDirectory
+	 *            the directory for the generated files
+	 * @return the source of each file, keyed by its path in the webapp and
+	 *         sorted by path
+	 * @throws java.io.IOException
+	 *             if an error occured while generating files
+	 */
+	protected SortedMap<String, File> collectWebapp(MavenProject project,
+			File generatedDirectory) throws MojoExecutionException,
+			IOException, MojoFailureException {
+		getLog().info(
+				"Collecting webapp " + project.getArtifactId() + " in "
+						+ generatedDirectory);
+
+		generatedDirectory.mkdirs();
+		webappEntries = Collections
+				.synchronizedMap(new HashMap<String, File>());
+		webappEntriesRoot = generatedDirectory.getAbsolutePath()
+				+ File.separator;
+		resolvedTokens = new HashMap<String, String>();
+		try {
+			buildWebappContents(project, generatedDirectory);
+			return new TreeMap<String, File>(webappEntries);
+		} finally {
+			webappEntries = null;
+			resolvedTokens = null;
+		}
+	}
+
+	/**
+	 * Records a file of the webapp while it is being collected.
+	 * 
+	 * @param source
+	 *            the file
+	 * @param destination
+	 *            where the file would have been copied to
+	 * @param overwrite
+	 *            whether to replace a file recorded for the same path
+	 *            before
+	 * @return <code>false</code> if the webapp is being copied, or the
+	 *         destination is outside of it
+	 */
+	private boolean recordEntry(File source, File destination,
+			boolean overwrite) {
+		Map<String, File> entries = webappEntries;
+		if (entries == null) {
+			return false;
+		}
+		String path = destination.getAbsolutePath();
+		if (!path.startsWith(webappEntriesRoot)) {
+			return false;
+		}
+		path = path.substring(webappEntriesRoot.length()).replace(
+				File.separatorChar, '/');
+		synchronized (entries) {
+			if (overwrite || !entries.containsKey(path)) {
+				entries.put(path, source);
+			}
+		}
+		return true;
+	}
+
+	private void buildWebappContents(MavenProject project, File webappDirectory)
+			throws MojoExecutionException, IOException, MojoFailureException {
 		File webinfDir = new File(webappDirectory, WEB_INF);
 		webinfDir.mkdirs();
 
@@ -551,15 +1010,19 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 			}
 
 			// rename to web.xml
-			copyFileIfModified(webXml, new File(webinfDir, "/web.xml"));
+			copyFile(webXml, new File(webinfDir, "/web.xml"));
+		}
+		File webXmlFile = new File(webinfDir, "/web.xml");
+		checkComponentWebXmlExists(webXmlFile);
+		if (webXmlFile.exists()) {
+			recordEntry(webXmlFile, webXmlFile, false);
 		}
-		checkComponentWebXmlExists(new File(webinfDir, "/web.xml"));
 
 		if (containerConfigXML != null
 				&& StringUtils.isNotEmpty(containerConfigXML.getName())) {
 			metainfDir = new File(webappDirectory, META_INF);
 			String xmlFileName = containerConfigXML.getName();
-			copyFileIfModified(containerConfigXML, new File(metainfDir,
+			copyFile(containerConfigXML, new File(metainfDir,
 					xmlFileName));
 		}
 
@@ -582,12 +1045,16 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 
 		Set artifacts = project.getArtifacts();
 
-		List duplicates = findDuplicates(artifacts);
+		Set<String> duplicates = findDuplicates(artifacts);
 
-		List dependentWarDirectories = new ArrayList();
+		// work out where everything goes first, so that the copying and
+		// unpacking can be spread over several threads
+		List<Callable<File>> libraryTasks = new ArrayList<Callable<File>>();
+		List<Callable<File>> warTasks = new ArrayList<Callable<File>>();
+		List<File> dependentWars = new ArrayList<File>();
 
 		for (Iterator iter = artifacts.iterator(); iter.hasNext();) {
-			Artifact artifact = (Artifact) iter.next();
+			final Artifact artifact = (Artifact) iter.next();
 			String targetFileName = getDefaultFinalName(artifact);
 
 			getLog().debug("Processing: " + targetFileName);
@@ -604,13 +1071,13 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 			if (!artifact.isOptional() && filter.include(artifact)) {
 				String type = artifact.getType();
 				if ("tld".equals(type)) {
-					copyFileIfModified(artifact.getFile(), new File(
-							tldDirectory, targetFileName));
+					libraryTasks.add(copyTask(artifact.getFile(), new File(
+							tldDirectory, targetFileName)));
 				} else {
 					if ("jar".equals(type) || "ejb".equals(type)
 							|| "ejb-client".equals(type)) {
-						copyFileIfModified(artifact.getFile(), new File(
-								libDirectory, targetFileName));
+						libraryTasks.add(copyTask(artifact.getFile(), new File(
+								libDirectory, targetFileName)));
 					} else {
 						if ("par".equals(type)) {
 							targetFileName = targetFileName.substring(0,
@@ -624,12 +1091,21 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 											+ new File(libDirectory,
 													targetFileName));
 
-							copyFileIfModified(artifact.getFile(), new File(
-									libDirectory, targetFileName));
+							libraryTasks.add(copyTask(artifact.getFile(),
+									new File(libDirectory, targetFileName)));
 						} else {
 							if ("war".equals(type)) {
-								dependentWarDirectories
-										.add(unpackWarToTempDirectory(artifact));
+								// looked up here, the container can not be
+								// used from the staging threads
+								final UnArchiver unArchiver = getUnArchiver(artifact
+										.getFile());
+								warTasks.add(new Callable<File>() {
+									public File call() throws Exception {
+										return unpackWarToTempDirectory(
+												artifact, unArchiver);
+									}
+								});
+								dependentWars.add(artifact.getFile());
 							} else {
 								getLog().debug(
 										"Skipping artifact of type " + type
@@ -641,6 +1117,12 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 			}
 		}
 
+		// the unpacked wars come back in the order they were submitted
+		List<Callable<File>> tasks = new ArrayList<Callable<File>>(warTasks);
+		tasks.addAll(libraryTasks);
+		List<File> dependentWarDirectories = runStagingTasks(tasks).subList(0,
+				warTasks.size());
+
 		if (dependentWarDirectories.size() > 0) {
 			getLog()
 					.info(
@@ -648,88 +1130,325 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 									+ " war(s).");
 
 			// overlay dependent wars
-			for (Iterator iter = dependentWarDirectories.iterator(); iter
-					.hasNext();) {
-				copyDependentWarContents((File) iter.next(), webappDirectory);
+			Set<String> localFiles = new HashSet<String>();
+			listFiles(warSourceDirectory, "", localFiles);
+			for (int i = 0; i < dependentWarDirectories.size(); i++) {
+				copyDependentWarContents(dependentWars.get(i),
+						dependentWarDirectories.get(i), webappDirectory,
+						localFiles);
+			}
+		}
+	}
+
+	private Callable<File> copyTask(final File source, final File destination) {
+		return new Callable<File>() {
+			public File call() throws Exception {
+				copyFile(source, destination);
+				return destination;
+			}
+		};
+	}
+
+	private int getStagingThreads() {
+		return stagingThreads > 0 ? stagingThreads : Runtime.getRuntime()
+				.availableProcessors();
+	}
+
+	/**
+	 * @return the timings shared by the sakai goals of the reactor
+	 */
+	protected synchronized BuildTimings getTimings() {
+		if (buildTimings == null) {
+			buildTimings = BuildTimings.forReactor(reactorProjects);
+		}
+		return buildTimings;
+	}
+
+	/**
+	 * Logs the timings of the reactor and writes them to
+	 * <tt>timingsFile</tt>, if asked to and this is the last module of the
+	 * reactor, see {@link BuildTimings#reportFrom}.
+	 */
+	protected void reportTimings() {
+		getTimings().reportFrom(project, reactorProjects, getLog(), timings,
+				timingsFile);
+	}
+
+	/**
+	 * Starts resolving the files of artifacts in the background, so that
+	 * {@link #resolveFile(Artifact)} only waits for the artifact it is given
+	 * while the others download. Nothing is started unless
+	 * <tt>resolveAhead</tt> is set.
+	 * 
+	 * @param artifacts
+	 *            the artifacts, those with a file already are left alone
+	 */
+	protected void startResolving(Collection artifacts) {
+		if (resolutions == null) {
+			resolutions = new ArtifactResolutions(artifactResolver,
+					remoteRepositories, artifactRepository);
+		}
+		if (!resolveAhead) {
+			return;
+		}
+		int started = resolutions.start(artifacts);
+		if (started > 0) {
+			getLog().info("Resolving " + started + " artifact(s)");
+		}
+	}
+
+	/**
+	 * Starts using the ledger of a deploy directory, unless
+	 * <tt>useLedger</tt> is off.
+	 */
+	protected void openLedger(File deployDir) {
+		ledger = useLedger ? DeployLedger.forDirectory(deployDir) : null;
+	}
+
+	/**
+	 * Stops using the ledger opened by {@link #openLedger(File)}.
+	 */
+	protected void closeLedger() {
+		ledger = null;
+	}
+
+	/**
+	 * @return the ledger of the deploy directory, or <tt>null</tt> when none
+	 *         is kept
+	 */
+	protected DeployLedger getLedger() {
+		return ledger;
+	}
+
+	/**
+	 * Starts describing what this module deploys, for the ledger.
+	 * 
+	 * @return the unit, or <tt>null</tt> when no ledger is kept
+	 */
+	protected DeployLedger.Unit newUnit() {
+		if (ledger == null) {
+			return null;
+		}
+		return ledger.newUnit(project.getGroupId() + ":"
+				+ project.getArtifactId());
+	}
+
+	/**
+	 * Checks the ledger for a unit deployed already, with the same artifacts
+	 * and files left as they were.
+	 */
+	protected boolean isUpToDate(DeployLedger.Unit unit) throws IOException {
+		if (unit == null) {
+			return false;
+		}
+		long start = getTimings().start();
+		boolean upToDate = ledger.isUpToDate(unit);
+		getTimings().record(BuildTimings.LEDGER, start);
+		if (!upToDate) {
+			return false;
+		}
+		getLog().info(getProjectId() + " is deployed already");
+		return true;
+	}
+
+	/**
+	 * Removes the files this module deployed last time which it no longer
+	 * deploys, or only logs them unless <tt>deleteOrphans</tt> is set.
+	 */
+	protected void removeOrphans(DeployLedger.Unit unit) throws IOException {
+		if (unit == null) {
+			return;
+		}
+		logOrphans(deleteOrphans ? ledger.removeOrphans(unit) : ledger
+				.getOrphans(unit));
+	}
+
+	/**
+	 * Removes the orphans of the units deferred until the end of the reactor,
+	 * or only logs them unless <tt>deleteOrphans</tt> is set.
+	 */
+	protected void removeDeferredOrphans() throws IOException {
+		logOrphans(deleteOrphans ? ledger.removeDeferredOrphans() : ledger
+				.getDeferredOrphans());
+	}
+
+	private void logOrphans(List<File> orphans) {
+		for (File orphan : orphans) {
+			if (deleteOrphans) {
+				getLog().info("Removed " + orphan + ", no longer deployed");
+			} else {
+				getLog().info(
+						"Left " + orphan + " in place, it is no longer deployed"
+								+ " (set sakai.deploy.deleteOrphans to remove it)");
 			}
 		}
 	}
 
 	/**
-	 * Searches a set of artifacts for duplicate filenames and returns a list of
+	 * Records a deployed unit in the ledger.
+	 */
+	protected void deployed(DeployLedger.Unit unit) throws IOException {
+		if (unit != null) {
+			ledger.record(unit);
+		}
+	}
+
+	/**
+	 * Stops the resolutions started by {@link #startResolving(Collection)}.
+	 */
+	protected void stopResolving() {
+		if (resolutions != null) {
+			resolutions.shutdown();
+			resolutions = null;
+		}
+	}
+
+	/**
+	 * Returns the file of an artifact, resolving it first if needed.
+	 * 
+	 * @return the file, or <tt>null</tt> if the resolver did not give one
+	 */
+	protected File resolveFile(Artifact artifact)
+			throws AbstractArtifactResolutionException {
+		long start = getTimings().start();
+		try {
+			if (resolutions != null) {
+				return resolutions.get(artifact);
+			}
+			if (artifact.getFile() == null) {
+				synchronized (getContainerLock()) {
+					artifactResolver.resolve(artifact, remoteRepositories,
+							artifactRepository);
+				}
+			}
+			return artifact.getFile();
+		} finally {
+			getTimings().record(BuildTimings.RESOLVE, start);
+		}
+	}
+
+	/**
+	 * Runs tasks which copy or unpack files on <tt>stagingThreads</tt>
+	 * threads. The tasks must not look anything up from the container, see
+	 * {@link StagingTasks}.
+	 * 
+	 * @param tasks
+	 *            the tasks to run
+	 * @return the results of the tasks, in the same order as the tasks
+	 */
+	protected List<File> runStagingTasks(List<Callable<File>> tasks)
+			throws MojoExecutionException, IOException {
+		return StagingTasks.run(tasks, getStagingThreads());
+	}
+
+	/**
+	 * Searches a set of artifacts for duplicate filenames and returns a set of
 	 * duplicates.
 	 * 
 	 * @param artifacts
 	 *            set of artifacts
-	 * @return List of duplicated artifacts
+	 * @return Set of duplicated artifacts
 	 */
-	private List findDuplicates(Set artifacts) {
-		List duplicates = new ArrayList();
-		List identifiers = new ArrayList();
+	private Set<String> findDuplicates(Set artifacts) {
+		Set<String> duplicates = new HashSet<String>();
+		Set<String> identifiers = new HashSet<String>();
 		for (Iterator iter = artifacts.iterator(); iter.hasNext();) {
 			Artifact artifact = (Artifact) iter.next();
 			String candidate = getDefaultFinalName(artifact);
-			if (identifiers.contains(candidate)) {
+			if (!identifiers.add(candidate)) {
 				duplicates.add(candidate);
-			} else {
-				identifiers.add(candidate);
 			}
 		}
 		return duplicates;
 	}
 
 	/**
-	 * Unpacks war artifacts into a temporary directory inside
-	 * <tt>workDirectory</tt> named with the name of the war.
+	 * Unpacks war artifacts into the {@link OverlayCache} of the local
+	 * repository. A war which has been unpacked before is not unpacked again.
 	 * 
 	 * @param artifact
 	 *            War artifact to unpack.
+	 * @param unArchiver
+	 *            the unarchiver for the war, looked up on the build thread, or
+	 *            <code>null</code> if the war can not be unpacked
 	 * @return Directory containing the unpacked war.
 	 * @throws MojoExecutionException
 	 */
-	private File unpackWarToTempDirectory(Artifact artifact)
-			throws MojoExecutionException {
-		String name = artifact.getFile().getName();
-		File tempLocation = new File(workDirectory, name.substring(0, name
-				.length() - 4));
-
-		boolean process = false;
-		if (!tempLocation.exists()) {
-			tempLocation.mkdirs();
-			process = true;
-		} else if (artifact.getFile().lastModified() > tempLocation
-				.lastModified()) {
-			process = true;
-		}
-
-		if (process) {
-			File file = artifact.getFile();
-			try {
-				unpack(file, tempLocation,false);
-			} catch (NoSuchArchiverException e) {
-				this.getLog().info(
-						"Skip unpacking dependency file with unknown extension: "
-								+ file.getPath());
+	private File unpackWarToTempDirectory(Artifact artifact,
+			final UnArchiver unArchiver) throws MojoExecutionException {
+		OverlayCache cache = new OverlayCache(getOverlayCacheDirectory(),
+				getLog());
+		return cache.get(artifact.getFile(), new OverlayCache.Unpacker() {
+			public void unpack(File war, File directory)
+					throws MojoExecutionException {
+				if (unArchiver != null) {
+					AbstractComponentMojo.this.unpack(war, directory,
+							unArchiver, false);
+				} else {
+					// cached as an empty overlay, like it was always used
+					getLog().info(
+							"Skip unpacking dependency file with unknown extension: "
+									+ war.getPath());
+				}
 			}
-		}
+		});
+	}
 
-		return tempLocation;
+	/**
+	 * Returns the directory holding unpacked wars: <tt>.cache/sakai-overlays</tt>
+	 * in the local repository, or the work directory when there is no local
+	 * repository.
+	 */
+	private File getOverlayCacheDirectory() {
+		if (artifactRepository != null && artifactRepository.getBasedir() != null) {
+			return new File(artifactRepository.getBasedir(),
+					".cache/sakai-overlays");
+		}
+		return workDirectory;
 	}
 
 	/**
-	 * Unpacks the archive file.
+	 * Looks up the unarchiver for a file, by its extension.
 	 * 
 	 * @param file
-	 *            File to be unpacked.
-	 * @param location
-	 *            Location where to put the unpacked files.
+	 *            the archive
+	 * @return a new unarchiver, or <code>null</code> if the extension is
+	 *         unknown
 	 */
-	private void unpack(File file, File location,boolean overwrite)
-			throws MojoExecutionException, NoSuchArchiverException {
+	private UnArchiver getUnArchiver(File file) {
 		String archiveExt = FileUtils.getExtension(file.getAbsolutePath())
 				.toLowerCase();
-		unpack(file,location,archiveExt,overwrite);
+		try {
+			return getUnArchiver(archiveExt);
+		} catch (NoSuchArchiverException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Looks up a new unarchiver. This must be done on the build thread, the
+	 * container of Maven 2 is not thread safe.
+	 * 
+	 * @param archiveExt
+	 *            the archive type/extension
+	 * @throws NoSuchArchiverException
+	 */
+	protected UnArchiver getUnArchiver(String archiveExt)
+			throws NoSuchArchiverException {
+		synchronized (getContainerLock()) {
+			return archiverManager.getUnArchiver(archiveExt);
+		}
+	}
+
+	/**
+	 * Returns the lock held while the container is used, so that the
+	 * lookups of the build thread do not run into the artifacts being
+	 * resolved in the background, see {@link ArtifactResolutions}.
+	 */
+	private Object getContainerLock() {
+		return artifactResolver != null ? artifactResolver : archiverManager;
 	}
+
 	/**
 	 * Unpacks an archive with a given type
 	 * @param file the file to be unpacked
@@ -740,61 +1459,273 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 	 */
 	protected void unpack(File file, File location, String archiveExt, boolean overwrite)
 		throws MojoExecutionException, NoSuchArchiverException {
+		unpack(file, location, getUnArchiver(archiveExt), overwrite);
+	}
 
-
+	/**
+	 * Unpacks an archive with an unarchiver which has been looked up before,
+	 * so that it can be called from the staging threads.
+	 * 
+	 * @param file
+	 *            the file to be unpacked
+	 * @param location
+	 *            the location to unpack the file to
+	 * @param unArchiver
+	 *            an unarchiver used by no other thread
+	 * @throws MojoExecutionException
+	 */
+	protected void unpack(File file, File location, UnArchiver unArchiver,
+			boolean overwrite) throws MojoExecutionException {
+		long start = getTimings().start();
 		try {
-			UnArchiver unArchiver = archiverManager.getUnArchiver(archiveExt);
 			unArchiver.setSourceFile(file);
 			unArchiver.setDestDirectory(location);
 			unArchiver.setOverwrite(overwrite);
 			unArchiver.extract();
+			getTimings().record(BuildTimings.UNPACK, start);
 		} catch (ArchiverException e) {
 			throw new MojoExecutionException("Error unpacking file: " + file
 					+ "to: " + location, e);
 		}
 	}
 
+	/**
+	 * Updates a directory to match the content of an archive. Only the entries
+	 * which differ from the files in the directory are written, and the files
+	 * which are not in the archive are removed.
+	 * 
+	 * @param file
+	 *            the archive to unpack
+	 * @param location
+	 *            the directory to update
+	 * @throws IOException
+	 *             if the archive could not be read or the directory could not
+	 *             be updated
+	 */
+	protected void unpackChanges(File file, File location) throws IOException {
+		unpackChanges(file, location, new DifferentialUnpacker());
+	}
+
+	/**
+	 * Unpacks the entries of an archive which differ from the files in a
+	 * directory, with the given unpacker.
+	 * 
+	 * @param file
+	 *            the archive to unpack
+	 * @param location
+	 *            the directory to update
+	 * @param unpacker
+	 *            the unpacker, set up to keep or remove other files
+	 * @throws IOException
+	 *             if the archive could not be read or the directory could not
+	 *             be updated
+	 */
+	protected void unpackChanges(File file, File location,
+			DifferentialUnpacker unpacker) throws IOException {
+		long start = getTimings().start();
+		unpacker.unpack(file, location);
+		getTimings().recordEntries(BuildTimings.UNPACK, start,
+				unpacker.getWritten(), unpacker.getUnchanged());
+		getLog().info(
+				"Updated " + location + ": " + unpacker.getWritten()
+						+ " written, " + unpacker.getUnchanged()
+						+ " unchanged, " + unpacker.getRemoved() + " removed");
+	}
+
 	/**
 	 * Recursively copies contents of <tt>srcDir</tt> into <tt>targetDir</tt>.
-	 * This will not overwrite any existing files.
+	 * This will not overwrite any existing files. The files to copy are taken
+	 * from the central directory of the war instead of scanning
+	 * <tt>srcDir</tt>, and are copied on <tt>stagingThreads</tt> threads.
 	 * 
+	 * @param war
+	 *            The dependent war
 	 * @param srcDir
 	 *            Directory containing unpacked dependent war contents
 	 * @param targetDir
 	 *            Directory to overlay srcDir into
+	 * @param localFiles
+	 *            The paths in the source directory, which are never
+	 *            overlaid
 	 */
-	private void copyDependentWarContents(File srcDir, File targetDir)
+	private void copyDependentWarContents(File war, File srcDir,
+			File targetDir, Set<String> localFiles)
 			throws MojoExecutionException {
-		DirectoryScanner scanner = new DirectoryScanner();
-		scanner.setBasedir(srcDir);
-		scanner.setExcludes(getDependentWarExcludes());
-		scanner.addDefaultExcludes();
+		String[] includes = normalizePatterns(getDependentWarIncludes());
+		String[] excludes = normalizePatterns(getDependentWarExcludes());
 
-		scanner.setIncludes(getDependentWarIncludes());
+		Set<String> files;
+		Set<String> directories = new HashSet<String>();
+		try {
+			files = listOverlayFiles(war, includes, excludes, localFiles,
+					directories);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error reading " + war, e);
+		}
 
-		scanner.scan();
+		if (webappEntries == null) {
+			for (String directory : directories) {
+				new File(targetDir, directory).mkdirs();
+			}
+		}
 
-		String[] dirs = scanner.getIncludedDirectories();
-		for (int j = 0; j < dirs.length; j++) {
-			new File(targetDir, dirs[j]).mkdirs();
+		List<Callable<File>> tasks = new ArrayList<Callable<File>>();
+		for (String name : files) {
+			final File sourceFile = new File(srcDir, name);
+			final File targetFile = new File(targetDir, name);
+			if (recordEntry(sourceFile, targetFile, false)) {
+				continue;
+			}
+			tasks.add(new Callable<File>() {
+				public File call() throws Exception {
+					try {
+						long modified = sourceFile.lastModified();
+						if (targetFile.lastModified() < modified) {
+							FileTransfer.copy(sourceFile, targetFile);
+							targetFile.setLastModified(modified);
+						}
+					} catch (IOException e) {
+						throw new MojoExecutionException("Error copying file '"
+								+ sourceFile + "' to '" + targetFile + "'", e);
+					}
+					return targetFile;
+				}
+			});
 		}
+		try {
+			runStagingTasks(tasks);
+		} catch (IOException e) {
+			throw new MojoExecutionException("Error overlaying " + war, e);
+		}
+	}
 
-		String[] files = scanner.getIncludedFiles();
+	/**
+	 * Lists the files of a war to overlay from its central directory: the
+	 * entries matching the includes and excludes, like a DirectoryScanner over
+	 * the unpacked war would find them, which are not in the source
+	 * directory. An entry which is in the war twice is only listed once, so
+	 * that no two copies write the same file.
+	 * 
+	 * @param war
+	 *            the dependent war
+	 * @param includes
+	 *            the normalized includes
+	 * @param excludes
+	 *            the normalized excludes, on top of the default ones
+	 * @param localFiles
+	 *            the paths in the source directory, which are never overlaid
+	 * @param directories
+	 *            receives the paths of the directories to create
+	 * @return the paths of the files to copy, in the order of the war
+	 * @throws IOException
+	 *             if the war cannot be read
+	 */
+	static Set<String> listOverlayFiles(File war, String[] includes,
+			String[] excludes, Set<String> localFiles, Set<String> directories)
+			throws IOException {
+		Set<String> files = new LinkedHashSet<String>();
+		ZipFile zip = new ZipFile(war);
+		try {
+			for (Enumeration<? extends ZipEntry> e = zip.entries(); e
+					.hasMoreElements();) {
+				ZipEntry entry = e.nextElement();
+				String name = entry.getName().replace('\\', '/');
+				if (name.startsWith("/") || name.startsWith("../")
+						|| name.indexOf("/../") >= 0) {
+					continue;
+				}
+				boolean directory = name.endsWith("/");
+				if (directory) {
+					name = name.substring(0, name.length() - 1);
+				}
+				if (name.length() == 0
+						|| !isIncluded(name, includes, excludes)) {
+					continue;
+				}
+				if (directory) {
+					directories.add(name);
+				} else if (!localFiles.contains(name)) {
+					// Don't copy if it is in the source directory
+					files.add(name);
+					int slash = name.lastIndexOf('/');
+					if (slash > 0) {
+						directories.add(name.substring(0, slash));
+					}
+				}
+			}
+		} finally {
+			zip.close();
+		}
+		return files;
+	}
 
-		for (int j = 0; j < files.length; j++) {
-			File targetFile = new File(targetDir, files[j]);
+	/**
+	 * Adds the paths of the files and directories below a directory to a set.
+	 */
+	private static void listFiles(File directory, String prefix,
+			Set<String> paths) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		for (int i = 0; i < files.length; i++) {
+			String path = prefix + files[i].getName();
+			paths.add(path);
+			if (files[i].isDirectory()) {
+				listFiles(files[i], path + "/", paths);
+			}
+		}
+	}
 
-			try {
-				// Don't copy if it is in the source directory
-				if (!new File(warSourceDirectory, files[j]).exists()) {
-					targetFile.getParentFile().mkdirs();
-					copyFileIfModified(new File(srcDir, files[j]), targetFile);
-				}
-			} catch (IOException e) {
-				throw new MojoExecutionException("Error copying file '"
-						+ files[j] + "' to '" + targetFile + "'", e);
+	/**
+	 * Turns patterns into the form {@link SelectorUtils#matchPath(String, String)}
+	 * expects, as DirectoryScanner does.
+	 */
+	protected static String[] normalizePatterns(String[] patterns) {
+		if (patterns == null) {
+			return EMPTY_STRING_ARRAY;
+		}
+		String[] normalized = new String[patterns.length];
+		for (int i = 0; i < patterns.length; i++) {
+			String pattern = patterns[i].trim().replace('\\', '/');
+			if (pattern.endsWith("/")) {
+				pattern += "**";
 			}
+			normalized[i] = pattern.replace('/', File.separatorChar);
 		}
+		return normalized;
+	}
+
+	/**
+	 * Tells whether a path matches normalized include and exclude patterns and
+	 * none of the default excludes, as DirectoryScanner would.
+	 * 
+	 * @param path
+	 *            the path, separated by <tt>/</tt>
+	 */
+	protected static boolean isIncluded(String path, String[] includes,
+			String[] excludes) {
+		String name = path.replace('/', File.separatorChar);
+		boolean included = includes.length == 0;
+		for (int i = 0; i < includes.length && !included; i++) {
+			included = SelectorUtils.matchPath(includes[i], name);
+		}
+		if (!included) {
+			return false;
+		}
+		for (int i = 0; i < excludes.length; i++) {
+			if (SelectorUtils.matchPath(excludes[i], name)) {
+				return false;
+			}
+		}
+		for (int i = 0; i < DirectoryScanner.DEFAULTEXCLUDES.length; i++) {
+			String exclude = DirectoryScanner.DEFAULTEXCLUDES[i].replace('/',
+					File.separatorChar);
+			if (SelectorUtils.matchPath(exclude, name)) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -868,7 +1799,7 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 	 *             an IO error occurs during copying. <p/> TO DO: Remove this
 	 *             method when Maven moves to plexus-utils version 1.4
 	 */
-	private static void copyFileToDirectoryIfModified(File source,
+	private void copyFileToDirectoryIfModified(File source,
 			File destinationDirectory) throws IOException {
 		// TO DO: Remove this method and use the method in WarFileUtils when
 		// Maven 2 changes
@@ -878,42 +1809,24 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 			throw new IllegalArgumentException("Destination is not a directory");
 		}
 
-		copyFileIfModified(source, new File(destinationDirectory, source
-				.getName()));
-	}
-
-	private FilterWrapper[] getFilterWrappers() {
-		return new FilterWrapper[] {
-		// support ${token}
-				new FilterWrapper() {
-					public Reader getReader(Reader fileReader,
-							Map filterProperties) {
-						return new InterpolationFilterReader(fileReader,
-								filterProperties, "${", "}");
-					}
-				},
-				// support @token@
-				new FilterWrapper() {
-					public Reader getReader(Reader fileReader,
-							Map filterProperties) {
-						return new InterpolationFilterReader(fileReader,
-								filterProperties, "@", "@");
-					}
-				} };
+		copyFile(source, new File(destinationDirectory, source.getName()));
 	}
 
 	/**
 	 * @param from
 	 * @param to
 	 * @param encoding
-	 * @param wrappers
 	 * @param filterProperties
+	 * @param resolved
+	 *            the tokens resolved so far
 	 * @throws IOException
 	 *             TO DO: Remove this method when Maven moves to plexus-utils
 	 *             version 1.4
 	 */
-	private static void copyFilteredFile(File from, File to, String encoding,
-			FilterWrapper[] wrappers, Map filterProperties) throws IOException {
+	private void copyFilteredFile(File from, File to, String encoding,
+			Map filterProperties, Map<String, String> resolved)
+			throws IOException {
+		long start = getTimings().start();
 		// buffer so it isn't reading a byte at a time!
 		Reader fileReader = null;
 		Writer fileWriter = null;
@@ -935,17 +1848,16 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 				fileWriter = new OutputStreamWriter(outstream, encoding);
 			}
 
-			Reader reader = fileReader;
-			for (int i = 0; i < wrappers.length; i++) {
-				FilterWrapper wrapper = wrappers[i];
-				reader = wrapper.getReader(reader, filterProperties);
-			}
+			// support ${token} and @token@
+			Reader reader = new DualInterpolationFilterReader(fileReader,
+					filterProperties, resolved);
 
 			IOUtil.copy(reader, fileWriter);
 		} finally {
 			IOUtil.close(fileReader);
 			IOUtil.close(fileWriter);
 		}
+		getTimings().recordCopy(BuildTimings.FILTER, start, to, true);
 	}
 
 	/**
@@ -968,22 +1880,94 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 	 *             if <code>destination</code> is a directory <p/> TO DO:
 	 *             Remove this method when Maven moves to plexus-utils version
 	 *             1.4
+	 * @return <code>true</code> if the file was copied
 	 */
-	protected static void copyFileIfModified(File source, File destination)
+	protected static boolean copyFileIfModified(File source, File destination)
 			throws IOException {
-		// TO DO: Remove this method and use the method in WarFileUtils when
-		// Maven 2 changes
-		// to plexus-utils 1.2.
-		if (destination.lastModified() < source.lastModified()) {
-			FileUtils.copyFile(source.getCanonicalFile(), destination);
+		return copyFileIfModified(source, destination, false);
+	}
+
+	/**
+	 * Copy file from source to destination only if source timestamp is later
+	 * than the destination timestamp, optionally by creating a hard link to
+	 * the source instead of copying it. A link shares the content and the
+	 * timestamp of the source, so it must never be modified in place. If the
+	 * link cannot be created, for instance because the source and destination
+	 * are on different file systems, the file is copied.
+	 * 
+	 * @param source
+	 *            An existing non-directory <code>File</code> to copy bytes
+	 *            from.
+	 * @param destination
+	 *            A non-directory <code>File</code> to write bytes to
+	 *            (possibly overwriting).
+	 * @param link
+	 *            whether to try to create a hard link
+	 * @throws IOException
+	 *             if <code>source</code> does not exist,
+	 *             <code>destination</code> cannot be written to, or an IO
+	 *             error occurs during copying.
+	 * @return <code>true</code> if the file was copied or linked
+	 */
+	protected static boolean copyFileIfModified(File source, File destination,
+			boolean link) throws IOException {
+		if (destination.lastModified() >= source.lastModified()) {
+			return false;
+		}
+		File canonicalSource = source.getCanonicalFile();
+		if (!link || !FileTransfer.link(canonicalSource, destination)) {
+			FileTransfer.copy(canonicalSource, destination);
 			// preserve timestamp
 			destination.setLastModified(source.lastModified());
 		}
+		return true;
+	}
+
+	/**
+	 * Copies a file into the deploy directory with
+	 * {@link #copyFileIfModified(File, File, boolean)}, adding it to the
+	 * timings of the deploy.
+	 */
+	protected void deployFileIfModified(File source, File destination,
+			boolean link) throws IOException {
+		long start = getTimings().start();
+		boolean copied = copyFileIfModified(source, destination, link);
+		getTimings().recordCopy(BuildTimings.DEPLOY, start, destination,
+				copied);
+	}
+
+	/**
+	 * Copies a file into the webapp. While the webapp is being built with a
+	 * {@link CopyManifest} the file is only copied if its content changed,
+	 * otherwise it is copied if the source is newer than the destination.
+	 * While the webapp is being collected the file is only recorded.
+	 * 
+	 * @param source
+	 *            An existing non-directory <code>File</code> to copy bytes
+	 *            from.
+	 * @param destination
+	 *            A non-directory <code>File</code> to write bytes to
+	 *            (possibly overwriting).
+	 * @throws IOException
+	 *             if an IO error occurs during copying.
+	 */
+	protected void copyFile(File source, File destination) throws IOException {
+		if (recordEntry(source, destination, true)) {
+			return;
+		}
+		long start = getTimings().start();
+		boolean copied;
+		if (copyManifest != null) {
+			copied = copyManifest.copy(source, destination);
+		} else {
+			copied = copyFileIfModified(source, destination);
+		}
+		getTimings().recordCopy(BuildTimings.COPY, start, destination, copied);
 	}
 
 	/**
-	 * Copies a entire directory structure but only source files with timestamp
-	 * later than the destinations'. <p/> Note:
+	 * Copies a entire directory structure but only source files which are
+	 * modified, see {@link #copyFile(File, File)}. <p/> Note:
 	 * <ul>
 	 * <li>It will include empty directories.
 	 * <li>The <code>sourceDirectory</code> must exists.
@@ -995,7 +1979,7 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 	 *             TO DO: Remove this method when Maven moves to plexus-utils
 	 *             version 1.4
 	 */
-	private static void copyDirectoryStructureIfModified(File sourceDirectory,
+	private void copyDirectoryStructureIfModified(File sourceDirectory,
 			File destinationDirectory) throws IOException {
 		if (!sourceDirectory.exists()) {
 			throw new IOException("Source directory doesn't exists ("
@@ -1034,13 +2018,6 @@ public abstract class AbstractComponentMojo extends AbstractMojo {
 		}
 	}
 
-	/**
-	 * TO DO: Remove this interface when Maven moves to plexus-utils version 1.4
-	 */
-	private interface FilterWrapper {
-		Reader getReader(Reader fileReader, Map filterProperties);
-	}
-
 	/**
 	 * Converts the filename of an artifact to artifactId-version.type format.
 	 * 
@@ -0,0 +1,183 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.AbstractArtifactResolutionException;
+import org.apache.maven.artifact.resolver.ArtifactResolver;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Resolves the files of a set of artifacts in the background, so that the artifacts which are resolved already can be
+ * copied while the others are still being downloaded. Asking for the file of an artifact waits for that artifact only.
+ * <p/>
+ * The resolver of Maven 2 is not thread safe, so the artifacts are resolved one at a time, in order, by a single
+ * background thread, and every call to the resolver is made holding the lock of the resolver. Only the copying and
+ * unpacking of the resolved artifacts overlaps with the resolution. Code looking up components from the container
+ * while artifacts are being resolved must hold the same lock.
+ *
+ * @version $Id$
+ */
+public class ArtifactResolutions
+{
+    private final ArtifactResolver resolver;
+
+    private final List remoteRepositories;
+
+    private final ArtifactRepository localRepository;
+
+    private final Map<Artifact, Future<File>> pending = new IdentityHashMap<Artifact, Future<File>>();
+
+    private ExecutorService executor;
+
+    /**
+     * @param resolver           the resolver
+     * @param remoteRepositories the repositories to download from
+     * @param localRepository    the local repository
+     */
+    public ArtifactResolutions( ArtifactResolver resolver, List remoteRepositories, ArtifactRepository localRepository )
+    {
+        this.resolver = resolver;
+        this.remoteRepositories = remoteRepositories;
+        this.localRepository = localRepository;
+    }
+
+    /**
+     * Starts resolving the artifacts which have no file yet, in the background.
+     *
+     * @param artifacts the artifacts, which may contain <code>null</code>s
+     * @return the number of artifacts being resolved
+     */
+    public synchronized int start( Collection artifacts )
+    {
+        int started = 0;
+        for ( Iterator i = artifacts.iterator(); i.hasNext(); )
+        {
+            final Artifact artifact = (Artifact) i.next();
+            if ( artifact == null || artifact.getFile() != null || pending.containsKey( artifact ) )
+            {
+                continue;
+            }
+            if ( executor == null )
+            {
+                executor = Executors.newSingleThreadExecutor();
+            }
+            pending.put( artifact, executor.submit( new Callable<File>()
+            {
+                public File call()
+                    throws Exception
+                {
+                    resolve( artifact );
+                    return artifact.getFile();
+                }
+            } ) );
+            started++;
+        }
+        return started;
+    }
+
+    /**
+     * Resolves an artifact, holding the lock of the resolver.
+     */
+    private void resolve( Artifact artifact )
+        throws AbstractArtifactResolutionException
+    {
+        synchronized ( resolver )
+        {
+            resolver.resolve( artifact, remoteRepositories, localRepository );
+        }
+    }
+
+    /**
+     * Returns the file of an artifact, waiting for it to be resolved, or resolving it now if it was not started.
+     *
+     * @param artifact the artifact
+     * @return the file, which is <code>null</code> if the resolver did not find one
+     * @throws AbstractArtifactResolutionException if the artifact could not be resolved
+     */
+    public File get( Artifact artifact )
+        throws AbstractArtifactResolutionException
+    {
+        Future<File> future;
+        synchronized ( this )
+        {
+            future = pending.get( artifact );
+        }
+        if ( future == null )
+        {
+            if ( artifact.getFile() == null )
+            {
+                resolve( artifact );
+            }
+            return artifact.getFile();
+        }
+        try
+        {
+            return future.get();
+        }
+        catch ( ExecutionException e )
+        {
+            Throwable cause = e.getCause();
+            if ( cause instanceof AbstractArtifactResolutionException )
+            {
+                throw (AbstractArtifactResolutionException) cause;
+            }
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException( "Could not resolve " + artifact.getId() + ": " + cause );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( "Interrupted while resolving " + artifact.getId() );
+        }
+    }
+
+    /**
+     * Stops the resolutions which are still running.
+     */
+    public synchronized void shutdown()
+    {
+        if ( executor != null )
+        {
+            executor.shutdownNow();
+            executor = null;
+        }
+        pending.clear();
+    }
+}
@@ -0,0 +1,426 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Where the time of the sakai goals of a reactor goes. Each phase of the build, like resolving, copying or
+ * unpacking, adds the time it took and what it did: the files it copied or left alone, the bytes it copied and the
+ * archive entries it wrote. The time of work done on several threads is summed over the threads, so a phase may
+ * take longer than the build.
+ *
+ * @version $Id$
+ */
+public class BuildTimings
+{
+    public static final String RESOLVE = "resolve";
+
+    public static final String LEDGER = "ledger";
+
+    public static final String FILTER = "filter";
+
+    public static final String COPY = "copy";
+
+    public static final String DEPLOY = "deploy";
+
+    public static final String UNPACK = "unpack";
+
+    public static final String ARCHIVE = "archive";
+
+    public static final String DUPLICATES = "duplicates";
+
+    /**
+     * The timings of each reactor, keyed by the first project of the reactor.
+     */
+    private static final Map<MavenProject, BuildTimings> TIMINGS = new WeakHashMap<MavenProject, BuildTimings>();
+
+    /**
+     * The first project of the reactor, held weakly so that it remains collectable as a key of {@link #TIMINGS}.
+     */
+    private final WeakReference<MavenProject> root;
+
+    private final long created = System.currentTimeMillis();
+
+    private final Map<String, Phase> phases = new LinkedHashMap<String, Phase>();
+
+    /**
+     * The number of records so far, to tell whether anything happened since the last report.
+     */
+    private final AtomicLong records = new AtomicLong();
+
+    /**
+     * The number of records when the timings were last reported.
+     */
+    private long reported = -1;
+
+    private boolean reportAtExit;
+
+    /**
+     * Creates timings which belong to no reactor.
+     */
+    public BuildTimings()
+    {
+        this( null );
+    }
+
+    private BuildTimings( MavenProject root )
+    {
+        this.root = new WeakReference<MavenProject>( root );
+    }
+
+    /**
+     * Returns the timings of a reactor, creating them for the first module which asks.
+     *
+     * @param reactorProjects the projects in the reactor, or <code>null</code>
+     * @return the timings of the reactor, or new timings of their own for a build without a reactor
+     */
+    public static synchronized BuildTimings forReactor( List reactorProjects )
+    {
+        if ( reactorProjects == null || reactorProjects.isEmpty() )
+        {
+            return new BuildTimings();
+        }
+        MavenProject root = (MavenProject) reactorProjects.get( 0 );
+        BuildTimings timings = TIMINGS.get( root );
+        // projects are equal by id, so a later build of the same reactor in this JVM must not find our timings
+        if ( timings == null || timings.root.get() != root )
+        {
+            timings = new BuildTimings( root );
+            TIMINGS.put( root, timings );
+        }
+        return timings;
+    }
+
+    /**
+     * @return the time to pass to the <code>record</code> methods when the work is done
+     */
+    public long start()
+    {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records some work which is neither copying nor writing entries.
+     *
+     * @param phase the phase the work belongs to
+     * @param start the value of {@link #start()} before the work
+     */
+    public void record( String phase, long start )
+    {
+        getPhase( phase ).add( start );
+    }
+
+    /**
+     * Records the copy of a file, or the decision to leave it alone.
+     *
+     * @param phase       the phase the copy belongs to
+     * @param start       the value of {@link #start()} before the copy
+     * @param destination the file copied to
+     * @param copied      whether the file was copied
+     */
+    public void recordCopy( String phase, long start, File destination, boolean copied )
+    {
+        Phase p = getPhase( phase );
+        p.add( start );
+        if ( copied )
+        {
+            p.copied.incrementAndGet();
+            p.bytes.addAndGet( destination.length() );
+        }
+        else
+        {
+            p.skipped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records the entries written to or from an archive.
+     *
+     * @param phase   the phase the archive belongs to
+     * @param start   the value of {@link #start()} before the archive was read or written
+     * @param written the number of entries written
+     * @param skipped the number of entries left alone
+     */
+    public void recordEntries( String phase, long start, int written, int skipped )
+    {
+        Phase p = getPhase( phase );
+        p.add( start );
+        p.entries.addAndGet( written );
+        p.skipped.addAndGet( skipped );
+    }
+
+    /**
+     * Logs the table of the phases and writes them as JSON, unless nothing was recorded since they were last
+     * reported, so that the goals run on the last module of a reactor do not all report the same totals.
+     *
+     * @param log     the log
+     * @param summary whether to log the table of the phases
+     * @param file    the file to write the phases to as JSON, or <code>null</code>
+     * @return <code>true</code> if the timings were reported
+     */
+    public boolean report( Log log, boolean summary, File file )
+    {
+        boolean again;
+        synchronized ( this )
+        {
+            long current = records.get();
+            if ( current == reported )
+            {
+                return false;
+            }
+            again = reported != -1;
+            reported = current;
+        }
+        if ( summary )
+        {
+            log.info( again ? "Sakai build timings, updated:" : "Sakai build timings:" );
+            for ( String line : getSummary() )
+            {
+                log.info( "  " + line );
+            }
+        }
+        if ( file != null )
+        {
+            try
+            {
+                writeJson( file );
+                log.info( "Wrote build timings to " + file );
+            }
+            catch ( IOException e )
+            {
+                log.warn( "Could not write build timings to " + file + ": " + e.getMessage() );
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reports the timings for a goal of a module, if asked to. The last module of the reactor reports them straight
+     * away, see {@link #report(Log, boolean, File)}, and the others make sure they are reported when the build ends,
+     * in case the last module runs no sakai goal.
+     *
+     * @param project         the module the goal runs on
+     * @param reactorProjects the projects in the reactor, or <code>null</code>
+     * @param log             the log
+     * @param summary         whether to log the table of the phases
+     * @param file            the file to write the phases to as JSON, or <code>null</code>
+     * @return <code>true</code> if the timings were reported
+     */
+    public boolean reportFrom( MavenProject project, List reactorProjects, Log log, boolean summary, File file )
+    {
+        if ( !summary && file == null )
+        {
+            return false;
+        }
+        if ( reactorProjects != null && !reactorProjects.isEmpty() )
+        {
+            MavenProject last = (MavenProject) reactorProjects.get( reactorProjects.size() - 1 );
+            if ( !last.getId().equals( project.getId() ) )
+            {
+                reportAtExit( log, summary, file );
+                return false;
+            }
+        }
+        return report( log, summary, file );
+    }
+
+    /**
+     * Reports the timings when the build ends if they have not been reported by then, for a reactor whose last
+     * module runs no sakai goal or which stopped before the last module.
+     *
+     * @param log     the log
+     * @param summary whether to log the table of the phases
+     * @param file    the file to write the phases to as JSON, or <code>null</code>
+     */
+    public synchronized void reportAtExit( final Log log, final boolean summary, final File file )
+    {
+        if ( reportAtExit )
+        {
+            return;
+        }
+        reportAtExit = true;
+        Runtime.getRuntime().addShutdownHook( new Thread( "sakai-build-timings" )
+        {
+            public void run()
+            {
+                synchronized ( BuildTimings.this )
+                {
+                    if ( records.get() == reported || records.get() == 0 )
+                    {
+                        return;
+                    }
+                }
+                log.warn( "The last module of the reactor did not report the build timings, reporting them at exit" );
+                report( log, summary, file );
+            }
+        } );
+    }
+
+    /**
+     * @return the lines of a table of the phases, for the log
+     */
+    public List<String> getSummary()
+    {
+        List<String> lines = new ArrayList<String>();
+        lines.add( format( "phase", "calls", "ms", "copied", "skipped", "bytes", "entries" ) );
+        for ( Map.Entry<String, Phase> e : getPhases().entrySet() )
+        {
+            Phase p = e.getValue();
+            lines.add( format( e.getKey(), String.valueOf( p.calls.get() ), String.valueOf( p.getMillis() ),
+                               String.valueOf( p.copied.get() ), String.valueOf( p.skipped.get() ),
+                               String.valueOf( p.bytes.get() ), String.valueOf( p.entries.get() ) ) );
+        }
+        lines.add( "elapsed " + getElapsed() + " ms" );
+        return lines;
+    }
+
+    /**
+     * @return the phases as a JSON object
+     */
+    public String toJson()
+    {
+        StringBuilder json = new StringBuilder();
+        json.append( "{\n  \"elapsedMillis\": " ).append( getElapsed() ).append( ",\n  \"phases\": {" );
+        String separator = "\n";
+        for ( Map.Entry<String, Phase> e : getPhases().entrySet() )
+        {
+            Phase p = e.getValue();
+            json.append( separator ).append( "    \"" ).append( escape( e.getKey() ) ).append( "\": {" );
+            json.append( "\"calls\": " ).append( p.calls.get() );
+            json.append( ", \"millis\": " ).append( p.getMillis() );
+            json.append( ", \"filesCopied\": " ).append( p.copied.get() );
+            json.append( ", \"filesSkipped\": " ).append( p.skipped.get() );
+            json.append( ", \"bytesCopied\": " ).append( p.bytes.get() );
+            json.append( ", \"entriesWritten\": " ).append( p.entries.get() );
+            json.append( "}" );
+            separator = ",\n";
+        }
+        json.append( "\n  }\n}\n" );
+        return json.toString();
+    }
+
+    /**
+     * Writes the phases to a file as JSON.
+     *
+     * @param file the file to write, replaced if it exists
+     * @throws IOException if the file could not be written
+     */
+    public void writeJson( File file )
+        throws IOException
+    {
+        File parent = file.getParentFile();
+        if ( parent != null )
+        {
+            parent.mkdirs();
+        }
+        FileUtils.fileWrite( file.getPath(), "UTF-8", toJson() );
+    }
+
+    /**
+     * @return the milliseconds since these timings were created
+     */
+    public long getElapsed()
+    {
+        return System.currentTimeMillis() - created;
+    }
+
+    private synchronized Phase getPhase( String name )
+    {
+        records.incrementAndGet();
+        Phase phase = phases.get( name );
+        if ( phase == null )
+        {
+            phase = new Phase();
+            phases.put( name, phase );
+        }
+        return phase;
+    }
+
+    private synchronized Map<String, Phase> getPhases()
+    {
+        return new LinkedHashMap<String, Phase>( phases );
+    }
+
+    private static String format( String phase, String calls, String millis, String copied, String skipped,
+                                  String bytes, String entries )
+    {
+        return pad( phase, 12 ) + pad( calls, 8 ) + pad( millis, 10 ) + pad( copied, 9 ) + pad( skipped, 9 )
+            + pad( bytes, 14 ) + entries;
+    }
+
+    private static String pad( String s, int width )
+    {
+        StringBuilder padded = new StringBuilder( s );
+        do
+        {
+            padded.append( ' ' );
+        }
+        while ( padded.length() < width );
+        return padded.toString();
+    }
+
+    private static String escape( String s )
+    {
+        return s.replace( "\\", "\\\\" ).replace( "\"", "\\\"" );
+    }
+
+    /**
+     * What a phase did so far, updated from any thread.
+     */
+    private static final class Phase
+    {
+        private final AtomicLong calls = new AtomicLong();
+
+        private final AtomicLong nanos = new AtomicLong();
+
+        private final AtomicLong copied = new AtomicLong();
+
+        private final AtomicLong skipped = new AtomicLong();
+
+        private final AtomicLong bytes = new AtomicLong();
+
+        private final AtomicLong entries = new AtomicLong();
+
+        void add( long start )
+        {
+            calls.incrementAndGet();
+            nanos.addAndGet( System.nanoTime() - start );
+        }
+
+        long getMillis()
+        {
+            return nanos.get() / 1000000L;
+        }
+    }
+}
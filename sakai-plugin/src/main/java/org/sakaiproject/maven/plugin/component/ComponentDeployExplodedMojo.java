@@ -22,9 +22,12 @@ package org.sakaiproject.maven.plugin.component;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.zip.ZipException;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.resolver.AbstractArtifactResolutionException;
@@ -64,6 +67,17 @@ public class ComponentDeployExplodedMojo extends AbstractComponentMojo {
 	 */
 	private String deployId = null;
 
+	/**
+	 * Whether to hard link the deployed jars to the files in the local
+	 * repository instead of copying them. Jars are copied when a link cannot
+	 * be created, for instance when the deploy directory is on a different
+	 * file system. Linked jars are the files in the local repository, so they
+	 * must never be modified in place.
+	 * 
+	 * @parameter expression="${sakai.deploy.hardLink}" default-value="false"
+	 */
+	private boolean hardLink = false;
+
 	private Properties locationMap;
 
 	private static Properties defaultLocatioMap;
@@ -107,8 +121,17 @@ public class ComponentDeployExplodedMojo extends AbstractComponentMojo {
 		this.deployId = deployId;
 	}
 
+	public boolean isHardLink() {
+		return hardLink;
+	}
+
+	public void setHardLink(boolean hardLink) {
+		this.hardLink = hardLink;
+	}
+
 	public void execute() throws MojoExecutionException, MojoFailureException {
 		deployToContainer();
+		reportTimings();
 	}
 
 	public void deployToContainer() throws MojoExecutionException,
@@ -125,6 +148,15 @@ public class ComponentDeployExplodedMojo extends AbstractComponentMojo {
 				throw new MojoFailureException(
 						"deployDirectory has not been set");
 			}
+			openLedger(deployDir);
+			// the files of everything this module deploys are resolved in the
+			// background, and each is deployed as soon as it is available
+			List<Artifact> toResolve = new ArrayList<Artifact>();
+			toResolve.add(project.getArtifact());
+			if ("pom".equals(packaging) && artifacts != null) {
+				toResolve.addAll(artifacts);
+			}
+			startResolving(toResolve);
 			if ("sakai-component".equals(packaging)) {
 				// UseCase: Sakai component in a pom
 				// deploy to component and unpack as a
@@ -143,22 +175,26 @@ public class ComponentDeployExplodedMojo extends AbstractComponentMojo {
 					throw new MojoFailureException(
 							"No Artifact found in project");
 				}
-				File artifactFile = artifact.getFile();
-				if (artifactFile == null) {
-					artifactResolver.resolve(artifact, remoteRepositories,
-							artifactRepository);
-					artifactFile = artifact.getFile();
-				}
+				File artifactFile = resolveFile(artifact);
 				if (artifactFile == null) {
 					getLog().error(
 							"Artifact File is null for " + getProjectId());
 					throw new MojoFailureException("Artifact File is null ");
 				}
-				getLog().info(
-						"Unpacking " + artifactFile + " to " + destinationDir);
-				deleteAll(destinationDir);
-				destinationDir.mkdirs();
-				unpack(artifactFile, destinationDir, "war", false);
+				DeployLedger.Unit unit = newUnit();
+				if (unit != null) {
+					unit.addInput(artifact.getId(), artifactFile);
+					unit.addTargets(artifactFile, destinationDir, null);
+				}
+				if (!isUpToDate(unit)) {
+					removeOrphans(unit);
+					getLog().info(
+							"Unpacking " + artifactFile + " to " + destinationDir);
+					// only rewrite what changed, so the container does not see
+					// the whole component being replaced
+					unpackChanges(artifactFile, destinationDir);
+					deployed(unit);
+				}
 			}
 			else if ("sakai-configuration".equals(packaging)) {
 				// UseCase: Sakai configuration in a pom
@@ -176,22 +212,34 @@ public class ComponentDeployExplodedMojo extends AbstractComponentMojo {
 					throw new MojoFailureException(
 							"No Artifact found in project");
 				}
-				File artifactFile = artifact.getFile();
-				if (artifactFile == null) {
-					artifactResolver.resolve(artifact, remoteRepositories,
-							artifactRepository);
-					artifactFile = artifact.getFile();
-				}
+				File artifactFile = resolveFile(artifact);
 				if (artifactFile == null) {
 					getLog().error(
 							"Artifact File is null for " + getProjectId());
 					throw new MojoFailureException("Artifact File is null ");
 				}
-				getLog().info(
-						"Unpacking " + artifactFile + " to " + destinationDir);
-				destinationDir.mkdirs();
-				// we use a zip unarchiver
-				unpack(artifactFile, destinationDir, "zip" , false);
+				DeployLedger.Unit unit = newUnit();
+				if (unit != null) {
+					unit.addInput(artifact.getId(), artifactFile);
+					unit.addTargets(artifactFile, destinationDir,
+							ConfigurationMojo.MANIFEST_ENTRY);
+				}
+				if (!isUpToDate(unit)) {
+					removeOrphans(unit);
+					getLog().info(
+							"Unpacking " + artifactFile + " to " + destinationDir);
+					// the configuration shares its directory with the rest of
+					// the container, so nothing else is removed, and files
+					// edited since the configuration was built are kept as
+					// they were
+					DifferentialUnpacker unpacker = new DifferentialUnpacker();
+					unpacker.setRemoveOthers(false);
+					unpacker.setOverwriteNewer(false);
+					unpacker.skip(ConfigurationMojo.MANIFEST_ENTRY);
+					unpacker.skip("META-INF/");
+					unpackChanges(artifactFile, destinationDir, unpacker);
+					deployed(unit);
+				}
 			} else if ("war".equals(packaging)) {
 				// UseCase: war webapp
 				// deploy to webapps but dont unpack
@@ -250,15 +298,37 @@ public class ComponentDeployExplodedMojo extends AbstractComponentMojo {
 					destinationDir.mkdirs();
 					deployArtifacts(artifacts, destinationDir);
 				} else if ( "tomcat-overlay".equals(deployTarget)) {
-				        String cleanTargetPaths = p.getProperty("clean.targets");
-				        String[] cleanPaths = cleanTargetPaths.split(";");
-				        for ( String pathToClean : cleanPaths ) {
-	                                  File destinationDir = new File(deployDir, getDeploySubDir(pathToClean));
-	                                  getLog().info("Deleting "+destinationDir);
-				          deleteAll(destinationDir);
-				        }
-				        deployDir.mkdirs();
-				        deployOverlay(artifacts, deployDir);
+					DeployLedger.Unit unit = newUnit();
+					if (unit != null) {
+						for (Iterator iter = artifacts.iterator(); iter.hasNext();) {
+							Artifact artifact = (Artifact) iter.next();
+							File artifactFile = artifact == null
+									|| "test".equals(artifact.getScope()) ? null
+									: resolveFile(artifact);
+							// a missing file fails the overlay below
+							if (artifactFile != null) {
+								unit.addInput(artifact.getId(), artifactFile);
+							}
+						}
+					}
+					if (!isUpToDate(unit)) {
+						String cleanTargetPaths = p.getProperty("clean.targets");
+						String[] cleanPaths = cleanTargetPaths.split(";");
+						for (String pathToClean : cleanPaths) {
+							File destinationDir = new File(deployDir,
+									getDeploySubDir(pathToClean));
+							getLog().info("Deleting " + destinationDir);
+							deleteAll(destinationDir);
+						}
+						deployDir.mkdirs();
+						List<File> archives = deployOverlay(artifacts, deployDir);
+						// the files of archives which are not zips are not
+						// known, so such an overlay is deployed every time
+						if (unit != null && addOverlayTargets(unit, archives, deployDir)) {
+							removeOrphans(unit);
+							deployed(unit);
+						}
+					}
 				} else {
 					getLog().info(
 							"No deployment specification -- skipping "
@@ -282,6 +352,9 @@ public class ComponentDeployExplodedMojo extends AbstractComponentMojo {
 			getLog().debug("Failed to deploy to container ", ex);
 			throw new MojoFailureException("Failed to deploy to container :"
 					+ ex.getMessage());
+		} finally {
+			stopResolving();
+			closeLedger();
 		}
 
 	}
@@ -327,9 +400,15 @@ public class ComponentDeployExplodedMojo extends AbstractComponentMojo {
 		return deploySubDir;
 	}
 
-	protected void deployOverlay(Set artifacts, File destination)
+	/**
+	 * Unpacks the archives of an overlay into a directory.
+	 * 
+	 * @return the archives unpacked
+	 */
+	protected List<File> deployOverlay(Set artifacts, File destination)
 			throws IOException, MojoFailureException,
 			AbstractArtifactResolutionException, MojoExecutionException, NoSuchArchiverException {
+		List<File> archives = new ArrayList<File>();
 		for (Iterator iter = artifacts.iterator(); iter.hasNext();) {
 			Artifact artifact = (Artifact) iter.next();
 			if (artifact == null) {
@@ -339,12 +418,7 @@ public class ComponentDeployExplodedMojo extends AbstractComponentMojo {
 				throw new MojoFailureException(
 						"Null Artifact found, sould never happen, in artifacts for project ");
 			}
-			File artifactFile = artifact.getFile();
-			if (artifactFile == null) {
-				artifactResolver.resolve(artifact, remoteRepositories,
-						artifactRepository);
-				artifactFile = artifact.getFile();
-			}
+			File artifactFile = resolveFile(artifact);
 			if (artifactFile == null) {
 				getLog().error(
 						"Artifact File is null for dependency "
@@ -356,54 +430,80 @@ public class ComponentDeployExplodedMojo extends AbstractComponentMojo {
                         getLog().debug("Processing: " + artifact.getId());
                         if ( !"test".equals(artifact.getScope()) ) {
                           unpack(artifact.getFile(), destination, artifact.getType(),true);
+                          archives.add(artifact.getFile());
                         }
 		}
-
+		return archives;
 	}
-        protected void deployArtifacts(Set artifacts, File destination)
-        throws IOException, MojoFailureException,
-        AbstractArtifactResolutionException {
-for (Iterator iter = artifacts.iterator(); iter.hasNext();) {
-        Artifact artifact = (Artifact) iter.next();
-        if (artifact == null) {
-                getLog().error(
-                                "Null Artifact found, sould never happen, in artifacts for project "
-                                                + getProjectId());
-                throw new MojoFailureException(
-                                "Null Artifact found, sould never happen, in artifacts for project ");
-        }
-        File artifactFile = artifact.getFile();
-        if (artifactFile == null) {
-                artifactResolver.resolve(artifact, remoteRepositories,
-                                artifactRepository);
-                artifactFile = artifact.getFile();
-        }
-        if (artifactFile == null) {
-                getLog().error(
-                                "Artifact File is null for dependency "
-                                                + artifact.getId() + " in " + getProjectId());
-                throw new MojoFailureException(
-                                "Artifact File is null for dependency "
-                                                + artifact.getId() + " in " + getProjectId());
-        }
-        String targetFileName = getDefaultFinalName(artifact);
 
-        getLog().debug("Processing: " + targetFileName);
-        File destinationFile = new File(destination, targetFileName);
-        if ("provided".equals(artifact.getScope())
-                        || "test".equals(artifact.getScope())) {
-                getLog().info(
-                                "Skipping " + artifactFile + " Scope "
-                                                + artifact.getScope());
+	/**
+	 * Adds the files of the archives of an overlay to a unit.
+	 * 
+	 * @return <tt>false</tt> if an archive is not a zip, so its files are not
+	 *         known
+	 */
+	private boolean addOverlayTargets(DeployLedger.Unit unit,
+			List<File> archives, File destination) throws IOException {
+		for (File archive : archives) {
+			try {
+				unit.addTargets(archive, destination, null);
+			} catch (ZipException e) {
+				return false;
+			}
+		}
+		return true;
+	}
+	protected void deployArtifacts(Set artifacts, File destination)
+			throws IOException, MojoFailureException,
+			AbstractArtifactResolutionException {
+		DeployLedger.Unit unit = newUnit();
+		List<File[]> copies = new ArrayList<File[]>();
+		for (Iterator iter = artifacts.iterator(); iter.hasNext();) {
+			Artifact artifact = (Artifact) iter.next();
+			if (artifact == null) {
+				getLog().error(
+						"Null Artifact found, sould never happen, in artifacts for project "
+								+ getProjectId());
+				throw new MojoFailureException(
+						"Null Artifact found, sould never happen, in artifacts for project ");
+			}
+			File artifactFile = resolveFile(artifact);
+			if (artifactFile == null) {
+				getLog().error(
+						"Artifact File is null for dependency "
+								+ artifact.getId() + " in " + getProjectId());
+				throw new MojoFailureException(
+						"Artifact File is null for dependency "
+								+ artifact.getId() + " in " + getProjectId());
+			}
+			String targetFileName = getDefaultFinalName(artifact);
 
-        } else {
-                getLog()
-                                .info("Copy " + artifactFile + " to " + destinationFile);
-                copyFileIfModified(artifact.getFile(), destinationFile);
-        }
-}
+			getLog().debug("Processing: " + targetFileName);
+			File destinationFile = new File(destination, targetFileName);
+			if ("provided".equals(artifact.getScope())
+					|| "test".equals(artifact.getScope())) {
+				getLog().info(
+						"Skipping " + artifactFile + " Scope "
+								+ artifact.getScope());
 
-}
+			} else {
+				copies.add(new File[] { artifactFile, destinationFile });
+				if (unit != null) {
+					unit.addInput(artifact.getId(), artifactFile);
+					unit.addTarget(destinationFile, true);
+				}
+			}
+		}
+		if (isUpToDate(unit)) {
+			return;
+		}
+		removeOrphans(unit);
+		for (File[] copy : copies) {
+			getLog().info("Copy " + copy[0] + " to " + copy[1]);
+			deployFileIfModified(copy[0], copy[1], hardLink);
+		}
+		deployed(unit);
+	}
 
 	private void deployProjectArtifact(File destination, boolean withVersion,
 			boolean deleteStub) throws MojoFailureException, IOException,
@@ -436,20 +536,25 @@ for (Iterator iter = artifacts.iterator(); iter.hasNext();) {
 					"No Artifact found in project, target was "
 							+ destinationFile);
 		}
-		File artifactFile = artifact.getFile();
-		if (artifactFile == null) {
-			artifactResolver.resolve(artifact, remoteRepositories,
-					artifactRepository);
-			artifactFile = artifact.getFile();
-		}
+		File artifactFile = resolveFile(artifact);
 		if (artifactFile == null) {
 			getLog().error(
 					"Artifact File is null for " + getProjectId()
 							+ ", target was " + destinationFile);
 			throw new MojoFailureException("Artifact File is null ");
 		}
+		boolean war = "war".equals(project.getPackaging());
+		DeployLedger.Unit unit = newUnit();
+		if (unit != null) {
+			unit.addInput(artifact.getId(), artifactFile);
+			unit.addTarget(war ? stubFile : destinationFile, !war);
+		}
+		if (isUpToDate(unit)) {
+			return;
+		}
+		removeOrphans(unit);
 		
-		if ("war".equals(project.getPackaging())) {
+		if (war) {
 			if (stubFile.exists()) {
 				deleteAll(stubFile);
 			}
@@ -461,7 +566,8 @@ for (Iterator iter = artifacts.iterator(); iter.hasNext();) {
 			}
 			destinationFile.getParentFile().mkdirs();
 			getLog().info("Copy " + artifactFile + " to " + destinationFile);
-			copyFileIfModified(artifactFile, destinationFile);
+			deployFileIfModified(artifactFile, destinationFile, hardLink);
 		}
+		deployed(unit);
 	}
 }
@@ -22,17 +22,25 @@ package org.sakaiproject.maven.plugin.component;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.resolver.AbstractArtifactResolutionException;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.archiver.UnArchiver;
 import org.codehaus.plexus.archiver.manager.NoSuchArchiverException;
-import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.SelectorUtils;
 import org.codehaus.plexus.util.StringUtils;
 
 /**
@@ -67,6 +75,65 @@ public class ComponentDeployMojo extends AbstractComponentMojo {
 	 */
 	private String deployId = null;
 
+	/**
+	 * Whether to hard link the deployed jars to the files in the local
+	 * repository instead of copying them. Jars are copied when a link cannot
+	 * be created, for instance when the deploy directory is on a different
+	 * file system. Linked jars are the files in the local repository, so they
+	 * must never be modified in place.
+	 * 
+	 * @parameter expression="${sakai.deploy.hardLink}" default-value="false"
+	 */
+	private boolean hardLink = false;
+
+	/**
+	 * Whether to build the deployment in a staging directory and move each
+	 * component, webapp and jar into place with a rename once all of them are
+	 * ready, so that a running container never picks up a half written file.
+	 * Jars are staged in parallel. Configurations and tomcat overlays are
+	 * always unpacked in place.
+	 * 
+	 * @parameter expression="${sakai.deploy.staged}" default-value="false"
+	 */
+	private boolean stagedDeploy = false;
+
+	/**
+	 * The deployment being staged, or <tt>null</tt> when deploying in place.
+	 */
+	private StagedDeployment staging;
+
+	/**
+	 * Whether to collect the jars and components to deploy from every module
+	 * of the reactor and deploy them once, in parallel, when the last module
+	 * has been processed. A jar or component deployed by several modules is
+	 * only deployed once. This needs the goal to run for every module, so it
+	 * only applies when the goal is given on the command line, and nothing is
+	 * deployed if the build stops before the last module; configurations,
+	 * webapp stubs and tomcat overlays are still deployed by each module.
+	 * 
+	 * @parameter expression="${sakai.deploy.atEnd}" default-value="false"
+	 */
+	private boolean deployAtEnd = false;
+
+	/**
+	 * The session, to find out whether the goal runs for every module.
+	 * 
+	 * @parameter expression="${session}"
+	 * @readonly
+	 */
+	private MavenSession session;
+
+	/**
+	 * The plan this module adds to, or <tt>null</tt> when deploying straight
+	 * away.
+	 */
+	private DeployPlan plan;
+
+	/**
+	 * The location maps of the app servers, so that each is only loaded once.
+	 */
+	private static final Map<String, Properties> LOCATION_MAPS = new ConcurrentHashMap<String, Properties>();
+
 	/**
 	 * Should we cleanup old versions when an artifact is deployed containing a version.
 	 * 
@@ -74,6 +141,12 @@ public class ComponentDeployMojo extends AbstractComponentMojo {
 	 */
 	private boolean cleanup = false;
 
+	/**
+	 * The units of this module which are recorded in the ledger once the
+	 * staged deployment has been published.
+	 */
+	private List<DeployLedger.Unit> unpublished;
+
 	private Properties locationMap;
 
 	private static Properties defaultLocatioMap;
@@ -125,8 +198,33 @@ public class ComponentDeployMojo extends AbstractComponentMojo {
 		this.cleanup = cleanup;
 	}
 
+	public boolean isStagedDeploy() {
+		return stagedDeploy;
+	}
+
+	public void setStagedDeploy(boolean stagedDeploy) {
+		this.stagedDeploy = stagedDeploy;
+	}
+
+	public boolean isDeployAtEnd() {
+		return deployAtEnd;
+	}
+
+	public void setDeployAtEnd(boolean deployAtEnd) {
+		this.deployAtEnd = deployAtEnd;
+	}
+
+	public boolean isHardLink() {
+		return hardLink;
+	}
+
+	public void setHardLink(boolean hardLink) {
+		this.hardLink = hardLink;
+	}
+
 	public void execute() throws MojoExecutionException, MojoFailureException {
 		deployToContainer();
+		reportTimings();
 	}
 
 	public void deployToContainer() throws MojoExecutionException,
@@ -143,6 +241,42 @@ public class ComponentDeployMojo extends AbstractComponentMojo {
 				throw new MojoFailureException(
 						"deployDirectory has not been set");
 			}
+			if (deployAtEnd && reactorProjects != null
+					&& !reactorProjects.isEmpty()) {
+				plan = DeployPlan.forReactor(reactorProjects);
+				if (plan.isExecuted()) {
+					// too late for the plan, deploy our own files
+					plan = null;
+				} else if (!isSessionGoal()) {
+					// bound to a phase, the last module may never run it
+					getLog().warn(
+							"sakai.deploy.atEnd needs the goal on the command line,"
+									+ " deploying " + getProjectId()
+									+ " straight away");
+					plan = null;
+				} else if (plan.begin()) {
+					MavenProject last = (MavenProject) reactorProjects
+							.get(reactorProjects.size() - 1);
+					getLog().warn(
+							"Deploying at the end of the reactor: nothing is deployed"
+									+ " until " + last.getId() + " has run, and"
+									+ " nothing at all if the build stops before");
+				}
+			}
+			if (stagedDeploy && plan == null) {
+				staging = new StagedDeployment(deployDir);
+			}
+			openLedger(deployDir);
+			unpublished = new ArrayList<DeployLedger.Unit>();
+			// the files of everything this module deploys are resolved in the
+			// background, and each is deployed as soon as it is available
+			List<Artifact> toResolve = new ArrayList<Artifact>();
+			toResolve.add(project.getArtifact());
+			if ("pom".equals(packaging) && artifacts != null) {
+				toResolve.addAll(artifacts);
+			}
+			startResolving(toResolve);
+			boolean planExecuted = false;
 			if ("sakai-component".equals(packaging)) {
 				// UseCase: Sakai component in a pom
 				// deploy to component and unpack as a
@@ -161,22 +295,24 @@ public class ComponentDeployMojo extends AbstractComponentMojo {
 					throw new MojoFailureException(
 							"No Artifact found in project");
 				}
-				File artifactFile = artifact.getFile();
-				if (artifactFile == null) {
-					artifactResolver.resolve(artifact, remoteRepositories,
-							artifactRepository);
-					artifactFile = artifact.getFile();
-				}
+				File artifactFile = resolveFile(artifact);
 				if (artifactFile == null) {
 					getLog().error(
 							"Artifact File is null for " + getProjectId());
 					throw new MojoFailureException("Artifact File is null ");
 				}
-				getLog().info(
-						"Unpacking " + artifactFile + " to " + destinationDir);
-				deleteAll(destinationDir);
-				destinationDir.mkdirs();
-				unpack(artifactFile, destinationDir, "war", false);
+				DeployLedger.Unit unit = newUnit();
+				if (unit != null) {
+					unit.addInput(artifact.getId(), artifactFile);
+					unit.addTargets(artifactFile, destinationDir, null);
+				}
+				if (!isUpToDate(unit)) {
+					removeOrphans(unit);
+					getLog().info(
+							"Unpacking " + artifactFile + " to " + destinationDir);
+					deployComponent(artifactFile, destinationDir);
+					deployed(unit);
+				}
 			}
 			else if ("sakai-configuration".equals(packaging)) {
 				// UseCase: Sakai configuration in a pom
@@ -194,22 +330,34 @@ public class ComponentDeployMojo extends AbstractComponentMojo {
 					throw new MojoFailureException(
 							"No Artifact found in project");
 				}
-				File artifactFile = artifact.getFile();
-				if (artifactFile == null) {
-					artifactResolver.resolve(artifact, remoteRepositories,
-							artifactRepository);
-					artifactFile = artifact.getFile();
-				}
+				File artifactFile = resolveFile(artifact);
 				if (artifactFile == null) {
 					getLog().error(
 							"Artifact File is null for " + getProjectId());
 					throw new MojoFailureException("Artifact File is null ");
 				}
-				getLog().info(
-						"Unpacking " + artifactFile + " to " + destinationDir);
-				destinationDir.mkdirs();
-				// we use a zip unarchiver
-				unpack(artifactFile, destinationDir, "zip" , false);
+				DeployLedger.Unit unit = newUnit();
+				if (unit != null) {
+					unit.addInput(artifact.getId(), artifactFile);
+					unit.addTargets(artifactFile, destinationDir,
+							ConfigurationMojo.MANIFEST_ENTRY);
+				}
+				if (!isUpToDate(unit)) {
+					removeOrphans(unit);
+					getLog().info(
+							"Unpacking " + artifactFile + " to " + destinationDir);
+					// the configuration shares its directory with the rest of
+					// the container, so nothing else is removed, and files
+					// edited since the configuration was built are kept as
+					// they were
+					DifferentialUnpacker unpacker = new DifferentialUnpacker();
+					unpacker.setRemoveOthers(false);
+					unpacker.setOverwriteNewer(false);
+					unpacker.skip(ConfigurationMojo.MANIFEST_ENTRY);
+					unpacker.skip("META-INF/");
+					unpackChanges(artifactFile, destinationDir, unpacker);
+					deployed(unit);
+				}
 			} else if ("war".equals(packaging)) {
 				// UseCase: war webapp
 				// deploy to webapps but dont unpack
@@ -268,15 +416,36 @@ public class ComponentDeployMojo extends AbstractComponentMojo {
 					destinationDir.mkdirs();
 					deployArtifacts(artifacts, destinationDir);
 				} else if ( "tomcat-overlay".equals(deployTarget)) {
-				        String cleanTargetPaths = p.getProperty("clean.targets");
-				        String[] cleanPaths = cleanTargetPaths.split(";");
-				        for ( String pathToClean : cleanPaths ) {
-	                                  File destinationDir = new File(deployDir, getDeploySubDir(pathToClean));
-	                                  getLog().info("Deleting "+destinationDir);
-				          deleteAll(destinationDir);
-				        }
-				        deployDir.mkdirs();
-				        deployOverlay(artifacts, deployDir);
+					DeployLedger.Unit unit = newUnit();
+					if (unit != null) {
+						for (Iterator iter = artifacts.iterator(); iter.hasNext();) {
+							Artifact artifact = (Artifact) iter.next();
+							if (artifact != null && !"test".equals(artifact.getScope())) {
+								unit.addInput(artifact.getId(), getDependencyFile(artifact));
+							}
+						}
+					}
+					if (!isUpToDate(unit)) {
+						String cleanTargetPaths = p.getProperty("clean.targets");
+						String[] cleanPaths = cleanTargetPaths.split(";");
+						for (String pathToClean : cleanPaths) {
+							File destinationDir = new File(deployDir,
+									getDeploySubDir(pathToClean));
+							getLog().info("Deleting " + destinationDir);
+							deleteAll(destinationDir);
+						}
+						deployDir.mkdirs();
+						List<File> written = deployOverlay(artifacts, deployDir);
+						// the files of archives which are not zips are not
+						// known, so such an overlay is deployed every time
+						if (unit != null && written != null) {
+							for (File file : written) {
+								unit.addTarget(file, true);
+							}
+							removeOrphans(unit);
+							deployed(unit);
+						}
+					}
 				} else {
 					getLog().info(
 							"No deployment specification -- skipping "
@@ -288,6 +457,30 @@ public class ComponentDeployMojo extends AbstractComponentMojo {
 						"No deployment specification -- skipping "
 								+ getProjectId());
 			}
+			if (plan != null) {
+				MavenProject last = (MavenProject) reactorProjects
+						.get(reactorProjects.size() - 1);
+				if (plan.report(getProjectId())
+						|| last.getId().equals(project.getId())) {
+					executePlan(plan, deployDir);
+					planExecuted = true;
+				}
+			}
+			if (staging != null) {
+				List<File> published = staging.publish();
+				getLog().info(
+						"Published " + published.size() + " staged file(s) to "
+								+ deployDir);
+			}
+			if (getLedger() != null) {
+				if (planExecuted) {
+					removeDeferredOrphans();
+					getLedger().recordDeferred();
+				}
+				for (DeployLedger.Unit unit : unpublished) {
+					getLedger().record(unit);
+				}
+			}
 		} catch (IOException ex) {
 			getLog().debug("Failed to deploy to container ", ex);
 			throw new MojoFailureException("Failed to deploy to container :"
@@ -300,6 +493,21 @@ public class ComponentDeployMojo extends AbstractComponentMojo {
 			getLog().debug("Failed to deploy to container ", ex);
 			throw new MojoFailureException("Failed to deploy to container :"
 					+ ex.getMessage());
+		} finally {
+			stopResolving();
+			plan = null;
+			closeLedger();
+			unpublished = null;
+			if (staging != null) {
+				try {
+					staging.cleanup();
+				} catch (IOException ex) {
+					getLog().warn(
+							"Could not remove the staging directory: "
+									+ ex.getMessage());
+				}
+				staging = null;
+			}
 		}
 
 	}
@@ -314,6 +522,9 @@ public class ComponentDeployMojo extends AbstractComponentMojo {
 		
 		if ( locationMap == null ) {
 			if ( appServer != null  ) {
+				locationMap = LOCATION_MAPS.get(appServer);
+			}
+			if ( locationMap == null && appServer != null  ) {
 				try
 				{
 					InputStream in = getClass().getClassLoader().getResourceAsStream(
@@ -322,6 +533,7 @@ public class ComponentDeployMojo extends AbstractComponentMojo {
 					p.load(in);
 					in.close();
 					locationMap = p;
+					LOCATION_MAPS.put(appServer, p);
 				}
 				catch (Exception ex)
 				{
@@ -345,9 +557,93 @@ public class ComponentDeployMojo extends AbstractComponentMojo {
 		return deploySubDir;
 	}
 
-	protected void deployOverlay(Set artifacts, File destination)
+	/**
+	 * Unpacks the dependencies over the destination, later ones replacing the
+	 * files of earlier ones. The central directories of the zip archives are
+	 * merged first, so that each file is written once, by the archive which
+	 * would have written it last, and the files are written in parallel.
+	 * Archives which are not zips are unpacked in turn, after the files merged
+	 * before them.
+	 * 
+	 * @return the files written, or <tt>null</tt> if an archive which is not
+	 *         a zip was unpacked
+	 */
+	protected List<File> deployOverlay(Set artifacts, File destination)
 			throws IOException, MojoFailureException,
 			AbstractArtifactResolutionException, MojoExecutionException, NoSuchArchiverException {
+		OverlayMerge merge = new OverlayMerge(destination);
+		List<File> written = new ArrayList<File>();
+		boolean complete = true;
+		try {
+			for (Iterator iter = artifacts.iterator(); iter.hasNext();) {
+				Artifact artifact = (Artifact) iter.next();
+				if (artifact == null) {
+					getLog().error(
+							"Null Artifact found, sould never happen, in artifacts for project "
+									+ getProjectId());
+					throw new MojoFailureException(
+							"Null Artifact found, sould never happen, in artifacts for project ");
+				}
+				File artifactFile = resolveFile(artifact);
+				if (artifactFile == null) {
+					getLog().error(
+							"Artifact File is null for dependency "
+									+ artifact.getId() + " in " + getProjectId());
+					throw new MojoFailureException(
+							"Artifact File is null for dependency "
+									+ artifact.getId() + " in " + getProjectId());
+				}
+				getLog().debug("Processing: " + artifact.getId());
+				if (!"test".equals(artifact.getScope())) {
+					if (!merge.add(artifactFile, artifact.getId())) {
+						written.addAll(writeOverlay(merge));
+						merge = new OverlayMerge(destination);
+						unpack(artifactFile, destination, artifact.getType(), true);
+						complete = false;
+					}
+				}
+			}
+			written.addAll(writeOverlay(merge));
+		} finally {
+			merge.close();
+		}
+		return complete ? written : null;
+	}
+
+	/**
+	 * Writes the files of a merged overlay, and reports the files which
+	 * more than one archive gave.
+	 * 
+	 * @return the files written
+	 */
+	private List<File> writeOverlay(OverlayMerge merge) throws IOException,
+			MojoExecutionException {
+		try {
+			for (String conflict : merge.getConflicts()) {
+				getLog().warn("Overlay conflict: " + conflict);
+			}
+			if (merge.getUnsafe() > 0) {
+				getLog().warn(
+						"Skipped " + merge.getUnsafe()
+								+ " overlay entries outside of the target");
+			}
+			if (merge.size() > 0) {
+				getLog().info(
+						"Overlaying " + merge.size() + " files, "
+								+ merge.getConflicts().size() + " conflicts, "
+								+ merge.getIdentical() + " identical duplicates");
+				return runStagingTasks(merge.createTasks());
+			}
+			return new ArrayList<File>();
+		} finally {
+			merge.close();
+		}
+	}
+	protected void deployArtifacts(Set artifacts, File destination)
+			throws IOException, MojoFailureException,
+			AbstractArtifactResolutionException, MojoExecutionException {
+		DeployLedger.Unit unit = newUnit();
+		List<File[]> copies = new ArrayList<File[]>();
 		for (Iterator iter = artifacts.iterator(); iter.hasNext();) {
 			Artifact artifact = (Artifact) iter.next();
 			if (artifact == null) {
@@ -357,71 +653,43 @@ public class ComponentDeployMojo extends AbstractComponentMojo {
 				throw new MojoFailureException(
 						"Null Artifact found, sould never happen, in artifacts for project ");
 			}
-			File artifactFile = artifact.getFile();
-			if (artifactFile == null) {
-				artifactResolver.resolve(artifact, remoteRepositories,
-						artifactRepository);
-				artifactFile = artifact.getFile();
+			File artifactFile = getDependencyFile(artifact);
+			String targetFileName = getDefaultFinalName(artifact);
+
+			getLog().debug("Processing: " + targetFileName);
+			File destinationFile = new File(destination, targetFileName);
+			if ("provided".equals(artifact.getScope())
+					|| "test".equals(artifact.getScope())) {
+				getLog().info(
+						"Skipping " + artifactFile + " Scope "
+								+ artifact.getScope());
+
+			} else {
+				copies.add(new File[] { artifactFile, destinationFile });
+				if (unit != null) {
+					unit.addInput(artifact.getId(), artifactFile);
+					unit.addTarget(destinationFile, true);
+				}
 			}
-			if (artifactFile == null) {
-				getLog().error(
-						"Artifact File is null for dependency "
-								+ artifact.getId() + " in " + getProjectId());
-				throw new MojoFailureException(
-						"Artifact File is null for dependency "
-								+ artifact.getId() + " in " + getProjectId());
+		}
+		if (isUpToDate(unit)) {
+			return;
+		}
+		removeOrphans(unit);
+		List<Callable<File>> stagingTasks = new ArrayList<Callable<File>>();
+		for (File[] copy : copies) {
+			getLog().info("Copy " + copy[0] + " to " + copy[1]);
+			if (plan != null) {
+				deployFile(copy[0], copy[1]);
+			} else if (staging != null) {
+				stagingTasks.add(deployFileTask(copy[0], copy[1]));
+			} else {
+				deployFileIfModified(copy[0], copy[1], hardLink);
 			}
-                        getLog().debug("Processing: " + artifact.getId());
-                        if ( !"test".equals(artifact.getScope()) ) {
-                          unpack(artifact.getFile(), destination, artifact.getType(),true);
-                        }
-		}
-
-	}
-        protected void deployArtifacts(Set artifacts, File destination)
-        throws IOException, MojoFailureException,
-        AbstractArtifactResolutionException {
-for (Iterator iter = artifacts.iterator(); iter.hasNext();) {
-        Artifact artifact = (Artifact) iter.next();
-        if (artifact == null) {
-                getLog().error(
-                                "Null Artifact found, sould never happen, in artifacts for project "
-                                                + getProjectId());
-                throw new MojoFailureException(
-                                "Null Artifact found, sould never happen, in artifacts for project ");
-        }
-        File artifactFile = artifact.getFile();
-        if (artifactFile == null) {
-                artifactResolver.resolve(artifact, remoteRepositories,
-                                artifactRepository);
-                artifactFile = artifact.getFile();
-        }
-        if (artifactFile == null) {
-                getLog().error(
-                                "Artifact File is null for dependency "
-                                                + artifact.getId() + " in " + getProjectId());
-                throw new MojoFailureException(
-                                "Artifact File is null for dependency "
-                                                + artifact.getId() + " in " + getProjectId());
-        }
-        String targetFileName = getDefaultFinalName(artifact);
-
-        getLog().debug("Processing: " + targetFileName);
-        File destinationFile = new File(destination, targetFileName);
-        if ("provided".equals(artifact.getScope())
-                        || "test".equals(artifact.getScope())) {
-                getLog().info(
-                                "Skipping " + artifactFile + " Scope "
-                                                + artifact.getScope());
-
-        } else {
-                getLog()
-                                .info("Copy " + artifactFile + " to " + destinationFile);
-                copyFileIfModified(artifact.getFile(), destinationFile);
-        }
-}
-
-}
+		}
+		runStagingTasks(stagingTasks);
+		deployed(unit);
+	}
 
 	private void deployProjectArtifact(File destination, boolean withVersion,
 			boolean deleteStub) throws MojoFailureException, IOException,
@@ -433,8 +701,6 @@ for (Iterator iter = artifacts.iterator(); iter.hasNext();) {
 			fileName = getDeployId() + "-" + project.getVersion()
 					+ "." + project.getPackaging();
 			stubName = getDeployId() + "-" + project.getVersion();
-			// This bails out in an exception if there is a problem.
-			handleDuplicates(destination, fileName);
 		} else {
 			fileName = getDeployId() + "." + project.getPackaging();
 			stubName = getDeployId();
@@ -456,41 +722,246 @@ for (Iterator iter = artifacts.iterator(); iter.hasNext();) {
 					"No Artifact found in project, target was "
 							+ destinationFile);
 		}
-		File artifactFile = artifact.getFile();
-		if (artifactFile == null) {
-			artifactResolver.resolve(artifact, remoteRepositories,
-					artifactRepository);
-			artifactFile = artifact.getFile();
-		}
+		File artifactFile = resolveFile(artifact);
 		if (artifactFile == null) {
 			getLog().error(
 					"Artifact File is null for " + getProjectId()
 							+ ", target was " + destinationFile);
 			throw new MojoFailureException("Artifact File is null ");
 		}
+		DeployLedger.Unit unit = newUnit();
+		if (unit != null) {
+			unit.addInput(artifact.getId(), artifactFile);
+			unit.addTarget(destinationFile, true);
+		}
+		if (isUpToDate(unit)) {
+			return;
+		}
+		// earlier versions deployed by this module are removed first, so
+		// they are not taken for duplicates
+		removeOrphans(unit);
+		if (withVersion) {
+			// This bails out in an exception if there is a problem.
+			long start = getTimings().start();
+			handleDuplicates(destination, fileName, getPendingOrphans(unit));
+			getTimings().record(BuildTimings.DUPLICATES, start);
+		}
 		getLog().info("Copy " + artifactFile + " to " + destinationFile);
 		destinationFile.getParentFile().mkdirs();
 		if (deleteStub && stubFile.exists()) {
 			deleteAll(stubFile);
 		}
 		
-		copyFileIfModified(artifactFile, destinationFile);
+		deployFile(artifactFile, destinationFile);
+		if (withVersion && plan == null && staging == null) {
+			DirectoryIndex.forDirectory(destination).added(fileName);
+		}
+		deployed(unit);
+	}
+
+	/**
+	 * Returns the file of a dependency, which has to be resolved.
+	 */
+	private File getDependencyFile(Artifact artifact)
+			throws MojoFailureException, AbstractArtifactResolutionException {
+		File artifactFile = resolveFile(artifact);
+		if (artifactFile == null) {
+			getLog().error(
+					"Artifact File is null for dependency "
+							+ artifact.getId() + " in " + getProjectId());
+			throw new MojoFailureException(
+					"Artifact File is null for dependency "
+							+ artifact.getId() + " in " + getProjectId());
+		}
+		return artifactFile;
+	}
+
+	/**
+	 * Whether this goal was given on the command line, in which case Maven
+	 * runs it for every module of the reactor, up to the last one.
+	 */
+	private boolean isSessionGoal() {
+		if (session == null || session.getGoals() == null) {
+			return false;
+		}
+		for (Iterator i = session.getGoals().iterator(); i.hasNext();) {
+			String goal = (String) i.next();
+			if (goal.endsWith(":deploy")
+					&& (goal.startsWith("sakai:") || goal.indexOf(":sakai:") != -1)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * When deploying at the end of the reactor the orphans are removed once
+	 * the plan has been executed, with the rest of the deferred units.
+	 */
+	protected void removeOrphans(DeployLedger.Unit unit) throws IOException {
+		if (plan == null) {
+			super.removeOrphans(unit);
+		}
+	}
+
+	/**
+	 * Records a deployed unit in the ledger, once the files are in place:
+	 * when the reactor plan has been executed or the staged deployment has
+	 * been published.
+	 */
+	protected void deployed(DeployLedger.Unit unit) throws IOException {
+		if (unit == null) {
+			return;
+		}
+		if (plan != null) {
+			getLedger().defer(unit);
+		} else if (staging != null) {
+			unpublished.add(unit);
+		} else {
+			super.deployed(unit);
+		}
+	}
+
+	/**
+	 * Deploys everything in the plan of the reactor, on
+	 * <tt>stagingThreads</tt> threads.
+	 */
+	private void executePlan(DeployPlan plan, File deployDir)
+			throws IOException, MojoExecutionException,
+			NoSuchArchiverException {
+		List<File[]> unpacks = plan.takeUnpacks();
+		List<File[]> copies = plan.takeCopies();
+		getLog().info(
+				"Deploying " + unpacks.size() + " component(s) and "
+						+ copies.size() + " file(s) for the reactor, "
+						+ plan.getDuplicates() + " duplicate(s) skipped");
+		this.plan = null;
+		if (stagedDeploy) {
+			staging = new StagedDeployment(deployDir);
+		}
+		List<Callable<File>> tasks = new ArrayList<Callable<File>>();
+		for (final File[] unpack : unpacks) {
+			// looked up here, the container can not be used from the staging
+			// threads
+			final UnArchiver unArchiver = staging != null ? getUnArchiver("war")
+					: null;
+			tasks.add(new Callable<File>() {
+				public File call() throws Exception {
+					deployComponent(unpack[0], unpack[1], unArchiver);
+					return unpack[1];
+				}
+			});
+		}
+		for (File[] copy : copies) {
+			tasks.add(deployFileTask(copy[0], copy[1]));
+		}
+		runStagingTasks(tasks);
+	}
+
+	/**
+	 * Unpacks a component into the components directory, or adds it to the
+	 * plan of the reactor.
+	 */
+	private void deployComponent(File artifactFile, File destinationDir)
+			throws IOException, MojoExecutionException,
+			NoSuchArchiverException {
+		deployComponent(artifactFile, destinationDir,
+				staging != null ? getUnArchiver("war") : null);
+	}
+
+	/**
+	 * Unpacks a component into the components directory, or adds it to the
+	 * plan of the reactor, with the unarchiver used when staging.
+	 */
+	private void deployComponent(File artifactFile, File destinationDir,
+			UnArchiver unArchiver) throws IOException,
+			MojoExecutionException {
+		if (plan != null) {
+			File replaced = plan.addUnpack(artifactFile, destinationDir);
+			if (replaced != null) {
+				getLog().warn(
+						artifactFile + " replaces " + replaced + " in "
+								+ destinationDir);
+			}
+		} else if (staging != null) {
+			File stagedDir = staging.stage(destinationDir);
+			stagedDir.mkdirs();
+			unpack(artifactFile, stagedDir, unArchiver, false);
+		} else {
+			// only rewrite what changed, so the container does not see
+			// the whole component being replaced
+			unpackChanges(artifactFile, destinationDir);
+		}
+	}
+
+	/**
+	 * Copies a file into the deploy directory if it is newer than the
+	 * deployed one. When staging, it is copied into the staging directory and
+	 * moved into place when the deployment is published. When deploying at
+	 * the end of the reactor, it is added to the plan.
+	 */
+	private void deployFile(File source, File destination) throws IOException {
+		if (plan != null) {
+			File replaced = plan.addCopy(source, destination);
+			if (replaced != null) {
+				getLog().warn(
+						source + " replaces " + replaced + " as " + destination);
+			}
+		} else if (staging == null) {
+			deployFileIfModified(source, destination, hardLink);
+		} else if (destination.lastModified() < source.lastModified()) {
+			deployFileIfModified(source, staging.stage(destination), hardLink);
+		}
+	}
+
+	private Callable<File> deployFileTask(final File source,
+			final File destination) {
+		return new Callable<File>() {
+			public File call() throws Exception {
+				deployFile(source, destination);
+				return destination;
+			}
+		};
+	}
+
+	/**
+	 * Returns the orphans of a unit which are only removed once the plan of
+	 * the reactor has been executed.
+	 */
+	private List<File> getPendingOrphans(DeployLedger.Unit unit)
+			throws IOException {
+		if (unit == null || plan == null) {
+			return new ArrayList<File>();
+		}
+		return getLedger().getOrphans(unit);
 	}
 
 	/**
 	 * This checks for duplicates that may cause problems.
 	 * @param destination The folder into which we are deploying.
 	 * @param fileName The name of the file we're deploying
+	 * @param pendingOrphans Files which will be removed anyway.
 	 */
-	private void handleDuplicates(File destination, String fileName)
-			throws IOException, MojoFailureException {
+	private void handleDuplicates(File destination, String fileName,
+			List<File> pendingOrphans) throws IOException,
+			MojoFailureException {
 		// Check there aren't other versions already deployed.
-		List<File> existing = FileUtils.getFiles(destination, getDeployId()+ "*", fileName, true);
+		DirectoryIndex index = DirectoryIndex.forDirectory(destination);
+		List<File> existing = new ArrayList<File>();
+		for (String name : index.getNamesStartingWith(getDeployId())) {
+			File file = new File(destination, name);
+			if (!name.equals(fileName) && !isDefaultExcluded(name)
+					&& file.isFile()
+					&& !pendingOrphans.contains(file.getAbsoluteFile())) {
+				existing.add(file);
+			}
+		}
 		if (!existing.isEmpty()) {
 			if (cleanup) {
 				// Remove the files that may cause a problem.
 				for (File file: existing) {
 					if (file.delete()) {
+						index.removed(file.getName());
 						getLog().info("Removed: "+ file);
 					} else {
 						throw new MojoFailureException("Could not delete: "+ file);
@@ -503,4 +974,14 @@ for (Iterator iter = artifacts.iterator(); iter.hasNext();) {
 		}
 	}
 
+	private static boolean isDefaultExcluded(String name) {
+		for (int i = 0; i < DirectoryScanner.DEFAULTEXCLUDES.length; i++) {
+			if (SelectorUtils.matchPath(DirectoryScanner.DEFAULTEXCLUDES[i],
+					name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 }
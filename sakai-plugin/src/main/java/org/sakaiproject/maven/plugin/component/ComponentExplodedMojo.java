@@ -37,6 +37,7 @@ public class ComponentExplodedMojo
         throws MojoExecutionException, MojoFailureException
     {
         buildExplodedWebapp( getWebappDirectory() );
+        reportTimings();
     }
 
 }
@@ -38,5 +38,6 @@ public class ComponentInPlaceMojo
         getLog().info( "Generating webapp in source directory... " + getWarSourceDirectory() );
 
         buildExplodedWebapp( getWarSourceDirectory() );
+        reportTimings();
     }
 }
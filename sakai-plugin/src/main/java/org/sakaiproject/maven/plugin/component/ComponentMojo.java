@@ -24,13 +24,21 @@ import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
 import org.codehaus.plexus.archiver.ArchiverException;
 import org.codehaus.plexus.archiver.jar.ManifestException;
 import org.codehaus.plexus.archiver.war.WarArchiver;
+import org.codehaus.plexus.util.IOUtil;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.jar.Manifest;
 
 /**
  * Build a war/webapp.
@@ -90,6 +98,23 @@ public class ComponentMojo
      */
     private boolean primaryArtifact;
 
+    /**
+     * Whether to write the war straight from the classes, resources and libraries of the project, instead of
+     * building the exploded webapp first and archiving that.
+     *
+     * @parameter expression="${sakai.war.streaming}" default-value="false"
+     */
+    private boolean streaming;
+
+    /**
+     * The time to give every entry of a streamed war, so that the same sources give the same war on every machine.
+     * Either an ISO 8601 time like <tt>2010-01-01T00:00:00Z</tt> or seconds since the epoch. When it is not set,
+     * entries which did not change since the last build keep their time.
+     *
+     * @parameter expression="${project.build.outputTimestamp}"
+     */
+    private String outputTimestamp;
+
     // ----------------------------------------------------------------------
     // Implementation
     // ----------------------------------------------------------------------
@@ -146,6 +171,7 @@ public class ComponentMojo
         {
             throw new MojoExecutionException( "Error assembling WAR: " + e.getMessage(), e );
         }
+        reportTimings();
     }
 
     /**
@@ -162,23 +188,32 @@ public class ComponentMojo
         throws IOException, ArchiverException, ManifestException, DependencyResolutionRequiredException,
         MojoExecutionException, MojoFailureException
     {
-        buildExplodedWebapp( getWebappDirectory() );
+        if ( streaming )
+        {
+            streamWar( warFile );
+        }
+        else
+        {
+            buildExplodedWebapp( getWebappDirectory() );
 
-        //generate war file
-        getLog().info( "Generating component " + warFile.getAbsolutePath() );
+            //generate war file
+            getLog().info( "Generating component " + warFile.getAbsolutePath() );
 
-        MavenArchiver archiver = new MavenArchiver();
+            MavenArchiver archiver = new MavenArchiver();
 
-        archiver.setArchiver( warArchiver );
+            archiver.setArchiver( warArchiver );
 
-        archiver.setOutputFile( warFile );
+            archiver.setOutputFile( warFile );
 
-        warArchiver.addDirectory( getWebappDirectory(), getIncludes(), getExcludes() );
+            warArchiver.addDirectory( getWebappDirectory(), getIncludes(), getExcludes() );
 
-        warArchiver.setWebxml( new File( getWebappDirectory(), "WEB-INF/web.xml" ) );
+            warArchiver.setWebxml( new File( getWebappDirectory(), "WEB-INF/web.xml" ) );
 
-        // create archive
-        archiver.createArchive(null, getProject(), archive );
+            // create archive
+            long start = getTimings().start();
+            archiver.createArchive( null, getProject(), archive );
+            getTimings().record( BuildTimings.ARCHIVE, start );
+        }
 
         String classifier = this.classifier;
         if ( classifier != null )
@@ -198,4 +233,127 @@ public class ComponentMojo
             }
         }
     }
+
+    /**
+     * Writes the war straight from the files which make up the webapp. Only generated files, like filtered
+     * resources, are written to disk first.
+     *
+     * @param warFile the target war file
+     */
+    private void streamWar( File warFile )
+        throws IOException, ManifestException, DependencyResolutionRequiredException, MojoExecutionException,
+        MojoFailureException
+    {
+        File generatedDirectory = new File( outputDirectory, "war/generated/" + warName );
+        Map<String, File> entries = collectWebapp( getProject(), generatedDirectory );
+
+        getLog().info( "Streaming component " + warFile.getAbsolutePath() );
+
+        String[] includes = normalizePatterns( getIncludes() );
+        String[] excludes = normalizePatterns( getExcludes() );
+
+        Manifest manifest = getManifest();
+        long start = getTimings().start();
+        WarWriter writer = new WarWriter( warFile, archive.isCompress(), getOutputTime() );
+        try
+        {
+            writer.addManifest( manifest );
+            for ( Map.Entry<String, File> entry : entries.entrySet() )
+            {
+                String path = entry.getKey();
+                // the web.xml is always added, like WarArchiver.setWebxml does
+                if ( "META-INF/MANIFEST.MF".equals( path )
+                    || ( !"WEB-INF/web.xml".equals( path ) && !isIncluded( path, includes, excludes ) ) )
+                {
+                    continue;
+                }
+                writer.addFile( path, entry.getValue() );
+            }
+            if ( archive.isAddMavenDescriptor() )
+            {
+                addMavenDescriptor( writer );
+            }
+            writer.close();
+        }
+        finally
+        {
+            writer.abort();
+        }
+        getTimings().recordEntries( BuildTimings.ARCHIVE, start, writer.getEntries() - writer.getReused(),
+                                    writer.getReused() );
+        getLog().info( "Wrote " + writer.getEntries() + " entries, " + writer.getReused()
+            + " of them unchanged since the last build" );
+    }
+
+    /**
+     * Generates the manifest on top of the configured manifest file, if any, as MavenArchiver does.
+     */
+    private Manifest getManifest()
+        throws IOException, ManifestException, DependencyResolutionRequiredException
+    {
+        Manifest generated = new MavenArchiver().getManifest( getProject(), archive );
+        File manifestFile = archive.getManifestFile();
+        if ( manifestFile == null )
+        {
+            return generated;
+        }
+        Manifest manifest = new Manifest();
+        InputStream in = new FileInputStream( manifestFile );
+        try
+        {
+            manifest.read( in );
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        manifest.getMainAttributes().putAll( generated.getMainAttributes() );
+        manifest.getEntries().putAll( generated.getEntries() );
+        return manifest;
+    }
+
+    private void addMavenDescriptor( WarWriter writer )
+        throws IOException
+    {
+        MavenProject project = getProject();
+        String prefix = "META-INF/maven/" + project.getGroupId() + "/" + project.getArtifactId() + "/";
+        File pomFile = project.getFile();
+        if ( pomFile != null && pomFile.isFile() )
+        {
+            writer.addFile( prefix + "pom.xml", pomFile );
+        }
+
+        // without the date Properties.store would add, so that an unchanged war stays the same
+        String properties = "#Generated by Maven\n" + "version=" + project.getVersion() + "\n" + "groupId="
+            + project.getGroupId() + "\n" + "artifactId=" + project.getArtifactId() + "\n";
+        writer.addBytes( prefix + "pom.properties", properties.getBytes( "ISO-8859-1" ) );
+    }
+
+    /**
+     * @return the time in <tt>outputTimestamp</tt>, or <code>-1</code> if there is none
+     */
+    private long getOutputTime()
+        throws MojoExecutionException
+    {
+        // a single character disables it, as for the other plugins
+        if ( outputTimestamp == null || outputTimestamp.trim().length() < 2 )
+        {
+            return -1;
+        }
+        String value = outputTimestamp.trim();
+        try
+        {
+            if ( value.matches( "\\d+" ) )
+            {
+                return Long.parseLong( value ) * 1000;
+            }
+            // SimpleDateFormat only understands offsets like +0100
+            value = value.replaceFirst( "Z$", "+0000" ).replaceFirst( "([+-]\\d\\d):(\\d\\d)$", "$1$2" );
+            return new SimpleDateFormat( "yyyy-MM-dd'T'HH:mm:ssZ" ).parse( value ).getTime();
+        }
+        catch ( ParseException e )
+        {
+            throw new MojoExecutionException( "Invalid outputTimestamp: " + outputTimestamp, e );
+        }
+    }
 }
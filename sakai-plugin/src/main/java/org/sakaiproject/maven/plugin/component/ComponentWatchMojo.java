@@ -0,0 +1,90 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+
+/**
+ * Builds the exploded webapp and then keeps watching its sources, pushing the
+ * files which change into it until the build is stopped. The target may be a
+ * deployed component, so that edits reach the running server without a
+ * redeploy.
+ *
+ * @goal watch
+ * @requiresDependencyResolution runtime
+ */
+public class ComponentWatchMojo
+    extends AbstractComponentMojo
+{
+    /**
+     * The directory the webapp is built in and changes are pushed to, the
+     * webapp directory when not given.
+     *
+     * @parameter expression="${sakai.watch.target}"
+     */
+    private File watchTarget;
+
+    /**
+     * How long to wait between looks at the sources, in milliseconds.
+     *
+     * @parameter expression="${sakai.watch.interval}" default-value="500"
+     */
+    private long watchInterval;
+
+    public void execute()
+        throws MojoExecutionException, MojoFailureException
+    {
+        File target = watchTarget != null ? watchTarget : getWebappDirectory();
+        buildExplodedWebapp( target );
+        startWatching( target );
+        getLog().info( "Watching for changes to push to " + target + ", stop the build to finish" );
+        try
+        {
+            while ( true )
+            {
+                Thread.sleep( watchInterval );
+                long start = System.currentTimeMillis();
+                int pushed = pushChanges();
+                if ( pushed > 0 )
+                {
+                    getLog().info( "Pushed " + pushed + " change(s) in "
+                        + ( System.currentTimeMillis() - start ) + " ms" );
+                }
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Could not push changes to " + target, e );
+        }
+        finally
+        {
+            stopWatching();
+        }
+    }
+}
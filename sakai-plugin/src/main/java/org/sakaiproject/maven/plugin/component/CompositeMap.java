@@ -21,20 +21,34 @@ package org.sakaiproject.maven.plugin.component;
 
 import java.util.AbstractMap;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * A map whose values come from the dominant map, or from the recessive one where the dominant has none. Lookups are
+ * remembered, including the keys neither map has, so both maps are expected not to change while this one is in use.
+ *
  * @version $Id$
  * @todo merge with resources/assembly plugin
  */
 public class CompositeMap
     extends AbstractMap
 {
+    /**
+     * Stands for a key which has no value, as the values map cannot hold <code>null</code>.
+     */
+    private static final Object MISSING = new Object();
+
     private Map recessive;
 
     private Map dominant;
 
+    private final ConcurrentMap<Object, Object> values = new ConcurrentHashMap<Object, Object>();
+
     public CompositeMap( Map dominant, Map recessive )
     {
         this.dominant = Collections.unmodifiableMap( dominant );
@@ -42,7 +56,31 @@ public class CompositeMap
         this.recessive = Collections.unmodifiableMap( recessive );
     }
 
-    public synchronized Object get( Object key )
+    public Object get( Object key )
+    {
+        if ( key == null )
+        {
+            return lookup( key );
+        }
+
+        Object value = values.get( key );
+
+        if ( value == null )
+        {
+            value = lookup( key );
+
+            values.putIfAbsent( key, value == null ? MISSING : value );
+        }
+
+        return value == MISSING ? null : value;
+    }
+
+    public boolean containsKey( Object key )
+    {
+        return get( key ) != null;
+    }
+
+    private Object lookup( Object key )
     {
         Object value = dominant.get( key );
 
@@ -54,8 +92,35 @@ public class CompositeMap
         return value;
     }
 
+    /**
+     * Enumerates both maps. When the dominant map cannot be enumerated, as for {@link ReflectionProperties}, the keys
+     * of the recessive map are still overridden by the values the dominant map has for them.
+     *
+     * @throws UnsupportedOperationException if the recessive map cannot be enumerated
+     */
     public Set entrySet()
     {
-        throw new UnsupportedOperationException( "Cannot enumerate properties in a composite map" );
+        Map merged = new HashMap( recessive );
+
+        try
+        {
+            merged.putAll( dominant );
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            for ( Iterator i = recessive.keySet().iterator(); i.hasNext(); )
+            {
+                Object key = i.next();
+
+                Object value = get( key );
+
+                if ( value != null )
+                {
+                    merged.put( key, value );
+                }
+            }
+        }
+
+        return Collections.unmodifiableMap( merged ).entrySet();
     }
 }
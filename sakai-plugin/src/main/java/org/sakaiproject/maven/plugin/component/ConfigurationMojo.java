@@ -3,16 +3,30 @@ package org.sakaiproject.maven.plugin.component;
 
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.MavenProjectHelper;
-import org.codehaus.plexus.archiver.zip.ZipArchiver;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.IOUtil;
 
 /**
  * Package Configuration as a Zip for later deployment.
+ * <p/>
+ * The zip carries a content manifest, listing the CRC and size of every
+ * file, as its {@link #MANIFEST_ENTRY} entry. When the manifest of the
+ * configuration directory is the same as the one in the zip built last
+ * time, the zip is left alone.
  *
  * @goal configuration
  * @phase package
@@ -22,6 +36,13 @@ import org.codehaus.plexus.archiver.zip.ZipArchiver;
 public class ConfigurationMojo
     extends AbstractMojo
 {
+    /**
+     * The entry holding the content manifest of the configuration.
+     */
+    public static final String MANIFEST_ENTRY = "META-INF/sakai-configuration.manifest";
+
+    private static final String MANIFEST_HEADER = "sakai-configuration 1";
+
 	/**
 	 * The maven project.
 	 * 
@@ -31,12 +52,6 @@ public class ConfigurationMojo
 	 */
 	protected MavenProject project;
 
-    /**
-     * The Zip archiver.
-     * @component role="org.codehaus.plexus.archiver.Archiver" role-hint="zip"
-     */
-    private ZipArchiver zipArchiver;
-
     /**
      * Directory containing the build files.
      * @parameter expression="${project.build.directory}/configuration"
@@ -77,6 +92,29 @@ public class ConfigurationMojo
      */
 	private String classifier;
 
+    /**
+     * The projects in the reactor, whose timings the archive is added to.
+     *
+     * @parameter expression="${reactorProjects}"
+     * @readonly
+     */
+    private List reactorProjects;
+
+    /**
+     * Whether to log where the time of the sakai goals of the reactor went, once the last module is done.
+     *
+     * @parameter expression="${sakai.timings}" default-value="false"
+     */
+    private boolean timings;
+
+    /**
+     * A file to write where the time of the sakai goals of the reactor went to, as JSON, once the last module is
+     * done.
+     *
+     * @parameter expression="${sakai.timings.file}"
+     */
+    private File timingsFile;
+
     protected static File getConfigurationFile( File basedir, String finalName, String classifier )
     {
         if ( classifier == null )
@@ -98,10 +136,35 @@ public class ConfigurationMojo
            	File outputDirectoryFile = new File(outputDirectory);
             File buildDirectoryFile = new File(configurationDirectory);
         	File outputFile = getConfigurationFile( outputDirectoryFile, configurationName, classifier);
-            zipArchiver.addDirectory( buildDirectoryFile, new String[]{"**/**"}, new String[]{"**/"+outputFile.getName()} );
-            zipArchiver.setDestFile( outputFile );
-            zipArchiver.createArchive();
-            
+
+            long start = System.nanoTime();
+            String[] files = getConfigurationFiles( buildDirectoryFile, outputFile.getName() );
+            String manifest = getContentManifest( buildDirectoryFile, files );
+            if ( manifest.equals( readContentManifest( outputFile ) ) )
+            {
+                getLog().info( "Configuration unchanged, keeping " + outputFile );
+                recordArchive( start, 0, files.length );
+            }
+            else
+            {
+                WarWriter writer = new WarWriter( outputFile, true, -1 );
+                try
+                {
+                    writer.addBytes( MANIFEST_ENTRY, manifest.getBytes( "UTF-8" ) );
+                    for ( int i = 0; i < files.length; i++ )
+                    {
+                        writer.addFile( files[i].replace( File.separatorChar, '/' ),
+                                        new File( buildDirectoryFile, files[i] ) );
+                    }
+                    writer.close();
+                }
+                finally
+                {
+                    writer.abort();
+                }
+                recordArchive( start, writer.getEntries() - writer.getReused(), writer.getReused() );
+            }
+
             String classifier = this.classifier;
             if ( classifier != null )
             {
@@ -124,8 +187,120 @@ public class ConfigurationMojo
         } catch( Exception e ) {
             throw new MojoExecutionException( "Could not zip configuration settings", e );
         }
+        if ( reactorProjects != null && !reactorProjects.isEmpty() )
+        {
+            BuildTimings.forReactor( reactorProjects ).reportFrom( getProject(), reactorProjects, getLog(), timings,
+                                                                   timingsFile );
+        }
     }
     
+    /**
+     * Adds the archive to the timings of the reactor.
+     */
+    private void recordArchive( long start, int written, int skipped )
+    {
+        if ( reactorProjects != null && !reactorProjects.isEmpty() )
+        {
+            BuildTimings.forReactor( reactorProjects ).recordEntries( BuildTimings.ARCHIVE, start, written, skipped );
+        }
+    }
+
+    /**
+     * Lists the files to package, in a stable order. The zip being built and
+     * the files written next to it are left out, in case it is built inside
+     * the configuration directory.
+     */
+    private static String[] getConfigurationFiles( File directory, String zipName )
+    {
+        if ( !directory.isDirectory() )
+        {
+            return new String[0];
+        }
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir( directory );
+        scanner.setIncludes( new String[]{ "**/**" } );
+        scanner.setExcludes( new String[]{ "**/" + zipName, "**/" + zipName + ".*" } );
+        scanner.addDefaultExcludes();
+        scanner.scan();
+        String[] files = scanner.getIncludedFiles();
+        Arrays.sort( files );
+        return files;
+    }
+
+    /**
+     * Builds the content manifest of a set of files: one line per file with
+     * its CRC, its size and its path in the zip.
+     */
+    protected static String getContentManifest( File directory, String[] files )
+        throws IOException
+    {
+        StringBuilder manifest = new StringBuilder( MANIFEST_HEADER ).append( '\n' );
+        byte[] buffer = new byte[64 * 1024];
+        for ( int i = 0; i < files.length; i++ )
+        {
+            File file = new File( directory, files[i] );
+            CRC32 crc = new CRC32();
+            InputStream in = new FileInputStream( file );
+            try
+            {
+                int n;
+                while ( ( n = in.read( buffer ) ) != -1 )
+                {
+                    crc.update( buffer, 0, n );
+                }
+            }
+            finally
+            {
+                IOUtil.close( in );
+            }
+            manifest.append( Long.toHexString( crc.getValue() ) ).append( '\t' ).append( file.length() )
+                .append( '\t' ).append( files[i].replace( File.separatorChar, '/' ) ).append( '\n' );
+        }
+        return manifest.toString();
+    }
+
+    /**
+     * @return the content manifest held in a zip, or <code>null</code> if
+     *         there is no zip or it has no manifest
+     */
+    protected static String readContentManifest( File zip )
+    {
+        if ( !zip.isFile() )
+        {
+            return null;
+        }
+        try
+        {
+            ZipFile zipFile = new ZipFile( zip );
+            try
+            {
+                ZipEntry entry = zipFile.getEntry( MANIFEST_ENTRY );
+                if ( entry == null )
+                {
+                    return null;
+                }
+                InputStream in = zipFile.getInputStream( entry );
+                try
+                {
+                    return IOUtil.toString( in, "UTF-8" );
+                }
+                finally
+                {
+                    IOUtil.close( in );
+                }
+            }
+            finally
+            {
+                zipFile.close();
+            }
+        }
+        catch ( IOException e )
+        {
+            // a zip which cannot be read is built again
+            return null;
+        }
+    }
+
 	public MavenProject getProject() {
 		return project;
 	}
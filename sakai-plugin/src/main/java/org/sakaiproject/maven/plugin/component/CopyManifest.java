@@ -0,0 +1,341 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records every file copied into a webapp together with the size, timestamp and digest of its source, so that a
+ * rebuild only copies the files whose content actually changed and can remove the files it copied last time which
+ * are no longer part of the webapp.
+ * <p/>
+ * A file is copied when its source is not recorded and the webapp does not already hold the same content, when the
+ * content of the source differs from the recorded digest, or when the copy in the webapp was changed by someone
+ * else. Touching a source only costs a digest of the source, and a source with an older timestamp than the copy is
+ * still copied if its content changed.
+ *
+ * @version $Id$
+ */
+public class CopyManifest
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File manifestFile;
+
+    private final Map<String, Entry> previous = new ConcurrentHashMap<String, Entry>();
+
+    private final Map<String, Entry> current = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * Opens the manifest stored in the given file. A missing or unreadable manifest is treated as empty, in which
+     * case everything is copied again.
+     *
+     * @param manifestFile the file holding the manifest
+     */
+    public CopyManifest( File manifestFile )
+    {
+        this.manifestFile = manifestFile;
+        load();
+    }
+
+    /**
+     * Copies a file unless the destination already holds the same content as the source.
+     *
+     * @param source      the file to copy
+     * @param destination the file to copy to
+     * @return <code>true</code> if the file was copied
+     * @throws IOException if the file could not be copied
+     */
+    public boolean copy( File source, File destination )
+        throws IOException
+    {
+        String key = destination.getPath();
+        String sourcePath = source.getPath();
+        long size = source.length();
+        long lastModified = source.lastModified();
+
+        // the source is read at most once
+        String digest = null;
+        Entry entry = previous.get( key );
+        if ( entry == null && destination.isFile() && destination.length() == size )
+        {
+            // copied before there was a manifest: adopt the copy if it holds the same content
+            digest = digest( source );
+            if ( digest.equals( digest( destination ) ) )
+            {
+                current.put( key, new Entry( sourcePath, size, lastModified, destination.lastModified(), digest ) );
+                return false;
+            }
+        }
+        if ( entry != null && entry.size == size && entry.isIntact( destination ) )
+        {
+            if ( entry.sourceLastModified == lastModified && entry.source.equals( sourcePath ) )
+            {
+                current.put( key, entry );
+                return false;
+            }
+            digest = digest( source );
+            if ( digest.equals( entry.digest ) )
+            {
+                // touched but not changed
+                current.put( key, new Entry( sourcePath, size, lastModified, entry.destinationLastModified, digest ) );
+                return false;
+            }
+        }
+
+        if ( digest == null )
+        {
+            digest = digest( source );
+        }
+        FileTransfer.copy( source.getCanonicalFile(), destination );
+        destination.setLastModified( lastModified );
+        current.put( key, new Entry( sourcePath, size, lastModified, destination.lastModified(), digest ) );
+        return true;
+    }
+
+    /**
+     * Returns the files which were copied by the previous build, are still as that build left them, but have not
+     * been copied by this build.
+     *
+     * @return the stale files
+     */
+    public List<File> getStale()
+    {
+        List<File> stale = new ArrayList<File>();
+        for ( Iterator<Map.Entry<String, Entry>> i = previous.entrySet().iterator(); i.hasNext(); )
+        {
+            Map.Entry<String, Entry> e = i.next();
+            if ( current.containsKey( e.getKey() ) )
+            {
+                continue;
+            }
+            File file = new File( e.getKey() );
+            if ( e.getValue().isIntact( file ) )
+            {
+                stale.add( file );
+            }
+        }
+        return stale;
+    }
+
+    /**
+     * Deletes the files returned by {@link #getStale()}.
+     *
+     * @return the files which were deleted
+     */
+    public List<File> removeStale()
+    {
+        List<File> removed = new ArrayList<File>();
+        for ( File file : getStale() )
+        {
+            if ( file.delete() )
+            {
+                removed.add( file );
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Writes the files copied by this build to the manifest, replacing the previous build.
+     *
+     * @throws IOException if the manifest could not be written
+     */
+    public void store()
+        throws IOException
+    {
+        Properties properties = new Properties();
+        for ( Map.Entry<String, Entry> e : current.entrySet() )
+        {
+            properties.setProperty( e.getKey(), e.getValue().toString() );
+        }
+        manifestFile.getParentFile().mkdirs();
+        OutputStream out = new FileOutputStream( manifestFile );
+        try
+        {
+            properties.store( out, "Files copied into the webapp" );
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+        previous.clear();
+        previous.putAll( current );
+        current.clear();
+    }
+
+    private void load()
+    {
+        if ( !manifestFile.isFile() )
+        {
+            return;
+        }
+        Properties properties = new Properties();
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( manifestFile );
+            properties.load( in );
+        }
+        catch ( IOException e )
+        {
+            return;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        for ( Map.Entry<Object, Object> e : properties.entrySet() )
+        {
+            Entry entry = Entry.parse( (String) e.getValue() );
+            if ( entry != null )
+            {
+                previous.put( (String) e.getKey(), entry );
+            }
+        }
+    }
+
+    /**
+     * Returns the hex encoded MD5 digest of a file.
+     *
+     * @param file the file
+     * @return the digest
+     * @throws IOException if the file could not be read
+     */
+    public static String digest( File file )
+        throws IOException
+    {
+        MessageDigest digest = newDigest();
+        InputStream in = new FileInputStream( file );
+        try
+        {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ( ( n = in.read( buffer ) ) != -1 )
+            {
+                digest.update( buffer, 0, n );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        return toHex( digest.digest() );
+    }
+
+    private static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance( "MD5" );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( "MD5 is a mandatory MessageDigest algorithm" );
+        }
+    }
+
+    private static String toHex( byte[] bytes )
+    {
+        StringBuilder buf = new StringBuilder( bytes.length * 2 );
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            String hex = Integer.toHexString( bytes[i] & 0xff );
+            if ( hex.length() < 2 )
+            {
+                buf.append( '0' );
+            }
+            buf.append( hex );
+        }
+        return buf.toString();
+    }
+
+    /**
+     * A copied file: the source and what it looked like, and the timestamp of the copy.
+     */
+    private static final class Entry
+    {
+        private final String source;
+
+        private final long size;
+
+        private final long sourceLastModified;
+
+        private final long destinationLastModified;
+
+        private final String digest;
+
+        private Entry( String source, long size, long sourceLastModified, long destinationLastModified,
+                       String digest )
+        {
+            this.source = source;
+            this.size = size;
+            this.sourceLastModified = sourceLastModified;
+            this.destinationLastModified = destinationLastModified;
+            this.digest = digest;
+        }
+
+        /**
+         * @return <code>true</code> if the copy is still as it was left
+         */
+        private boolean isIntact( File destination )
+        {
+            return destination.lastModified() == destinationLastModified && destination.length() == size;
+        }
+
+        private static Entry parse( String value )
+        {
+            String[] fields = value.split( ",", 5 );
+            if ( fields.length != 5 )
+            {
+                return null;
+            }
+            try
+            {
+                return new Entry( fields[4], Long.parseLong( fields[0] ), Long.parseLong( fields[1] ),
+                                  Long.parseLong( fields[2] ), fields[3] );
+            }
+            catch ( NumberFormatException e )
+            {
+                return null;
+            }
+        }
+
+        public String toString()
+        {
+            return size + "," + sourceLastModified + "," + destinationLastModified + "," + digest + "," + source;
+        }
+    }
+}
@@ -0,0 +1,641 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A record, kept in the deploy directory, of what each module deployed last time: the artifacts it deployed with
+ * their checksums, and the files and directories it deployed them to. A module whose artifacts did not change and
+ * whose files are still in place does not need to be deployed again, and the files a module deployed last time but
+ * not this time can be removed.
+ * <p/>
+ * The checksum of an artifact is taken from the ledger, without reading the artifact, when its path, size and
+ * timestamp are the ones recorded. The ledger is shared by all the modules which deploy into the same directory, and
+ * is read again when somebody else wrote it.
+ *
+ * @version $Id$
+ */
+public final class DeployLedger
+{
+    /**
+     * The name of the ledger in the deploy directory.
+     */
+    public static final String LEDGER_NAME = ".sakai-deploy-ledger";
+
+    private static final String HEADER = "deploy-ledger 2";
+
+    private static final String ENCODING = "UTF-8";
+
+    private static final Map<File, DeployLedger> LEDGERS = new HashMap<File, DeployLedger>();
+
+    private final File directory;
+
+    private final File file;
+
+    private long loaded = -1;
+
+    private final SortedMap<String, Unit> units = new TreeMap<String, Unit>();
+
+    private final Map<String, Input> sources = new HashMap<String, Input>();
+
+    private final List<Unit> deferred = new ArrayList<Unit>();
+
+    private DeployLedger( File directory )
+    {
+        this.directory = directory;
+        this.file = new File( directory, LEDGER_NAME );
+    }
+
+    /**
+     * Returns the ledger of a deploy directory.
+     *
+     * @param directory the deploy directory
+     * @return the ledger of the directory
+     */
+    public static synchronized DeployLedger forDirectory( File directory )
+    {
+        File key = directory.getAbsoluteFile();
+        DeployLedger ledger = LEDGERS.get( key );
+        if ( ledger == null )
+        {
+            ledger = new DeployLedger( key );
+            LEDGERS.put( key, ledger );
+        }
+        return ledger;
+    }
+
+    /**
+     * Starts describing what a module deploys.
+     *
+     * @param id the module, which should not depend on its version so that the files of an earlier version are
+     *           found
+     * @return an empty unit
+     */
+    public Unit newUnit( String id )
+    {
+        return new Unit( id );
+    }
+
+    /**
+     * Checks whether a unit is deployed already: the same artifacts were deployed by the module last time, to the
+     * same files if the unit gives them, and those files are still there as they were left.
+     *
+     * @param unit the unit
+     * @return whether the unit is up to date
+     * @throws IOException if the ledger cannot be read
+     */
+    public synchronized boolean isUpToDate( Unit unit )
+        throws IOException
+    {
+        refresh();
+        Unit previous = units.get( unit.id );
+        if ( previous == null || !previous.inputs.equals( unit.inputs ) )
+        {
+            return false;
+        }
+        if ( !unit.targets.isEmpty() && !previous.targets.keySet().equals( unit.targets.keySet() ) )
+        {
+            return false;
+        }
+        for ( Map.Entry<String, Target> target : previous.targets.entrySet() )
+        {
+            if ( !target.getValue().isInPlace( new File( directory, target.getKey() ) ) )
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the files the module of a unit deployed last time which are not part of the unit and which no other
+     * module deployed.
+     *
+     * @param unit the unit
+     * @return the files and directories removed
+     * @throws IOException if the ledger cannot be read or a file cannot be removed
+     */
+    public synchronized List<File> removeOrphans( Unit unit )
+        throws IOException
+    {
+        List<File> removed = getOrphans( unit );
+        for ( File orphan : removed )
+        {
+            FileUtils.forceDelete( orphan );
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the files {@link #removeOrphans(Unit)} would remove, without removing them.
+     *
+     * @param unit the unit
+     * @return the files and directories which are orphans of the unit
+     * @throws IOException if the ledger cannot be read
+     */
+    public synchronized List<File> getOrphans( Unit unit )
+        throws IOException
+    {
+        refresh();
+        List<File> orphans = new ArrayList<File>();
+        Unit previous = units.get( unit.id );
+        if ( previous == null )
+        {
+            return orphans;
+        }
+        for ( String path : previous.targets.keySet() )
+        {
+            if ( unit.targets.containsKey( path ) || encloses( unit, path ) || isClaimed( path, unit.id )
+                || !isSafe( path ) )
+            {
+                continue;
+            }
+            File orphan = new File( directory, path );
+            if ( orphan.exists() )
+            {
+                orphans.add( orphan );
+            }
+        }
+        return orphans;
+    }
+
+    /**
+     * Records a unit once it has been deployed, taking the size of its files as they are now.
+     *
+     * @param unit the unit
+     * @throws IOException if the ledger cannot be written
+     */
+    public synchronized void record( Unit unit )
+        throws IOException
+    {
+        refresh();
+        put( unit );
+        save();
+    }
+
+    /**
+     * Keeps a unit to be recorded by {@link #recordDeferred()}, when it is deployed with the rest of the reactor.
+     *
+     * @param unit the unit
+     */
+    public synchronized void defer( Unit unit )
+    {
+        deferred.add( unit );
+    }
+
+    /**
+     * Removes the orphans of the units kept by {@link #defer(Unit)}, once they have been deployed with the rest of
+     * the reactor, so that nothing is removed before its replacement is in place. This has to be done before
+     * {@link #recordDeferred()}.
+     *
+     * @return the files and directories removed
+     * @throws IOException if the ledger cannot be read or a file cannot be removed
+     */
+    public synchronized List<File> removeDeferredOrphans()
+        throws IOException
+    {
+        List<File> removed = new ArrayList<File>();
+        for ( Unit unit : deferred )
+        {
+            removed.addAll( removeOrphans( unit ) );
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the files {@link #removeDeferredOrphans()} would remove, without removing them.
+     *
+     * @return the files and directories which are orphans of the deferred units
+     * @throws IOException if the ledger cannot be read
+     */
+    public synchronized List<File> getDeferredOrphans()
+        throws IOException
+    {
+        List<File> orphans = new ArrayList<File>();
+        for ( Unit unit : deferred )
+        {
+            orphans.addAll( getOrphans( unit ) );
+        }
+        return orphans;
+    }
+
+    /**
+     * Records the units kept by {@link #defer(Unit)}.
+     *
+     * @throws IOException if the ledger cannot be written
+     */
+    public synchronized void recordDeferred()
+        throws IOException
+    {
+        if ( deferred.isEmpty() )
+        {
+            return;
+        }
+        refresh();
+        for ( Unit unit : deferred )
+        {
+            put( unit );
+        }
+        deferred.clear();
+        save();
+    }
+
+    private void put( Unit unit )
+    {
+        Unit recorded = new Unit( unit.id );
+        recorded.inputs.addAll( unit.inputs );
+        for ( Map.Entry<String, Target> target : unit.targets.entrySet() )
+        {
+            File deployed = new File( directory, target.getKey() );
+            recorded.targets.put( target.getKey(), target.getValue() == Target.CHECK && deployed.isFile()
+                ? new Target( deployed.length(), deployed.lastModified() ) : Target.EXISTS );
+        }
+        units.put( unit.id, recorded );
+        indexSources();
+    }
+
+    /**
+     * Whether a path is a directory holding targets of the unit, like a component recorded as a whole before its
+     * files were recorded one by one.
+     */
+    private static boolean encloses( Unit unit, String path )
+    {
+        SortedMap<String, Target> below = unit.targets.tailMap( path + "/" );
+        return !below.isEmpty() && below.firstKey().startsWith( path + "/" );
+    }
+
+    private boolean isClaimed( String path, String except )
+    {
+        for ( Unit other : units.values() )
+        {
+            if ( !other.id.equals( except ) && other.targets.containsKey( path ) )
+            {
+                return true;
+            }
+        }
+        for ( Unit other : deferred )
+        {
+            if ( !other.id.equals( except ) && other.targets.containsKey( path ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Only paths below the deploy directory are ever removed.
+     */
+    private static boolean isSafe( String path )
+    {
+        return path.length() > 0 && !path.startsWith( "/" ) && !path.equals( ".." ) && !path.startsWith( "../" )
+            && path.indexOf( "/../" ) < 0 && !path.endsWith( "/.." );
+    }
+
+    private synchronized String knownChecksum( File source )
+        throws IOException
+    {
+        refresh();
+        Input input = sources.get( source.getAbsolutePath() );
+        if ( input != null && input.length == source.length() && input.time == source.lastModified() )
+        {
+            return input.checksum;
+        }
+        return null;
+    }
+
+    private String relativePath( File target )
+    {
+        String root = directory.getPath() + File.separator;
+        String path = target.getAbsolutePath();
+        if ( !path.startsWith( root ) )
+        {
+            return null;
+        }
+        return path.substring( root.length() ).replace( File.separatorChar, '/' );
+    }
+
+    private void indexSources()
+    {
+        sources.clear();
+        for ( Unit unit : units.values() )
+        {
+            for ( Input input : unit.inputs )
+            {
+                sources.put( input.path, input );
+            }
+        }
+    }
+
+    private void refresh()
+        throws IOException
+    {
+        long current = file.lastModified();
+        if ( current == loaded )
+        {
+            return;
+        }
+        units.clear();
+        if ( current != 0 )
+        {
+            read();
+        }
+        indexSources();
+        loaded = current;
+    }
+
+    private void read()
+        throws IOException
+    {
+        BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( file ), ENCODING ) );
+        try
+        {
+            if ( !HEADER.equals( reader.readLine() ) )
+            {
+                // a ledger this version does not know, everything will be deployed again
+                return;
+            }
+            Unit unit = null;
+            String line;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                String[] fields = line.split( "\t" );
+                if ( fields.length == 2 && "unit".equals( fields[0] ) )
+                {
+                    unit = new Unit( fields[1] );
+                    units.put( unit.id, unit );
+                }
+                else if ( unit != null && fields.length == 6 && "input".equals( fields[0] ) )
+                {
+                    unit.inputs.add( new Input( fields[1], fields[2], Long.parseLong( fields[3] ),
+                                                Long.parseLong( fields[4] ), fields[5] ) );
+                }
+                else if ( unit != null && fields.length == 4 && "target".equals( fields[0] ) )
+                {
+                    long length = Long.parseLong( fields[1] );
+                    unit.targets.put( fields[3], length < 0 ? Target.EXISTS
+                        : new Target( length, Long.parseLong( fields[2] ) ) );
+                }
+                else
+                {
+                    units.clear();
+                    return;
+                }
+            }
+        }
+        catch ( NumberFormatException e )
+        {
+            units.clear();
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+    }
+
+    private void save()
+        throws IOException
+    {
+        directory.mkdirs();
+        File temp = new File( directory, LEDGER_NAME + ".tmp" );
+        Writer writer = new OutputStreamWriter( new FileOutputStream( temp ), ENCODING );
+        try
+        {
+            writer.write( HEADER + "\n" );
+            for ( Unit unit : units.values() )
+            {
+                writer.write( "unit\t" + unit.id + "\n" );
+                for ( Input input : unit.inputs )
+                {
+                    writer.write( "input\t" + input.gav + "\t" + input.checksum + "\t" + input.length + "\t"
+                        + input.time + "\t" + input.path + "\n" );
+                }
+                for ( Map.Entry<String, Target> target : unit.targets.entrySet() )
+                {
+                    writer.write( "target\t" + target.getValue().length + "\t" + target.getValue().time + "\t"
+                        + target.getKey() + "\n" );
+                }
+            }
+        }
+        finally
+        {
+            IOUtil.close( writer );
+        }
+        if ( !temp.renameTo( file ) )
+        {
+            // renaming over an existing file fails on some platforms
+            if ( !file.delete() || !temp.renameTo( file ) )
+            {
+                throw new IOException( "Could not move " + temp + " to " + file );
+            }
+        }
+        loaded = file.lastModified();
+    }
+
+    /**
+     * What a module deploys: the artifacts, and the files and directories they are deployed to.
+     */
+    public final class Unit
+    {
+        private final String id;
+
+        private final SortedSet<Input> inputs = new TreeSet<Input>();
+
+        private final SortedMap<String, Target> targets = new TreeMap<String, Target>();
+
+        private Unit( String id )
+        {
+            this.id = id;
+        }
+
+        /**
+         * Adds a deployed artifact.
+         *
+         * @param gav    the id of the artifact
+         * @param source the file of the artifact
+         * @throws IOException if the checksum of the file cannot be computed
+         */
+        public void addInput( String gav, File source )
+            throws IOException
+        {
+            source = source.getAbsoluteFile();
+            String checksum = knownChecksum( source );
+            if ( checksum == null )
+            {
+                checksum = CopyManifest.digest( source );
+            }
+            inputs.add( new Input( gav, checksum, source.length(), source.lastModified(), source.getPath() ) );
+        }
+
+        /**
+         * Adds a file or directory the artifacts are deployed to. Files outside of the deploy directory are not
+         * recorded.
+         *
+         * @param target    the file or directory
+         * @param checkFile whether a file whose size or timestamp changed since it was deployed needs to be deployed
+         *                  again, rather than only one which is missing
+         */
+        public void addTarget( File target, boolean checkFile )
+        {
+            String path = relativePath( target );
+            if ( path != null )
+            {
+                targets.put( path, checkFile ? Target.CHECK : Target.EXISTS );
+            }
+        }
+
+        /**
+         * Adds the files of an archive unpacked into a directory, leaving the directories out. Each file is checked
+         * like the other files, by its size and timestamp.
+         *
+         * @param archive   the archive
+         * @param directory the directory it is unpacked into
+         * @param except    an entry which is not unpacked, or <code>null</code>
+         * @throws IOException if the archive cannot be read
+         */
+        public void addTargets( File archive, File directory, String except )
+            throws IOException
+        {
+            ZipFile zip = new ZipFile( archive );
+            try
+            {
+                for ( Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements(); )
+                {
+                    ZipEntry entry = e.nextElement();
+                    if ( !entry.isDirectory() && !entry.getName().equals( except ) )
+                    {
+                        addTarget( new File( directory, entry.getName() ), true );
+                    }
+                }
+            }
+            finally
+            {
+                zip.close();
+            }
+        }
+
+        /**
+         * @return the module
+         */
+        public String getId()
+        {
+            return id;
+        }
+    }
+
+    /**
+     * A file or directory an artifact was deployed to, with the size and timestamp of the file as it was left.
+     */
+    private static final class Target
+    {
+        /**
+         * A target of which only the existence is checked, like a directory.
+         */
+        private static final Target EXISTS = new Target( -1, -1 );
+
+        /**
+         * A target of a unit being deployed, whose size and timestamp are taken when it is recorded.
+         */
+        private static final Target CHECK = new Target( -1, -1 );
+
+        private final long length;
+
+        private final long time;
+
+        Target( long length, long time )
+        {
+            this.length = length;
+            this.time = time;
+        }
+
+        boolean isInPlace( File deployed )
+        {
+            if ( length < 0 )
+            {
+                return deployed.exists();
+            }
+            return deployed.isFile() && deployed.length() == length && deployed.lastModified() == time;
+        }
+    }
+
+    /**
+     * A deployed artifact. Two inputs are the same when they have the same id and checksum, wherever the file is.
+     */
+    private static final class Input
+        implements Comparable<Input>
+    {
+        private final String gav;
+
+        private final String checksum;
+
+        private final long length;
+
+        private final long time;
+
+        private final String path;
+
+        Input( String gav, String checksum, long length, long time, String path )
+        {
+            this.gav = gav;
+            this.checksum = checksum;
+            this.length = length;
+            this.time = time;
+            this.path = path;
+        }
+
+        public int compareTo( Input other )
+        {
+            int result = gav.compareTo( other.gav );
+            return result != 0 ? result : checksum.compareTo( other.checksum );
+        }
+
+        public boolean equals( Object other )
+        {
+            return other instanceof Input && compareTo( (Input) other ) == 0;
+        }
+
+        public int hashCode()
+        {
+            return gav.hashCode() * 31 + checksum.hashCode();
+        }
+    }
+}
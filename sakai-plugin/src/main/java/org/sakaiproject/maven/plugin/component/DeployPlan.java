@@ -0,0 +1,212 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * The files to deploy for a whole reactor. Each module adds the files it would have copied and the components it
+ * would have unpacked, and the last module deploys all of them at once. A target which several modules deploy, like
+ * a shared library, is only deployed once.
+ *
+ * @version $Id$
+ */
+public class DeployPlan
+{
+    /**
+     * The plan of each reactor, keyed by the first project of the reactor.
+     */
+    private static final Map<MavenProject, DeployPlan> PLANS = new WeakHashMap<MavenProject, DeployPlan>();
+
+    /**
+     * The first project of the reactor, held weakly so that it remains collectable as a key of {@link #PLANS}.
+     */
+    private final WeakReference<MavenProject> root;
+
+    private final int projectCount;
+
+    private final Set<String> reported = new HashSet<String>();
+
+    /**
+     * The source of each file to copy, keyed by destination.
+     */
+    private final Map<File, File> copies = new LinkedHashMap<File, File>();
+
+    /**
+     * The archive of each component to unpack, keyed by destination directory.
+     */
+    private final Map<File, File> unpacks = new LinkedHashMap<File, File>();
+
+    private int duplicates;
+
+    private boolean begun;
+
+    private boolean executed;
+
+    private DeployPlan( MavenProject root, int projectCount )
+    {
+        this.root = new WeakReference<MavenProject>( root );
+        this.projectCount = projectCount;
+    }
+
+    /**
+     * Returns the plan of a reactor, creating it for the first module which asks.
+     *
+     * @param reactorProjects the projects in the reactor
+     * @return the plan of the reactor
+     */
+    public static synchronized DeployPlan forReactor( List reactorProjects )
+    {
+        MavenProject root = (MavenProject) reactorProjects.get( 0 );
+        DeployPlan plan = PLANS.get( root );
+        // projects are equal by id, so a later build of the same reactor in this JVM must not find our plan
+        if ( plan == null || plan.root.get() != root )
+        {
+            plan = new DeployPlan( root, reactorProjects.size() );
+            PLANS.put( root, plan );
+        }
+        return plan;
+    }
+
+    /**
+     * Records that a module adds to the plan.
+     *
+     * @return <code>true</code> for the first module
+     */
+    public synchronized boolean begin()
+    {
+        if ( begun )
+        {
+            return false;
+        }
+        begun = true;
+        return true;
+    }
+
+    /**
+     * Adds a file to copy.
+     *
+     * @param source      the file to copy
+     * @param destination where to copy it to
+     * @return the source which was planned for the same destination before and is now replaced, or
+     *         <code>null</code>
+     */
+    public synchronized File addCopy( File source, File destination )
+    {
+        File previous = copies.put( destination, source );
+        if ( previous == null )
+        {
+            return null;
+        }
+        duplicates++;
+        return previous.equals( source ) ? null : previous;
+    }
+
+    /**
+     * Adds a component to unpack.
+     *
+     * @param archive   the archive of the component
+     * @param directory the directory to unpack it to
+     * @return the archive which was planned for the same directory before and is now replaced, or <code>null</code>
+     */
+    public synchronized File addUnpack( File archive, File directory )
+    {
+        File previous = unpacks.put( directory, archive );
+        if ( previous == null )
+        {
+            return null;
+        }
+        duplicates++;
+        return previous.equals( archive ) ? null : previous;
+    }
+
+    /**
+     * Records that a module has added everything it deploys.
+     *
+     * @param projectId the id of the module
+     * @return <code>true</code> once every module in the reactor has reported
+     */
+    public synchronized boolean report( String projectId )
+    {
+        reported.add( projectId );
+        return reported.size() >= projectCount;
+    }
+
+    /**
+     * @return <code>true</code> if the plan has been handed out for deployment, after which modules deploy their
+     *         own files
+     */
+    public synchronized boolean isExecuted()
+    {
+        return executed;
+    }
+
+    /**
+     * Hands out the files to copy, as <code>File[]{source, destination}</code>, and marks the plan executed.
+     *
+     * @return the files to copy
+     */
+    public synchronized List<File[]> takeCopies()
+    {
+        executed = true;
+        List<File[]> result = new ArrayList<File[]>( copies.size() );
+        for ( Map.Entry<File, File> e : copies.entrySet() )
+        {
+            result.add( new File[]{ e.getValue(), e.getKey() } );
+        }
+        copies.clear();
+        return result;
+    }
+
+    /**
+     * Hands out the components to unpack, as <code>File[]{archive, directory}</code>, and marks the plan executed.
+     *
+     * @return the components to unpack
+     */
+    public synchronized List<File[]> takeUnpacks()
+    {
+        executed = true;
+        List<File[]> result = new ArrayList<File[]>( unpacks.size() );
+        for ( Map.Entry<File, File> e : unpacks.entrySet() )
+        {
+            result.add( new File[]{ e.getValue(), e.getKey() } );
+        }
+        unpacks.clear();
+        return result;
+    }
+
+    /**
+     * @return the number of targets which were added more than once
+     */
+    public synchronized int getDuplicates()
+    {
+        return duplicates;
+    }
+}
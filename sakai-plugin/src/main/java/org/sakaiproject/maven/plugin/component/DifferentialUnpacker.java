@@ -0,0 +1,274 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Brings a directory in line with the content of an archive, rewriting only the entries which differ from the files
+ * already in the directory and removing the files which are no longer in the archive. Entries are compared by the
+ * size and CRC held in the central directory of the archive, so unchanged files keep their timestamps and a running
+ * container does not see them change.
+ * <p/>
+ * When unpacking over a directory which holds more than the archive, such as the configuration of a container, the
+ * other files can be kept and files changed locally since the archive was built left alone.
+ *
+ * @version $Id$
+ */
+public class DifferentialUnpacker
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private int written;
+
+    private int unchanged;
+
+    private int removed;
+
+    private boolean removeOthers = true;
+
+    private boolean overwriteNewer = true;
+
+    private final Set<String> skipped = new HashSet<String>();
+
+    /**
+     * @param removeOthers whether to remove the files which are not in the archive, <code>true</code> by default
+     */
+    public void setRemoveOthers( boolean removeOthers )
+    {
+        this.removeOthers = removeOthers;
+    }
+
+    /**
+     * @param overwriteNewer whether to overwrite files which are newer than their entry, <code>true</code> by default
+     */
+    public void setOverwriteNewer( boolean overwriteNewer )
+    {
+        this.overwriteNewer = overwriteNewer;
+    }
+
+    /**
+     * Leaves an entry of the archive out.
+     *
+     * @param name the name of the entry
+     */
+    public void skip( String name )
+    {
+        skipped.add( name );
+    }
+
+    /**
+     * Unpacks the entries of an archive which differ from the content of a directory.
+     *
+     * @param archive   the archive to unpack
+     * @param directory the directory to update, which is created if it does not exist
+     * @throws IOException if the archive cannot be read or the directory cannot be updated
+     */
+    public void unpack( File archive, File directory )
+        throws IOException
+    {
+        directory = directory.getAbsoluteFile();
+        directory.mkdirs();
+        String root = directory.getCanonicalPath() + File.separator;
+        Set<String> paths = new HashSet<String>();
+
+        ZipFile zip = new ZipFile( archive );
+        try
+        {
+            for ( Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements(); )
+            {
+                ZipEntry entry = e.nextElement();
+                if ( skipped.contains( entry.getName() ) )
+                {
+                    continue;
+                }
+                File target = new File( directory, entry.getName() );
+                String path = target.getCanonicalPath() + File.separator;
+                if ( !path.startsWith( root ) )
+                {
+                    throw new IOException( "Entry " + entry.getName() + " of " + archive + " is outside of "
+                        + directory );
+                }
+                paths.add( target.getPath() );
+                if ( entry.isDirectory() )
+                {
+                    target.mkdirs();
+                }
+                else if ( isUnchanged( entry, target ) )
+                {
+                    unchanged++;
+                }
+                else
+                {
+                    extract( zip, entry, target );
+                    written++;
+                }
+            }
+        }
+        finally
+        {
+            zip.close();
+        }
+
+        if ( removeOthers )
+        {
+            removeOthers( directory, paths );
+        }
+    }
+
+    /**
+     * @return the number of entries written by {@link #unpack(File, File)}
+     */
+    public int getWritten()
+    {
+        return written;
+    }
+
+    /**
+     * @return the number of entries which were already up to date
+     */
+    public int getUnchanged()
+    {
+        return unchanged;
+    }
+
+    /**
+     * @return the number of files and directories removed because they are not in the archive
+     */
+    public int getRemoved()
+    {
+        return removed;
+    }
+
+    private boolean isUnchanged( ZipEntry entry, File target )
+        throws IOException
+    {
+        if ( !overwriteNewer && target.isFile() && entry.getTime() != -1 && target.lastModified() >= entry.getTime() )
+        {
+            return true;
+        }
+        if ( !target.isFile() || entry.getSize() < 0 || target.length() != entry.getSize() )
+        {
+            return false;
+        }
+        return entry.getCrc() != -1 && crc( target ) == entry.getCrc();
+    }
+
+    private static long crc( File file )
+        throws IOException
+    {
+        CRC32 crc = new CRC32();
+        InputStream in = new FileInputStream( file );
+        try
+        {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ( ( n = in.read( buffer ) ) != -1 )
+            {
+                crc.update( buffer, 0, n );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        return crc.getValue();
+    }
+
+    private static boolean isLink( File file )
+        throws IOException
+    {
+        File canonicalParent = file.getParentFile().getCanonicalFile();
+        return !new File( canonicalParent, file.getName() ).getCanonicalFile().equals(
+            new File( canonicalParent, file.getName() ) );
+    }
+
+    private static void extract( ZipFile zip, ZipEntry entry, File target )
+        throws IOException
+    {
+        target.getParentFile().mkdirs();
+        InputStream in = zip.getInputStream( entry );
+        try
+        {
+            OutputStream out = new FileOutputStream( target );
+            try
+            {
+                IOUtil.copy( in, out, BUFFER_SIZE );
+            }
+            finally
+            {
+                IOUtil.close( out );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        if ( entry.getTime() != -1 )
+        {
+            target.setLastModified( entry.getTime() );
+        }
+    }
+
+    /**
+     * Removes everything below a directory which is not one of the given paths. Symbolic links to directories are
+     * removed or kept, but never followed.
+     */
+    private void removeOthers( File directory, Set<String> paths )
+        throws IOException
+    {
+        File[] files = directory.listFiles();
+        if ( files == null )
+        {
+            return;
+        }
+        for ( int i = 0; i < files.length; i++ )
+        {
+            File file = files[i];
+            boolean keep = paths.contains( file.getPath() );
+            if ( file.isDirectory() && !isLink( file ) )
+            {
+                removeOthers( file, paths );
+                String[] left = file.list();
+                if ( !keep && left != null && left.length == 0 && file.delete() )
+                {
+                    removed++;
+                }
+            }
+            else if ( !keep && file.delete() )
+            {
+                removed++;
+            }
+        }
+    }
+}
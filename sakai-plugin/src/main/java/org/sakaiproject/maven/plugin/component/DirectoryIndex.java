@@ -0,0 +1,164 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * A sorted listing of the names in a deploy directory, shared by all the modules which deploy into it, so that
+ * looking for earlier versions of a jar does not scan a directory holding thousands of jars every time. The listing
+ * is read again when the timestamp of the directory shows that somebody else changed it, or when the listing was
+ * read so soon after a change by somebody else that a further change could have left the timestamp as it was. The
+ * changes recorded through the index only update the listing.
+ *
+ * @version $Id$
+ */
+public final class DirectoryIndex
+{
+    /**
+     * The coarsest timestamp resolution of the file systems we deploy to, FAT having two seconds.
+     */
+    private static final long RESOLUTION = 2000;
+
+    private static final Map<File, DirectoryIndex> INDEXES = new HashMap<File, DirectoryIndex>();
+
+    private final File directory;
+
+    private long lastModified = -1;
+
+    /**
+     * When the listing was read.
+     */
+    private long listed;
+
+    /**
+     * Whether the last change of the directory was recorded through the index, so the listing is known to match.
+     */
+    private boolean changedHere;
+
+    private int listings;
+
+    private TreeSet<String> names;
+
+    private DirectoryIndex( File directory )
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the index of a directory.
+     *
+     * @param directory the directory
+     * @return the index of the directory
+     */
+    public static synchronized DirectoryIndex forDirectory( File directory )
+    {
+        File key = directory.getAbsoluteFile();
+        DirectoryIndex index = INDEXES.get( key );
+        if ( index == null )
+        {
+            index = new DirectoryIndex( key );
+            INDEXES.put( key, index );
+        }
+        return index;
+    }
+
+    /**
+     * Returns the names in the directory which start with a prefix.
+     *
+     * @param prefix the prefix
+     * @return the matching names, in order
+     */
+    public synchronized SortedSet<String> getNamesStartingWith( String prefix )
+    {
+        refresh();
+        return new TreeSet<String>( names.subSet( prefix, prefix + Character.MAX_VALUE ) );
+    }
+
+    /**
+     * Records that a file has been added to the directory.
+     *
+     * @param name the name of the file
+     */
+    public synchronized void added( String name )
+    {
+        if ( names == null )
+        {
+            refresh();
+        }
+        names.add( name );
+        changed();
+    }
+
+    /**
+     * Records that a file has been removed from the directory.
+     *
+     * @param name the name of the file
+     */
+    public synchronized void removed( String name )
+    {
+        if ( names == null )
+        {
+            refresh();
+        }
+        names.remove( name );
+        changed();
+    }
+
+    /**
+     * @return the number of times the directory was listed
+     */
+    synchronized int getListings()
+    {
+        return listings;
+    }
+
+    private void changed()
+    {
+        lastModified = directory.lastModified();
+        changedHere = true;
+    }
+
+    private void refresh()
+    {
+        long current = directory.lastModified();
+        if ( names != null && current == lastModified && ( changedHere || listed - current > RESOLUTION ) )
+        {
+            return;
+        }
+        listings++;
+        changedHere = false;
+        listed = System.currentTimeMillis();
+        names = new TreeSet<String>();
+        String[] list = directory.list();
+        if ( list != null )
+        {
+            for ( int i = 0; i < list.length; i++ )
+            {
+                names.add( list[i] );
+            }
+        }
+        lastModified = current;
+    }
+}
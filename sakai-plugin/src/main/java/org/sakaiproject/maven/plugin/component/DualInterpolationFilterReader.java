@@ -0,0 +1,239 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Replaces both <tt>${token}</tt> and <tt>@token@</tt> in a single pass over a buffered block of characters. The
+ * result is the same as reading through an <code>InterpolationFilterReader</code> for <tt>${}</tt> wrapped in one
+ * for <tt>@@</tt>: the output of the first syntax is fed to the second, tokens which cannot be resolved are left as
+ * they are and the closing <tt>@</tt> of an unresolved token may open the next one.
+ * <p/>
+ * Resolved tokens, including the ones which could not be resolved, are kept in a map which may be shared by all the
+ * files filtered during a build.
+ *
+ * @version $Id$
+ */
+public class DualInterpolationFilterReader
+    extends Reader
+{
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader in;
+
+    private final Map variables;
+
+    private final Map<String, String> resolved;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    private final StringBuilder output = new StringBuilder( BUFFER_SIZE );
+
+    private int position;
+
+    private boolean eof;
+
+    private final Token dollar = new Token( "${", '}', new Token( "@", '@', null ) );
+
+    /**
+     * @param in        the reader to filter
+     * @param variables the values of the tokens
+     */
+    public DualInterpolationFilterReader( Reader in, Map variables )
+    {
+        this( in, variables, new HashMap<String, String>() );
+    }
+
+    /**
+     * @param in        the reader to filter
+     * @param variables the values of the tokens
+     * @param resolved  the tokens resolved so far, which is added to and may be passed to the next reader
+     */
+    public DualInterpolationFilterReader( Reader in, Map variables, Map<String, String> resolved )
+    {
+        this.in = in;
+        this.variables = variables;
+        this.resolved = resolved;
+    }
+
+    public int read( char[] cbuf, int off, int len )
+        throws IOException
+    {
+        if ( len == 0 )
+        {
+            return 0;
+        }
+        while ( position == output.length() )
+        {
+            if ( eof )
+            {
+                return -1;
+            }
+            output.setLength( 0 );
+            position = 0;
+            fill();
+        }
+        int n = Math.min( len, output.length() - position );
+        output.getChars( position, position + n, cbuf, off );
+        position += n;
+        return n;
+    }
+
+    public void close()
+        throws IOException
+    {
+        in.close();
+    }
+
+    private void fill()
+        throws IOException
+    {
+        int n = in.read( buffer, 0, buffer.length );
+        if ( n == -1 )
+        {
+            dollar.finish();
+            eof = true;
+            return;
+        }
+        for ( int i = 0; i < n; i++ )
+        {
+            dollar.accept( buffer[i] );
+        }
+    }
+
+    private String resolve( String name )
+    {
+        if ( resolved.containsKey( name ) )
+        {
+            return resolved.get( name );
+        }
+        Object value = variables.get( name );
+        String result = value == null ? null : value.toString();
+        resolved.put( name, result );
+        return result;
+    }
+
+    /**
+     * Recognises one syntax of token in the characters pushed to it and passes the result on to the next syntax, or
+     * to the output.
+     */
+    private class Token
+    {
+        private final String begin;
+
+        private final char end;
+
+        private final Token next;
+
+        private final StringBuilder key = new StringBuilder();
+
+        private boolean inKey;
+
+        private int beginMatch;
+
+        Token( String begin, char end, Token next )
+        {
+            this.begin = begin;
+            this.end = end;
+            this.next = next;
+        }
+
+        void accept( char c )
+        {
+            if ( !inKey )
+            {
+                if ( c == begin.charAt( 0 ) )
+                {
+                    inKey = true;
+                    key.setLength( 0 );
+                    beginMatch = 1;
+                }
+                else
+                {
+                    emit( c );
+                }
+                return;
+            }
+            key.append( c );
+            if ( beginMatch < begin.length() && c != begin.charAt( beginMatch++ ) )
+            {
+                // not a token after all, the characters are passed on without looking at them again
+                inKey = false;
+                emit( begin.charAt( 0 ) );
+                emit( key, key.length() );
+                return;
+            }
+            if ( c == end )
+            {
+                inKey = false;
+                String value = resolve( key.substring( begin.length() - 1, key.length() - 1 ) );
+                if ( value != null )
+                {
+                    emit( value, value.length() );
+                }
+                else
+                {
+                    emit( begin.charAt( 0 ) );
+                    emit( key, key.length() - 1 );
+                    // the end of an unresolved token is read again, so that it can start the next one
+                    accept( end );
+                }
+            }
+        }
+
+        void finish()
+        {
+            if ( inKey )
+            {
+                inKey = false;
+                emit( begin.charAt( 0 ) );
+                emit( key, key.length() );
+            }
+            if ( next != null )
+            {
+                next.finish();
+            }
+        }
+
+        private void emit( char c )
+        {
+            if ( next == null )
+            {
+                output.append( c );
+            }
+            else
+            {
+                next.accept( c );
+            }
+        }
+
+        private void emit( CharSequence s, int length )
+        {
+            for ( int i = 0; i < length; i++ )
+            {
+                emit( s.charAt( i ) );
+            }
+        }
+    }
+}
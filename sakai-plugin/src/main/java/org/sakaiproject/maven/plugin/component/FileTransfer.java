@@ -0,0 +1,200 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.channels.FileChannel;
+
+/**
+ * Copies files with {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, which lets
+ * the operating system move the bytes without passing them through the JVM, and creates hard links where the JVM
+ * supports them.
+ *
+ * @version $Id$
+ */
+public final class FileTransfer
+{
+    /**
+     * Larger transfers fail on some platforms, so big files are transferred in chunks.
+     */
+    private static final long MAX_TRANSFER = 64 * 1024 * 1024;
+
+    /**
+     * <code>File.toPath()</code>, or <code>null</code> if the JVM is older than Java 7.
+     */
+    private static final Method TO_PATH;
+
+    /**
+     * <code>java.nio.file.Files.createLink(Path, Path)</code>, or <code>null</code> if the JVM is older than Java 7.
+     */
+    private static final Method CREATE_LINK;
+
+    static
+    {
+        Method toPath = null;
+        Method createLink = null;
+        try
+        {
+            Class path = Class.forName( "java.nio.file.Path" );
+            toPath = File.class.getMethod( "toPath" );
+            createLink = Class.forName( "java.nio.file.Files" ).getMethod( "createLink", path, path );
+        }
+        catch ( Exception e )
+        {
+            // links are not supported, we always copy
+            toPath = null;
+            createLink = null;
+        }
+        TO_PATH = toPath;
+        CREATE_LINK = createLink;
+    }
+
+    private FileTransfer()
+    {
+        // prevent instantiation
+    }
+
+    /**
+     * Copies a file, creating the parent directories of the destination if needed. The content is written to a
+     * temporary file next to the destination which is then renamed over it, so an existing destination which is a
+     * hard link, for example to a jar in the local repository, is replaced rather than written through.
+     *
+     * @param source      the file to copy
+     * @param destination the file to copy to, which is replaced if it exists
+     * @throws IOException if the file could not be copied
+     */
+    public static void copy( File source, File destination )
+        throws IOException
+    {
+        File parent = destination.getAbsoluteFile().getParentFile();
+        if ( !parent.exists() && !parent.mkdirs() && !parent.isDirectory() )
+        {
+            throw new IOException( "Could not create directory " + parent );
+        }
+        File temp = File.createTempFile( "." + destination.getName(), ".tmp", parent );
+        try
+        {
+            transfer( source, temp );
+            if ( !temp.renameTo( destination ) )
+            {
+                // some platforms do not rename over an existing file
+                if ( destination.exists() && !destination.delete() )
+                {
+                    throw new IOException( "Could not replace " + destination );
+                }
+                if ( !temp.renameTo( destination ) )
+                {
+                    throw new IOException( "Could not rename " + temp + " to " + destination );
+                }
+            }
+        }
+        finally
+        {
+            if ( temp.exists() )
+            {
+                temp.delete();
+            }
+        }
+    }
+
+    private static void transfer( File source, File destination )
+        throws IOException
+    {
+        FileInputStream in = new FileInputStream( source );
+        try
+        {
+            FileOutputStream out = new FileOutputStream( destination );
+            try
+            {
+                FileChannel from = in.getChannel();
+                FileChannel to = out.getChannel();
+                long size = from.size();
+                long position = 0;
+                while ( position < size )
+                {
+                    long transferred = from.transferTo( position, Math.min( size - position, MAX_TRANSFER ), to );
+                    if ( transferred <= 0 )
+                    {
+                        break;
+                    }
+                    position += transferred;
+                }
+            }
+            finally
+            {
+                IOUtil.close( out );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        if ( source.length() != destination.length() )
+        {
+            throw new IOException( "Failed to copy full contents from " + source + " to " + destination );
+        }
+    }
+
+    /**
+     * Creates a hard link to a file, replacing the destination if it exists. Fails when the JVM cannot create links,
+     * or when the file system does not support them, for example because the two files are on different file
+     * systems.
+     *
+     * @param source      the file to link to
+     * @param destination the link to create
+     * @return <code>true</code> if the link was created, <code>false</code> if the file has to be copied instead
+     */
+    public static boolean link( File source, File destination )
+    {
+        if ( CREATE_LINK == null )
+        {
+            return false;
+        }
+        File parent = destination.getParentFile();
+        if ( parent != null )
+        {
+            parent.mkdirs();
+        }
+        if ( destination.exists() && !destination.delete() )
+        {
+            return false;
+        }
+        try
+        {
+            CREATE_LINK.invoke( null, TO_PATH.invoke( destination ), TO_PATH.invoke( source ) );
+            return true;
+        }
+        catch ( InvocationTargetException e )
+        {
+            return false;
+        }
+        catch ( IllegalAccessException e )
+        {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The unpacked wars shared by all the modules and builds using the same local repository. Each war is unpacked into
+ * a directory named with the name and the MD5 digest of the war, so a war which has been unpacked before is not
+ * unpacked again.
+ * <p/>
+ * A war is unpacked next to its entry and then renamed into place, so nobody ever sees a half unpacked war; when two
+ * builds unpack the same war at the same time, the first rename wins and the other build uses its entry. Once a war
+ * is unpacked, the entries of other versions of it are removed when they have not been used for a day, unless this
+ * JVM handed them out.
+ *
+ * @version $Id$
+ */
+public class OverlayCache
+{
+    /**
+     * How long an unpacked war which is no longer current is kept, in case a build is still using it.
+     */
+    static final long STALE_AGE = 24L * 60 * 60 * 1000;
+
+    /**
+     * The MD5 digest of each war, keyed by path, length and timestamp.
+     */
+    private static final Map<String, String> DIGESTS = new ConcurrentHashMap<String, String>();
+
+    /**
+     * The entries handed out by this JVM, which a long running build may still be reading.
+     */
+    private static final Set<File> IN_USE = Collections.synchronizedSet( new HashSet<File>() );
+
+    private final File directory;
+
+    private final Log log;
+
+    /**
+     * Unpacks a war into a new entry of the cache.
+     */
+    public interface Unpacker
+    {
+        /**
+         * @param war       the war
+         * @param directory the empty directory to unpack it into
+         * @throws MojoExecutionException if the war could not be unpacked
+         */
+        void unpack( File war, File directory )
+            throws MojoExecutionException;
+    }
+
+    /**
+     * @param directory the directory holding the unpacked wars
+     * @param log       where to report the entries which could not be removed
+     */
+    public OverlayCache( File directory, Log log )
+    {
+        this.directory = directory;
+        this.log = log;
+    }
+
+    /**
+     * Returns the directory a war is unpacked in, unpacking it first if it is not in the cache.
+     *
+     * @param war      the war
+     * @param unpacker unpacks the war if needed
+     * @return the directory holding the unpacked war
+     * @throws MojoExecutionException if the war could not be read or unpacked
+     */
+    public File get( File war, Unpacker unpacker )
+        throws MojoExecutionException
+    {
+        String name = war.getName();
+        name = name.substring( 0, name.length() - 4 );
+        File location;
+        try
+        {
+            location = new File( directory, name + "-" + getDigest( war ) );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Could not read " + war, e );
+        }
+        if ( location.isDirectory() )
+        {
+            log.debug( "Reusing " + location );
+            location.setLastModified( System.currentTimeMillis() );
+            IN_USE.add( location );
+            return location;
+        }
+
+        File temp = new File( directory, ".unpack-" + location.getName() + "-" + System.nanoTime() );
+        temp.mkdirs();
+        boolean moved = false;
+        try
+        {
+            unpacker.unpack( war, temp );
+            moved = temp.renameTo( location );
+            if ( !moved && !location.isDirectory() )
+            {
+                throw new MojoExecutionException( "Could not move " + temp + " to " + location );
+            }
+            // otherwise another build unpacked the same war in the meantime
+        }
+        finally
+        {
+            if ( !moved )
+            {
+                deleteQuietly( temp );
+            }
+        }
+        IN_USE.add( location );
+        removeStale( name, location );
+        return location;
+    }
+
+    /**
+     * Returns the MD5 digest of a war, reading it only once per build however many modules overlay it.
+     */
+    private static String getDigest( File war )
+        throws IOException
+    {
+        String key = war.getAbsolutePath() + "|" + war.length() + "|" + war.lastModified();
+        String digest = DIGESTS.get( key );
+        if ( digest == null )
+        {
+            digest = CopyManifest.digest( war );
+            DIGESTS.put( key, digest );
+        }
+        return digest;
+    }
+
+    /**
+     * Removes earlier versions of an unpacked war, like the ones of a snapshot which has been rebuilt since, once
+     * they have not been used for a while.
+     */
+    private void removeStale( String name, File current )
+    {
+        File[] siblings = directory.listFiles();
+        if ( siblings == null )
+        {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - STALE_AGE;
+        for ( int i = 0; i < siblings.length; i++ )
+        {
+            File sibling = siblings[i];
+            String siblingName = sibling.getName();
+            if ( !sibling.equals( current ) && siblingName.startsWith( name + "-" )
+                && siblingName.substring( name.length() + 1 ).matches( "[0-9a-f]{32}" )
+                && sibling.lastModified() < cutoff && !IN_USE.contains( sibling ) )
+            {
+                log.debug( "Removing stale overlay " + sibling );
+                deleteQuietly( sibling );
+            }
+        }
+    }
+
+    private void deleteQuietly( File directory )
+    {
+        try
+        {
+            FileUtils.deleteDirectory( directory );
+        }
+        catch ( IOException e )
+        {
+            log.warn( "Could not remove " + directory + ": " + e );
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Merges the entries of several archives which are unpacked over the same directory. The central directory of each
+ * archive is read in turn, and a later archive wins a path over an earlier one, as if the archives had been unpacked
+ * one after the other with overwrite on. Each winning entry can then be written exactly once, in any order, and the
+ * paths given by more than one archive are reported as conflicts.
+ *
+ * @version $Id$
+ */
+public class OverlayMerge
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File directory;
+
+    private final Map<String, Source> entries = new LinkedHashMap<String, Source>();
+
+    private final Set<String> directories = new LinkedHashSet<String>();
+
+    private final List<ZipFile> archives = new ArrayList<ZipFile>();
+
+    private final List<String> conflicts = new ArrayList<String>();
+
+    private int identical;
+
+    private int unsafe;
+
+    /**
+     * @param directory the directory the archives are unpacked to
+     */
+    public OverlayMerge( File directory )
+    {
+        this.directory = directory;
+    }
+
+    /**
+     * Merges the entries of an archive over the ones added so far.
+     *
+     * @param archive the archive
+     * @param name    the name of the archive, used to report conflicts
+     * @return <code>false</code> if the archive is not a zip, in which case nothing is merged
+     * @throws IOException if the archive cannot be read
+     */
+    public boolean add( File archive, String name )
+        throws IOException
+    {
+        ZipFile zip;
+        try
+        {
+            zip = new ZipFile( archive );
+        }
+        catch ( ZipException e )
+        {
+            return false;
+        }
+        archives.add( zip );
+        for ( Enumeration<? extends ZipEntry> e = zip.entries(); e.hasMoreElements(); )
+        {
+            ZipEntry entry = e.nextElement();
+            String path = entry.getName();
+            if ( path.startsWith( "/" ) || path.startsWith( "../" ) || path.indexOf( "/../" ) >= 0 )
+            {
+                unsafe++;
+                continue;
+            }
+            if ( entry.isDirectory() )
+            {
+                directories.add( path );
+                continue;
+            }
+            Source previous = entries.remove( path );
+            if ( previous != null && previous.zip != zip )
+            {
+                if ( previous.entry.getSize() == entry.getSize() && previous.entry.getCrc() == entry.getCrc() )
+                {
+                    identical++;
+                }
+                else
+                {
+                    conflicts.add( path + " from " + name + " replaces the one from " + previous.name );
+                }
+            }
+            // removed and put again so that the entries keep the order in which they were last written
+            entries.put( path, new Source( zip, entry, name ) );
+        }
+        return true;
+    }
+
+    /**
+     * @return the paths given by more than one archive with different content, and the archives involved
+     */
+    public List<String> getConflicts()
+    {
+        return conflicts;
+    }
+
+    /**
+     * @return the number of paths given by more than one archive with the same content
+     */
+    public int getIdentical()
+    {
+        return identical;
+    }
+
+    /**
+     * @return the number of entries left out because they would be written outside of the directory
+     */
+    public int getUnsafe()
+    {
+        return unsafe;
+    }
+
+    /**
+     * @return the number of files to write
+     */
+    public int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Creates the directories of the merged archives, so that the tasks writing the files do not race to create them.
+     *
+     * @return the tasks writing the winning entries, one for each file
+     */
+    public List<Callable<File>> createTasks()
+    {
+        for ( String path : directories )
+        {
+            new File( directory, path ).mkdirs();
+        }
+        Set<File> parents = new LinkedHashSet<File>();
+        List<Callable<File>> tasks = new ArrayList<Callable<File>>( entries.size() );
+        for ( Map.Entry<String, Source> e : entries.entrySet() )
+        {
+            File target = new File( directory, e.getKey() );
+            if ( parents.add( target.getParentFile() ) )
+            {
+                target.getParentFile().mkdirs();
+            }
+            tasks.add( e.getValue().extractTask( target ) );
+        }
+        return tasks;
+    }
+
+    /**
+     * Closes the archives, once the tasks have run.
+     */
+    public void close()
+    {
+        for ( ZipFile zip : archives )
+        {
+            try
+            {
+                zip.close();
+            }
+            catch ( IOException e )
+            {
+                // nothing more to read from it
+            }
+        }
+        archives.clear();
+    }
+
+    private static class Source
+    {
+        private final ZipFile zip;
+
+        private final ZipEntry entry;
+
+        private final String name;
+
+        Source( ZipFile zip, ZipEntry entry, String name )
+        {
+            this.zip = zip;
+            this.entry = entry;
+            this.name = name;
+        }
+
+        Callable<File> extractTask( final File target )
+        {
+            return new Callable<File>()
+            {
+                public File call()
+                    throws Exception
+                {
+                    InputStream in = zip.getInputStream( entry );
+                    try
+                    {
+                        OutputStream out = new FileOutputStream( target );
+                        try
+                        {
+                            IOUtil.copy( in, out, BUFFER_SIZE );
+                        }
+                        finally
+                        {
+                            IOUtil.close( out );
+                        }
+                    }
+                    finally
+                    {
+                        IOUtil.close( in );
+                    }
+                    if ( entry.getTime() != -1 )
+                    {
+                        target.setLastModified( entry.getTime() );
+                    }
+                    return target;
+                }
+            };
+        }
+    }
+}
@@ -25,8 +25,14 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * @author <a href="mailto:kenney@neonics.com">Kenney Westerhof</a>
@@ -75,10 +81,11 @@ public final class PropertyUtils
             throw new FileNotFoundException( propfile.toString() );
         }
 
+        Map<String, String> resolved = new HashMap<String, String>();
         for ( Enumeration n = props.propertyNames(); n.hasMoreElements(); )
         {
             String k = (String) n.nextElement();
-            props.setProperty( k, PropertyUtils.getPropertyValue( k, props ) );
+            props.setProperty( k, PropertyUtils.getPropertyValue( k, props, resolved ) );
         }
 
         return props;
@@ -90,61 +97,118 @@ public final class PropertyUtils
      * using the Properties to look them up.
      * <p/>
      * It will leave unresolved properties alone, trying for System
-     * properties, and implements reparsing (in the case that
-     * the value of a property contains a key), and will
-     * not loop endlessly on a pair like
-     * test = ${test}.
+     * properties, and resolves the values of referenced properties
+     * as well. Each property is resolved once, depth first, and the
+     * result kept in <code>resolved</code>, so chains of references
+     * take linear time. A reference which would close a cycle, like
+     * test = ${test}, is left alone.
      */
-    private static String getPropertyValue( String k, Properties p )
+    private static String getPropertyValue( String k, Properties p, Map<String, String> resolved )
     {
-        // This can also be done using InterpolationFilterReader,
-        // but it requires reparsing the file over and over until
-        // it doesn't change.
-
-        String v = p.getProperty( k );
-        String ret = "";
-        int idx, idx2;
-
-        while ( ( idx = v.indexOf( "${" ) ) >= 0 )
+        String ret = resolved.get( k );
+        if ( ret != null )
         {
-            // append prefix to result
-            ret += v.substring( 0, idx );
+            return ret;
+        }
 
-            // strip prefix from original
-            v = v.substring( idx + 2 );
+        // an explicit stack, as chains of references can be thousands deep
+        List<Resolution> stack = new ArrayList<Resolution>();
+        Set<String> active = new HashSet<String>();
+        stack.add( new Resolution( k, p.getProperty( k ) ) );
+        active.add( k );
 
-            // if no matching } then bail
-            if ( ( idx2 = v.indexOf( '}' ) ) < 0 )
+        while ( true )
+        {
+            Resolution top = stack.get( stack.size() - 1 );
+            String nk = top.nextReference();
+            if ( nk == null )
             {
-                break;
+                // all references resolved, hand the value to the property which referenced it
+                stack.remove( stack.size() - 1 );
+                active.remove( top.key );
+                ret = top.value.toString();
+                resolved.put( top.key, ret );
+                if ( stack.isEmpty() )
+                {
+                    return ret;
+                }
+                stack.get( stack.size() - 1 ).value.append( ret );
+                continue;
             }
 
-            // strip out the key and resolve it
-            // resolve the key/value for the ${statement}
-            String nk = v.substring( 0, idx2 );
-            v = v.substring( idx2 + 1 );
-            String nv = p.getProperty( nk );
+            String nv = resolved.get( nk );
+            if ( nv != null )
+            {
+                top.value.append( nv );
+                continue;
+            }
 
-            // try global environment..
-            if ( nv == null )
+            if ( !active.contains( nk ) )
             {
-                nv = System.getProperty( nk );
+                nv = p.getProperty( nk );
+
+                // try global environment..
+                if ( nv == null )
+                {
+                    nv = System.getProperty( nk );
+                }
             }
 
-            // if the key cannot be resolved,
-            // leave it alone ( and don't parse again )
-            // else prefix the original string with the
-            // resolved property ( so it can be parsed further )
-            // taking recursion into account.
-            if ( nv == null || nv.equals( k ) )
+            // if the key cannot be resolved, or is being resolved
+            // already, leave it alone
+            if ( nv == null )
             {
-                ret += "${" + nk + "}";
+                top.value.append( "${" ).append( nk ).append( '}' );
             }
             else
             {
-                v = nv + v;
+                stack.add( new Resolution( nk, nv ) );
+                active.add( nk );
             }
         }
-        return ret + v;
+    }
+
+    /**
+     * A property whose value is being resolved.
+     */
+    private static final class Resolution
+    {
+        private final String key;
+
+        private final String raw;
+
+        private final StringBuilder value;
+
+        private int position;
+
+        Resolution( String key, String raw )
+        {
+            this.key = key;
+            this.raw = raw;
+            this.value = new StringBuilder( raw.length() );
+        }
+
+        /**
+         * Copies the value up to the next ${token}.
+         *
+         * @return the key of the token, or <code>null</code> once the whole value has been copied
+         */
+        String nextReference()
+        {
+            int idx = raw.indexOf( "${", position );
+            int idx2 = idx < 0 ? -1 : raw.indexOf( '}', idx + 2 );
+
+            // if no matching } then the rest is copied as it is
+            if ( idx2 < 0 )
+            {
+                value.append( raw, position, raw.length() );
+                position = raw.length();
+                return null;
+            }
+
+            value.append( raw, position, idx );
+            position = idx2 + 1;
+            return raw.substring( idx + 2, idx2 );
+        }
     }
 }
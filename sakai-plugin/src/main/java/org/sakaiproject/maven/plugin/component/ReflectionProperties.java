@@ -24,31 +24,68 @@ import org.codehaus.plexus.util.introspection.ReflectionValueExtractor;
 
 import java.util.AbstractMap;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
+ * The values of expressions evaluated against a project. Every value, and every expression which has no value, is
+ * remembered, so the reflection is done once per expression however many files are filtered with it.
+ *
  * @version $Id$
  * @todo merge with resources/assembly plugin
  */
 public class ReflectionProperties
     extends AbstractMap
 {
+    /**
+     * Stands for an expression which has no value, as the values map cannot hold <code>null</code>.
+     */
+    private static final Object MISSING = new Object();
+
+    /**
+     * ReflectionValueExtractor keeps its introspection data in a map which is not thread safe.
+     */
+    private static final Object EVALUATE_LOCK = new Object();
+
     private MavenProject project;
 
+    private final ConcurrentMap<String, Object> values = new ConcurrentHashMap<String, Object>();
+
     public ReflectionProperties( MavenProject project )
     {
         this.project = project;
     }
 
-    public synchronized Object get( Object key )
+    public Object get( Object key )
     {
-        Object value = null;
-        try
+        String expression = String.valueOf( key );
+        Object value = values.get( expression );
+        if ( value == null )
         {
-            value = ReflectionValueExtractor.evaluate( String.valueOf( key ), project );
+            value = evaluate( expression );
+            values.putIfAbsent( expression, value == null ? MISSING : value );
         }
-        catch ( Exception e )
+        return value == MISSING ? null : value;
+    }
+
+    public boolean containsKey( Object key )
+    {
+        return get( key ) != null;
+    }
+
+    private Object evaluate( String expression )
+    {
+        Object value = null;
+        synchronized ( EVALUATE_LOCK )
         {
-            //TODO: remove the try-catch block when ReflectionValueExtractor.evaluate() throws no more exceptions
+            try
+            {
+                value = ReflectionValueExtractor.evaluate( expression, project );
+            }
+            catch ( Exception e )
+            {
+                //TODO: remove the try-catch block when ReflectionValueExtractor.evaluate() throws no more exceptions
+            }
         }
         return value;
     }
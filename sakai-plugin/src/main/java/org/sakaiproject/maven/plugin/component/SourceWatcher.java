@@ -0,0 +1,435 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Notices the files of a directory which are added, changed or removed, by comparing the size and timestamp of each
+ * file with the ones seen on the previous call. Only the files matching the includes and excludes are looked at, and
+ * the default excludes always apply.
+ * <p/>
+ * Where the JVM has a native <code>java.nio.file.WatchService</code>, which it is looked up with reflection for, the
+ * directories are registered with it and only the ones it reports are looked at again, so a poll with nothing to
+ * report costs nothing. Otherwise, and whenever the watch service loses events, the whole directory is scanned.
+ *
+ * @version $Id$
+ */
+public class SourceWatcher
+{
+    /**
+     * <code>File.toPath()</code>, or <code>null</code> if the JVM has no watch service.
+     */
+    private static final Method TO_PATH;
+
+    /**
+     * <code>FileSystems.getDefault().newWatchService()</code>, split into the two calls.
+     */
+    private static final Method GET_DEFAULT;
+
+    private static final Method NEW_WATCH_SERVICE;
+
+    /**
+     * <code>Path.register(WatchService, WatchEvent.Kind...)</code>.
+     */
+    private static final Method REGISTER;
+
+    /**
+     * The kinds of event registered for, created, deleted and modified entries.
+     */
+    private static final Object KINDS;
+
+    /**
+     * The kind of event sent when events were lost.
+     */
+    private static final Object OVERFLOW;
+
+    /**
+     * <code>WatchService.poll()</code>, which returns the next signalled key without waiting.
+     */
+    private static final Method POLL;
+
+    private static final Method POLL_EVENTS;
+
+    private static final Method RESET;
+
+    private static final Method KIND;
+
+    private static final Method CONTEXT;
+
+    static
+    {
+        Method[] methods = new Method[9];
+        Object kinds = null;
+        Object overflow = null;
+        try
+        {
+            Class path = Class.forName( "java.nio.file.Path" );
+            Class service = Class.forName( "java.nio.file.WatchService" );
+            Class key = Class.forName( "java.nio.file.WatchKey" );
+            Class event = Class.forName( "java.nio.file.WatchEvent" );
+            Class standard = Class.forName( "java.nio.file.StandardWatchEventKinds" );
+            kinds = Array.newInstance( Class.forName( "java.nio.file.WatchEvent$Kind" ), 3 );
+            Array.set( kinds, 0, standard.getField( "ENTRY_CREATE" ).get( null ) );
+            Array.set( kinds, 1, standard.getField( "ENTRY_DELETE" ).get( null ) );
+            Array.set( kinds, 2, standard.getField( "ENTRY_MODIFY" ).get( null ) );
+            overflow = standard.getField( "OVERFLOW" ).get( null );
+            methods[0] = File.class.getMethod( "toPath" );
+            methods[1] = Class.forName( "java.nio.file.FileSystems" ).getMethod( "getDefault" );
+            methods[2] = Class.forName( "java.nio.file.FileSystem" ).getMethod( "newWatchService" );
+            methods[3] = path.getMethod( "register", service, kinds.getClass() );
+            methods[4] = service.getMethod( "poll" );
+            methods[5] = key.getMethod( "pollEvents" );
+            methods[6] = key.getMethod( "reset" );
+            methods[7] = event.getMethod( "kind" );
+            methods[8] = event.getMethod( "context" );
+        }
+        catch ( Exception e )
+        {
+            // no watch service, the directories are always scanned
+            methods = new Method[9];
+        }
+        TO_PATH = methods[0];
+        GET_DEFAULT = methods[1];
+        NEW_WATCH_SERVICE = methods[2];
+        REGISTER = methods[3];
+        POLL = methods[4];
+        POLL_EVENTS = methods[5];
+        RESET = methods[6];
+        KIND = methods[7];
+        CONTEXT = methods[8];
+        KINDS = kinds;
+        OVERFLOW = overflow;
+    }
+
+    private final File directory;
+
+    private final String[] includes;
+
+    private final String[] excludes;
+
+    private SortedMap<String, Stamp> files;
+
+    /**
+     * The watch service, or <code>null</code> if the directory is scanned on each poll.
+     */
+    private Object service;
+
+    /**
+     * The path of each registered directory relative to the watched one, by its watch key, ending with <tt>/</tt>
+     * unless it is the watched directory itself.
+     */
+    private final Map<Object, String> keys = new HashMap<Object, String>();
+
+    /**
+     * Takes the first look at the directory, so that the first {@link #poll(List, List)} reports what changed since.
+     *
+     * @param directory the directory, which may not exist yet
+     * @param includes  the files to look at, all of them if empty
+     * @param excludes  the files to leave out
+     */
+    public SourceWatcher( File directory, String[] includes, String[] excludes )
+    {
+        this( directory, includes, excludes, true );
+    }
+
+    /**
+     * @param watch whether to use the watch service of the JVM when there is one
+     */
+    SourceWatcher( File directory, String[] includes, String[] excludes, boolean watch )
+    {
+        this.directory = directory;
+        this.includes = AbstractComponentMojo.normalizePatterns( includes );
+        this.excludes = AbstractComponentMojo.normalizePatterns( excludes );
+        if ( watch && directory.isDirectory() )
+        {
+            service = newWatchService();
+        }
+        this.files = new TreeMap<String, Stamp>();
+        scan( directory, "", files );
+    }
+
+    /**
+     * @return the directory being watched
+     */
+    public File getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * @return whether the directory is watched with the watch service of the JVM rather than scanned on each poll
+     */
+    public boolean isWatching()
+    {
+        return service != null;
+    }
+
+    /**
+     * @return the paths of the files seen on the last look
+     */
+    public Set<String> getPaths()
+    {
+        return new TreeSet<String>( files.keySet() );
+    }
+
+    /**
+     * Looks for the files which changed since the last look.
+     *
+     * @param changed receives the paths of the files added or changed, relative to the directory and separated by
+     *                <tt>/</tt>
+     * @param removed receives the paths of the files removed
+     * @return whether anything changed
+     */
+    public boolean poll( List<String> changed, List<String> removed )
+    {
+        SortedMap<String, Stamp> current = look();
+        if ( current == null )
+        {
+            return false;
+        }
+        boolean any = false;
+        for ( Map.Entry<String, Stamp> e : current.entrySet() )
+        {
+            if ( !e.getValue().equals( files.get( e.getKey() ) ) )
+            {
+                changed.add( e.getKey() );
+                any = true;
+            }
+        }
+        for ( Iterator<String> i = files.keySet().iterator(); i.hasNext(); )
+        {
+            String path = i.next();
+            if ( !current.containsKey( path ) )
+            {
+                removed.add( path );
+                any = true;
+            }
+        }
+        files = current;
+        return any;
+    }
+
+    /**
+     * Stops using the watch service, if there is one.
+     */
+    public void close()
+    {
+        if ( service != null )
+        {
+            try
+            {
+                ( (Closeable) service ).close();
+            }
+            catch ( Exception e )
+            {
+                // nothing more to watch anyway
+            }
+            service = null;
+            keys.clear();
+        }
+    }
+
+    /**
+     * @return the files as they are now, or <code>null</code> if the watch service reported nothing
+     */
+    private SortedMap<String, Stamp> look()
+    {
+        if ( service != null )
+        {
+            try
+            {
+                Set<String> touched = new HashSet<String>();
+                boolean overflow = false;
+                Object key;
+                while ( ( key = POLL.invoke( service ) ) != null )
+                {
+                    String prefix = keys.get( key );
+                    for ( Object event : (List) POLL_EVENTS.invoke( key ) )
+                    {
+                        if ( KIND.invoke( event ) == OVERFLOW )
+                        {
+                            overflow = true;
+                        }
+                        else if ( prefix != null )
+                        {
+                            touched.add( prefix + CONTEXT.invoke( event ) );
+                        }
+                    }
+                    if ( !( (Boolean) RESET.invoke( key ) ).booleanValue() )
+                    {
+                        // the directory is gone
+                        keys.remove( key );
+                    }
+                }
+                if ( keys.isEmpty() )
+                {
+                    // the watched directory itself is gone, scan from now on
+                    close();
+                }
+                else if ( !overflow )
+                {
+                    if ( touched.isEmpty() )
+                    {
+                        return null;
+                    }
+                    SortedMap<String, Stamp> current = new TreeMap<String, Stamp>( files );
+                    for ( String path : touched )
+                    {
+                        rescan( path, current );
+                    }
+                    return current;
+                }
+            }
+            catch ( Exception e )
+            {
+                // scan from now on
+                close();
+            }
+        }
+        SortedMap<String, Stamp> current = new TreeMap<String, Stamp>();
+        scan( directory, "", current );
+        return current;
+    }
+
+    /**
+     * Looks again at a file or directory the watch service reported, and everything under it.
+     */
+    private void rescan( String path, SortedMap<String, Stamp> found )
+    {
+        found.remove( path );
+        found.subMap( path + "/", path + ( (char) ( '/' + 1 ) ) ).clear();
+        File file = new File( directory, path );
+        if ( file.isDirectory() )
+        {
+            scan( file, path + "/", found );
+        }
+        else if ( file.isFile() && AbstractComponentMojo.isIncluded( path, includes, excludes ) )
+        {
+            found.put( path, new Stamp( file ) );
+        }
+    }
+
+    /**
+     * Scans a directory, registering it and its sub directories with the watch service, if there is one, before they
+     * are looked at so that no change is missed. Registering a directory again gives back the key it already has.
+     */
+    private void scan( File dir, String prefix, Map<String, Stamp> found )
+    {
+        if ( service != null )
+        {
+            register( dir, prefix );
+        }
+        File[] children = dir.listFiles();
+        if ( children == null )
+        {
+            return;
+        }
+        for ( int i = 0; i < children.length; i++ )
+        {
+            String path = prefix + children[i].getName();
+            if ( children[i].isDirectory() )
+            {
+                scan( children[i], path + "/", found );
+            }
+            else if ( AbstractComponentMojo.isIncluded( path, includes, excludes ) )
+            {
+                found.put( path, new Stamp( children[i] ) );
+            }
+        }
+    }
+
+    private void register( File dir, String prefix )
+    {
+        try
+        {
+            keys.put( REGISTER.invoke( TO_PATH.invoke( dir ), new Object[]{ service, KINDS } ), prefix );
+        }
+        catch ( Exception e )
+        {
+            // the directory went away, or cannot be watched, in which case scanning takes over
+            if ( dir.isDirectory() )
+            {
+                close();
+            }
+        }
+    }
+
+    /**
+     * @return a new watch service, or <code>null</code> if the JVM has none or only one which polls itself
+     */
+    private static Object newWatchService()
+    {
+        if ( NEW_WATCH_SERVICE == null )
+        {
+            return null;
+        }
+        try
+        {
+            Object service = NEW_WATCH_SERVICE.invoke( GET_DEFAULT.invoke( null ) );
+            if ( service.getClass().getName().indexOf( "Polling" ) >= 0 )
+            {
+                // scanning ourselves is quicker than waiting for its rounds
+                ( (Closeable) service ).close();
+                return null;
+            }
+            return service;
+        }
+        catch ( Exception e )
+        {
+            return null;
+        }
+    }
+
+    private static final class Stamp
+    {
+        private final long length;
+
+        private final long time;
+
+        Stamp( File file )
+        {
+            this.length = file.length();
+            this.time = file.lastModified();
+        }
+
+        public boolean equals( Object other )
+        {
+            return other instanceof Stamp && ( (Stamp) other ).length == length && ( (Stamp) other ).time == time;
+        }
+
+        public int hashCode()
+        {
+            return (int) ( length ^ time );
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the files and directories of a deployment in a staging directory next to the live ones, and then publishes
+ * each of them with a rename so that a running container never sees a half written component, webapp or jar.
+ * <p/>
+ * The staging directory is <tt>.sakai-staging</tt> in the deploy directory, which keeps it on the same file system
+ * as the live directories and out of the directories the container scans. Each deployment stages in a directory of
+ * its own in there, and the staging directory itself is left in place, so that modules deploying at the same time do
+ * not remove it from under each other.
+ * <p/>
+ * A file is replaced with a single rename. A directory cannot be renamed over another one, so the live directory is
+ * renamed aside and the staged one renamed in its place: for the moment between the two renames the live directory
+ * does not exist, and a container scanning just then sees the webapp or component as removed.
+ *
+ * @version $Id$
+ */
+public class StagedDeployment
+{
+    private static final String STAGING_DIRECTORY = ".sakai-staging";
+
+    private final File stagingRoot;
+
+    private final File stagingDirectory;
+
+    /**
+     * The staged file or directory for each target, in the order they were staged.
+     */
+    private final Map<File, File> staged = new LinkedHashMap<File, File>();
+
+    /**
+     * Creates a new staging directory in the deploy directory.
+     *
+     * @param deployDirectory the deploy directory
+     * @throws IOException if the staging directory could not be created
+     */
+    public StagedDeployment( File deployDirectory )
+        throws IOException
+    {
+        stagingRoot = new File( deployDirectory, STAGING_DIRECTORY );
+        if ( !stagingRoot.mkdirs() && !stagingRoot.isDirectory() )
+        {
+            throw new IOException( "Could not create staging directory " + stagingRoot );
+        }
+        stagingDirectory = File.createTempFile( "deploy", "", stagingRoot );
+        if ( !stagingDirectory.delete() || !stagingDirectory.mkdir() )
+        {
+            throw new IOException( "Could not create staging directory " + stagingDirectory );
+        }
+    }
+
+    /**
+     * Returns where to build a file or directory which will replace the target when the deployment is published.
+     * Nothing is published for the target if nothing is written there.
+     *
+     * @param target the live file or directory
+     * @return the staged file or directory, which does not exist yet
+     */
+    public synchronized File stage( File target )
+    {
+        File stage = staged.get( target );
+        if ( stage == null )
+        {
+            stage = new File( stagingDirectory, staged.size() + "-" + target.getName() );
+            staged.put( target, stage );
+        }
+        return stage;
+    }
+
+    /**
+     * Moves everything which was staged into place. A directory replaces the live directory as a whole, which is
+     * moved aside first and then removed, so the live directory is missing between the two renames.
+     *
+     * @return the targets which were published
+     * @throws IOException if something could not be moved, for instance because the live directory is on another
+     *                     file system than the deploy directory
+     */
+    public synchronized List<File> publish()
+        throws IOException
+    {
+        List<File> published = new ArrayList<File>();
+        List<File> replaced = new ArrayList<File>();
+        for ( Map.Entry<File, File> e : staged.entrySet() )
+        {
+            File target = e.getKey();
+            File stage = e.getValue();
+            if ( !stage.exists() )
+            {
+                continue;
+            }
+            target.getParentFile().mkdirs();
+            if ( target.isDirectory() )
+            {
+                File old = new File( stagingDirectory, "replaced-" + replaced.size() + "-" + target.getName() );
+                if ( !target.renameTo( old ) )
+                {
+                    throw new IOException( "Could not move " + target + " aside" );
+                }
+                replaced.add( old );
+                if ( !stage.renameTo( target ) )
+                {
+                    old.renameTo( target );
+                    throw new IOException( "Could not move " + stage + " to " + target );
+                }
+            }
+            else if ( !stage.renameTo( target ) )
+            {
+                // renaming over an existing file fails on some platforms
+                if ( !target.delete() || !stage.renameTo( target ) )
+                {
+                    throw new IOException( "Could not move " + stage + " to " + target );
+                }
+            }
+            published.add( target );
+        }
+        staged.clear();
+        for ( File old : replaced )
+        {
+            FileUtils.deleteDirectory( old );
+        }
+        return published;
+    }
+
+    /**
+     * Removes the staging directory of this deployment, together with anything which was staged but not published.
+     * The <tt>.sakai-staging</tt> directory is left for the other deployments.
+     *
+     * @throws IOException if the staging directory could not be removed
+     */
+    public void cleanup()
+        throws IOException
+    {
+        FileUtils.deleteDirectory( stagingDirectory );
+    }
+}
@@ -0,0 +1,124 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Runs the tasks which copy or unpack files for a module. The tasks may run on other threads than the build thread,
+ * so they must not look up components from the container: Maven 2 does not support concurrent lookups. Whatever a
+ * task needs from the container is looked up before the task is created.
+ *
+ * @version $Id$
+ */
+public final class StagingTasks
+{
+    private StagingTasks()
+    {
+    }
+
+    /**
+     * Runs tasks on up to a number of threads. With a single thread, or a single task, the tasks run on the calling
+     * thread one after the other.
+     *
+     * @param tasks the tasks to run
+     * @param threads the maximum number of threads to use
+     * @return the results of the tasks, in the same order as the tasks
+     * @throws IOException the first failure of a task which could not read or write a file
+     * @throws MojoExecutionException the first other failure of a task, or if the build thread was interrupted
+     */
+    public static List<File> run( List<Callable<File>> tasks, int threads )
+        throws MojoExecutionException, IOException
+    {
+        threads = Math.min( threads, tasks.size() );
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool( threads ) : null;
+        try
+        {
+            List<Future<File>> futures = new ArrayList<Future<File>>();
+            for ( Callable<File> task : tasks )
+            {
+                if ( executor == null )
+                {
+                    FutureTask<File> future = new FutureTask<File>( task );
+                    future.run();
+                    futures.add( future );
+                }
+                else
+                {
+                    futures.add( executor.submit( task ) );
+                }
+            }
+            List<File> results = new ArrayList<File>( futures.size() );
+            for ( Future<File> future : futures )
+            {
+                try
+                {
+                    results.add( future.get() );
+                }
+                catch ( ExecutionException e )
+                {
+                    Throwable cause = e.getCause();
+                    if ( cause instanceof IOException )
+                    {
+                        throw (IOException) cause;
+                    }
+                    if ( cause instanceof MojoExecutionException )
+                    {
+                        throw (MojoExecutionException) cause;
+                    }
+                    if ( cause instanceof RuntimeException )
+                    {
+                        throw (RuntimeException) cause;
+                    }
+                    if ( cause instanceof Error )
+                    {
+                        throw (Error) cause;
+                    }
+                    throw new MojoExecutionException( "Could not stage files", (Exception) cause );
+                }
+                catch ( InterruptedException e )
+                {
+                    Thread.currentThread().interrupt();
+                    throw new MojoExecutionException( "Interrupted while staging files", e );
+                }
+            }
+            return results;
+        }
+        finally
+        {
+            if ( executor != null )
+            {
+                executor.shutdownNow();
+            }
+        }
+    }
+}
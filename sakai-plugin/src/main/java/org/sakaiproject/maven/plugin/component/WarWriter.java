@@ -0,0 +1,690 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.jar.Attributes;
+import java.util.jar.Manifest;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a war straight from the files which make it up, without copying them to an exploded webapp first. Archives
+ * and images, which are compressed already, are stored rather than deflated again.
+ * <p/>
+ * An index of the entries is kept next to the war. When the war is written again, an entry whose name, CRC, size and
+ * method are in the index is copied from the previous war as it is, without compressing it again, and keeps its
+ * timestamp, so a war whose content did not change comes out byte for byte the same. A fixed timestamp may be given
+ * for all entries instead, to get the same war on every machine.
+ * <p/>
+ * The war is written to a temporary file next to it and only replaces the war when {@link #close()} is called, so a
+ * failed build does not leave a truncated war behind.
+ *
+ * @version $Id$
+ */
+public class WarWriter
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String[] COMPRESSED_EXTENSIONS = { ".jar", ".war", ".zip", ".gz", ".png", ".gif", ".jpg",
+        ".jpeg" };
+
+    private static final int STORED = 0;
+
+    private static final int DEFLATED = 8;
+
+    private static final String INDEX_SUFFIX = ".index";
+
+    private static final String INDEX_HEADER = "war-index 1";
+
+    private final File warFile;
+
+    private final File tempFile;
+
+    private final File indexFile;
+
+    private final boolean compress;
+
+    private final long fixedTime;
+
+    private final RandomAccessFile output;
+
+    private final byte[] outputBuffer = new byte[BUFFER_SIZE];
+
+    private int buffered;
+
+    private long position;
+
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    /**
+     * The entries of the previous war, keyed by name, or empty if there is no usable index.
+     */
+    private final Map<String, Entry> previous = new HashMap<String, Entry>();
+
+    private RandomAccessFile previousWar;
+
+    private final List<Entry> written = new ArrayList<Entry>();
+
+    private final Set<String> directories = new HashSet<String>();
+
+    private int entries;
+
+    private int reused;
+
+    private boolean closed;
+
+    /**
+     * @param warFile   the war to write
+     * @param compress  whether to deflate the entries which are not compressed already
+     * @param fixedTime the time to give every entry, written in UTC so that the war does not depend on the time
+     *                  zone of the build, or <code>-1</code> to use the local time of the files
+     * @throws IOException if the war cannot be created
+     */
+    public WarWriter( File warFile, boolean compress, long fixedTime )
+        throws IOException
+    {
+        this.warFile = warFile.getAbsoluteFile();
+        this.compress = compress;
+        this.fixedTime = fixedTime == -1 ? -1 : toDosTime( fixedTime, TimeZone.getTimeZone( "UTC" ) );
+        this.warFile.getParentFile().mkdirs();
+        tempFile = new File( this.warFile.getParentFile(), warFile.getName() + ".tmp" );
+        indexFile = new File( this.warFile.getParentFile(), warFile.getName() + INDEX_SUFFIX );
+        readIndex();
+        tempFile.delete();
+        output = new RandomAccessFile( tempFile, "rw" );
+    }
+
+    /**
+     * Writes the manifest, which has to be the first entry for <code>JarInputStream</code> to find it.
+     *
+     * @param manifest the manifest
+     * @throws IOException if the manifest cannot be written
+     */
+    public void addManifest( Manifest manifest )
+        throws IOException
+    {
+        if ( manifest.getMainAttributes().getValue( Attributes.Name.MANIFEST_VERSION ) == null )
+        {
+            manifest.getMainAttributes().put( Attributes.Name.MANIFEST_VERSION, "1.0" );
+        }
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        manifest.write( content );
+        addBytes( "META-INF/MANIFEST.MF", content.toByteArray() );
+    }
+
+    /**
+     * Writes a file.
+     *
+     * @param path the path of the file in the war, separated by <tt>/</tt>
+     * @param file the file
+     * @throws IOException if the file cannot be read or written
+     */
+    public void addFile( String path, File file )
+        throws IOException
+    {
+        long time = file.lastModified();
+        InputStream in = new FileInputStream( file );
+        long crc;
+        try
+        {
+            crc = crc( in );
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        in = new FileInputStream( file );
+        try
+        {
+            add( path, file.length(), crc, time, in );
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    /**
+     * Writes an entry held in memory.
+     *
+     * @param path    the path of the entry in the war, separated by <tt>/</tt>
+     * @param content the content of the entry
+     * @throws IOException if the entry cannot be written
+     */
+    public void addBytes( String path, byte[] content )
+        throws IOException
+    {
+        CRC32 crc = new CRC32();
+        crc.update( content );
+        add( path, content.length, crc.getValue(), System.currentTimeMillis(), new ByteArrayInputStream( content ) );
+    }
+
+    /**
+     * @return the number of files written so far, not counting directories
+     */
+    public int getEntries()
+    {
+        return entries;
+    }
+
+    /**
+     * @return the number of files copied from the previous war without compressing them again
+     */
+    public int getReused()
+    {
+        return reused;
+    }
+
+    /**
+     * Finishes the war, moves it into place and writes its index.
+     *
+     * @throws IOException if the war cannot be finished or moved
+     */
+    public void close()
+        throws IOException
+    {
+        if ( closed )
+        {
+            return;
+        }
+        closed = true;
+        try
+        {
+            writeCentralDirectory();
+            flush();
+        }
+        finally
+        {
+            output.close();
+            closePreviousWar();
+        }
+        indexFile.delete();
+        if ( !tempFile.renameTo( warFile ) )
+        {
+            // renaming over an existing file fails on some platforms
+            if ( !warFile.delete() || !tempFile.renameTo( warFile ) )
+            {
+                throw new IOException( "Could not move " + tempFile + " to " + warFile );
+            }
+        }
+        writeIndex();
+    }
+
+    /**
+     * Abandons the war, leaving any previous war in place.
+     */
+    public void abort()
+    {
+        if ( closed )
+        {
+            return;
+        }
+        closed = true;
+        try
+        {
+            output.close();
+        }
+        catch ( IOException e )
+        {
+            // the file is removed anyway
+        }
+        closePreviousWar();
+        tempFile.delete();
+    }
+
+    private void add( String path, long size, long crc, long time, InputStream content )
+        throws IOException
+    {
+        if ( size > 0xFFFFFFFFL )
+        {
+            throw new IOException( "Entry too large for a war without zip64: " + path );
+        }
+        addParentDirectories( path, time );
+        int method = compress && !isCompressed( path ) ? DEFLATED : STORED;
+        Entry old = previous.get( path );
+        if ( old != null && old.crc == crc && old.size == size && old.method == method && previousWar != null )
+        {
+            Entry entry = new Entry( path, method, fixedTime != -1 ? fixedTime : old.time, crc, size );
+            entry.compressedSize = old.compressedSize;
+            writeLocalHeader( entry );
+            copyRaw( old.dataOffset, old.compressedSize );
+            reused++;
+        }
+        else
+        {
+            Entry entry = new Entry( path, method, fixedTime != -1 ? fixedTime : toDosTime( time ), crc, size );
+            entry.compressedSize = method == STORED ? size : 0;
+            long headerOffset = writeLocalHeader( entry );
+            if ( method == STORED )
+            {
+                copy( content, new EntryOutput() );
+            }
+            else
+            {
+                Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+                try
+                {
+                    DeflaterOutputStream out = new DeflaterOutputStream( new EntryOutput(), deflater, BUFFER_SIZE );
+                    copy( content, out );
+                    out.finish();
+                    entry.compressedSize = deflater.getBytesWritten();
+                }
+                finally
+                {
+                    deflater.end();
+                }
+                patchCompressedSize( headerOffset, entry.compressedSize );
+            }
+        }
+        entries++;
+    }
+
+    private void addParentDirectories( String path, long time )
+        throws IOException
+    {
+        int slash = path.lastIndexOf( '/' );
+        if ( slash < 0 )
+        {
+            return;
+        }
+        String directory = path.substring( 0, slash + 1 );
+        if ( directories.contains( directory ) )
+        {
+            return;
+        }
+        addParentDirectories( directory.substring( 0, slash ), time );
+        directories.add( directory );
+        Entry old = previous.get( directory );
+        long dosTime = fixedTime != -1 ? fixedTime : old != null ? old.time : toDosTime( time );
+        Entry entry = new Entry( directory, STORED, dosTime, 0, 0 );
+        writeLocalHeader( entry );
+    }
+
+    /**
+     * @return the offset of the header
+     */
+    private long writeLocalHeader( Entry entry )
+        throws IOException
+    {
+        entry.offset = position;
+        byte[] name = entry.name.getBytes( "UTF-8" );
+        writeInt( 0x04034b50L );
+        writeShort( entry.method == STORED ? 10 : 20 );
+        writeShort( flags( entry ) );
+        writeShort( entry.method );
+        writeInt( entry.time );
+        writeInt( entry.crc );
+        writeInt( entry.compressedSize );
+        writeInt( entry.size );
+        writeShort( name.length );
+        writeShort( 0 );
+        write( name, 0, name.length );
+        entry.dataOffset = position;
+        written.add( entry );
+        return entry.offset;
+    }
+
+    private void writeCentralDirectory()
+        throws IOException
+    {
+        if ( written.size() > 0xFFFF )
+        {
+            throw new IOException( "Too many entries for a war without zip64: " + written.size() );
+        }
+        long start = position;
+        for ( Entry entry : written )
+        {
+            byte[] name = entry.name.getBytes( "UTF-8" );
+            writeInt( 0x02014b50L );
+            writeShort( 20 );
+            writeShort( entry.method == STORED ? 10 : 20 );
+            writeShort( flags( entry ) );
+            writeShort( entry.method );
+            writeInt( entry.time );
+            writeInt( entry.crc );
+            writeInt( entry.compressedSize );
+            writeInt( entry.size );
+            writeShort( name.length );
+            writeShort( 0 );
+            writeShort( 0 );
+            writeShort( 0 );
+            writeShort( 0 );
+            writeInt( entry.name.endsWith( "/" ) ? 0x10 : 0 );
+            writeInt( entry.offset );
+            write( name, 0, name.length );
+        }
+        long end = position;
+        if ( end > 0xFFFFFFFFL )
+        {
+            throw new IOException( "War too large without zip64: " + warFile );
+        }
+        writeInt( 0x06054b50L );
+        writeShort( 0 );
+        writeShort( 0 );
+        writeShort( written.size() );
+        writeShort( written.size() );
+        writeInt( end - start );
+        writeInt( start );
+        writeShort( 0 );
+    }
+
+    private static int flags( Entry entry )
+    {
+        for ( int i = 0; i < entry.name.length(); i++ )
+        {
+            if ( entry.name.charAt( i ) > 0x7F )
+            {
+                // the name is UTF-8
+                return 0x800;
+            }
+        }
+        return 0;
+    }
+
+    private void patchCompressedSize( long headerOffset, long compressedSize )
+        throws IOException
+    {
+        flush();
+        output.seek( headerOffset + 18 );
+        output.write( littleEndian( compressedSize, 4 ) );
+        output.seek( position );
+    }
+
+    private void copyRaw( long offset, long length )
+        throws IOException
+    {
+        flush();
+        FileChannel source = previousWar.getChannel();
+        FileChannel target = output.getChannel();
+        long done = 0;
+        while ( done < length )
+        {
+            long n = source.transferTo( offset + done, length - done, target );
+            if ( n <= 0 )
+            {
+                throw new IOException( "Could not copy " + length + " bytes from " + warFile );
+            }
+            done += n;
+        }
+        position += length;
+    }
+
+    private void copy( InputStream in, OutputStream out )
+        throws IOException
+    {
+        int n;
+        while ( ( n = in.read( buffer ) ) != -1 )
+        {
+            out.write( buffer, 0, n );
+        }
+    }
+
+    private long crc( InputStream in )
+        throws IOException
+    {
+        CRC32 crc = new CRC32();
+        int n;
+        while ( ( n = in.read( buffer ) ) != -1 )
+        {
+            crc.update( buffer, 0, n );
+        }
+        return crc.getValue();
+    }
+
+    private void write( byte[] b, int off, int len )
+        throws IOException
+    {
+        if ( len > outputBuffer.length - buffered )
+        {
+            flush();
+            if ( len > outputBuffer.length )
+            {
+                output.write( b, off, len );
+                position += len;
+                return;
+            }
+        }
+        System.arraycopy( b, off, outputBuffer, buffered, len );
+        buffered += len;
+        position += len;
+    }
+
+    private void flush()
+        throws IOException
+    {
+        if ( buffered > 0 )
+        {
+            output.write( outputBuffer, 0, buffered );
+            buffered = 0;
+        }
+    }
+
+    private void writeShort( int value )
+        throws IOException
+    {
+        write( littleEndian( value, 2 ), 0, 2 );
+    }
+
+    private void writeInt( long value )
+        throws IOException
+    {
+        write( littleEndian( value, 4 ), 0, 4 );
+    }
+
+    private static byte[] littleEndian( long value, int length )
+    {
+        byte[] bytes = new byte[length];
+        for ( int i = 0; i < length; i++ )
+        {
+            bytes[i] = (byte) ( value >>> ( 8 * i ) );
+        }
+        return bytes;
+    }
+
+    private static long toDosTime( long time )
+    {
+        return toDosTime( time, TimeZone.getDefault() );
+    }
+
+    private static long toDosTime( long time, TimeZone zone )
+    {
+        Calendar calendar = Calendar.getInstance( zone );
+        calendar.setTimeInMillis( time );
+        int year = calendar.get( Calendar.YEAR );
+        if ( year < 1980 )
+        {
+            return ( 1 << 21 ) | ( 1 << 16 );
+        }
+        return ( (long) ( year - 1980 ) << 25 ) | ( ( calendar.get( Calendar.MONTH ) + 1 ) << 21 )
+            | ( calendar.get( Calendar.DAY_OF_MONTH ) << 16 ) | ( calendar.get( Calendar.HOUR_OF_DAY ) << 11 )
+            | ( calendar.get( Calendar.MINUTE ) << 5 ) | ( calendar.get( Calendar.SECOND ) >> 1 );
+    }
+
+    private static boolean isCompressed( String path )
+    {
+        String name = path.toLowerCase();
+        for ( int i = 0; i < COMPRESSED_EXTENSIONS.length; i++ )
+        {
+            if ( name.endsWith( COMPRESSED_EXTENSIONS[i] ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the index of the previous war, if there is one and it still describes the war.
+     */
+    private void readIndex()
+    {
+        if ( !indexFile.isFile() || !warFile.isFile() )
+        {
+            return;
+        }
+        BufferedReader reader = null;
+        try
+        {
+            reader = new BufferedReader( new InputStreamReader( new FileInputStream( indexFile ), "UTF-8" ) );
+            String[] header = String.valueOf( reader.readLine() ).split( "\t" );
+            if ( header.length != 3 || !INDEX_HEADER.equals( header[0] )
+                || Long.parseLong( header[1] ) != warFile.length()
+                || Long.parseLong( header[2] ) != warFile.lastModified() )
+            {
+                return;
+            }
+            String line;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                String[] fields = line.split( "\t", 7 );
+                Entry entry = new Entry( fields[6], Integer.parseInt( fields[0] ), Long.parseLong( fields[1] ),
+                                         Long.parseLong( fields[2] ), Long.parseLong( fields[3] ) );
+                entry.compressedSize = Long.parseLong( fields[4] );
+                entry.dataOffset = Long.parseLong( fields[5] );
+                previous.put( entry.name, entry );
+            }
+            previousWar = new RandomAccessFile( warFile, "r" );
+        }
+        catch ( Exception e )
+        {
+            // an unreadable index only means the war is written from scratch
+            previous.clear();
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+    }
+
+    private void writeIndex()
+        throws IOException
+    {
+        File temp = new File( indexFile.getPath() + ".tmp" );
+        Writer writer = new OutputStreamWriter( new FileOutputStream( temp ), "UTF-8" );
+        try
+        {
+            writer.write( INDEX_HEADER + "\t" + warFile.length() + "\t" + warFile.lastModified() + "\n" );
+            for ( Entry entry : written )
+            {
+                writer.write( entry.method + "\t" + entry.time + "\t" + entry.crc + "\t" + entry.size + "\t"
+                    + entry.compressedSize + "\t" + entry.dataOffset + "\t" + entry.name + "\n" );
+            }
+        }
+        finally
+        {
+            writer.close();
+        }
+        if ( !temp.renameTo( indexFile ) )
+        {
+            temp.delete();
+        }
+    }
+
+    private void closePreviousWar()
+    {
+        if ( previousWar != null )
+        {
+            try
+            {
+                previousWar.close();
+            }
+            catch ( IOException e )
+            {
+                // only read from
+            }
+            previousWar = null;
+        }
+    }
+
+    /**
+     * Passes the data of an entry on to the war.
+     */
+    private class EntryOutput
+        extends OutputStream
+    {
+        public void write( int b )
+            throws IOException
+        {
+            WarWriter.this.write( new byte[]{ (byte) b }, 0, 1 );
+        }
+
+        public void write( byte[] b, int off, int len )
+            throws IOException
+        {
+            WarWriter.this.write( b, off, len );
+        }
+    }
+
+    /**
+     * An entry of the war, in the order they were written.
+     */
+    private static final class Entry
+    {
+        private final String name;
+
+        private final int method;
+
+        private final long time;
+
+        private final long crc;
+
+        private final long size;
+
+        private long compressedSize;
+
+        private long offset;
+
+        private long dataOffset;
+
+        Entry( String name, int method, long time, long crc, long size )
+        {
+            this.name = name;
+            this.method = method;
+            this.time = time;
+            this.crc = crc;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.resolver.ArtifactResolver;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ArtifactResolutionsTest
+    extends AbstractMojoTestCase
+{
+    private List<String> resolved = Collections.synchronizedList( new ArrayList<String>() );
+
+    private int resolving;
+
+    private int maxResolving;
+
+    public void testArtifactsAreResolvedOneAtATimeInTheBackground()
+        throws Exception
+    {
+        ArtifactResolver resolver = createResolver();
+        ArtifactResolutions resolutions = new ArtifactResolutions( resolver, Collections.EMPTY_LIST, null );
+        List<Artifact> artifacts = new ArrayList<Artifact>();
+        for ( int i = 0; i < 6; i++ )
+        {
+            artifacts.add( createArtifact( "lib-" + i ) );
+        }
+        try
+        {
+            assertEquals( 6, resolutions.start( artifacts ) );
+            assertEquals( "started twice", 0, resolutions.start( artifacts ) );
+
+            // the build thread resolves what was not started, holding the same lock
+            Artifact other = createArtifact( "other" );
+            assertEquals( new File( "other.jar" ), resolutions.get( other ) );
+
+            for ( int i = 5; i >= 0; i-- )
+            {
+                assertEquals( new File( "lib-" + i + ".jar" ), resolutions.get( artifacts.get( i ) ) );
+            }
+        }
+        finally
+        {
+            resolutions.shutdown();
+        }
+
+        assertEquals( "resolver called concurrently", 1, maxResolving );
+        assertEquals( 7, resolved.size() );
+        resolved.remove( "other" );
+        assertEquals( "background resolutions out of order",
+                      "[lib-0, lib-1, lib-2, lib-3, lib-4, lib-5]", resolved.toString() );
+    }
+
+    public void testResolvedArtifactsAreNotStarted()
+        throws Exception
+    {
+        ArtifactResolutions resolutions = new ArtifactResolutions( createResolver(), Collections.EMPTY_LIST, null );
+        Artifact artifact = createArtifact( "lib" );
+        artifact.setFile( new File( "local.jar" ) );
+        List<Artifact> artifacts = new ArrayList<Artifact>();
+        artifacts.add( artifact );
+        artifacts.add( null );
+
+        assertEquals( 0, resolutions.start( artifacts ) );
+        assertEquals( new File( "local.jar" ), resolutions.get( artifact ) );
+        assertTrue( resolved.isEmpty() );
+        resolutions.shutdown();
+    }
+
+    private static Artifact createArtifact( String artifactId )
+    {
+        return new DefaultArtifact( "org.sakaiproject", artifactId, VersionRange.createFromVersion( "1.0" ),
+                                    Artifact.SCOPE_RUNTIME, "jar", null, new DefaultArtifactHandler( "jar" ) );
+    }
+
+    /**
+     * Returns a resolver which takes a while for each artifact and records the greatest number of artifacts it
+     * resolved at the same time.
+     */
+    private ArtifactResolver createResolver()
+    {
+        InvocationHandler handler = new InvocationHandler()
+        {
+            public Object invoke( Object proxy, Method method, Object[] args )
+                throws Throwable
+            {
+                if ( !method.getName().equals( "resolve" ) )
+                {
+                    return method.getDeclaringClass() == Object.class ? method.invoke( this, args ) : null;
+                }
+                Artifact artifact = (Artifact) args[0];
+                synchronized ( ArtifactResolutionsTest.this )
+                {
+                    resolving++;
+                    maxResolving = Math.max( maxResolving, resolving );
+                }
+                Thread.sleep( 20 );
+                synchronized ( ArtifactResolutionsTest.this )
+                {
+                    resolving--;
+                }
+                resolved.add( artifact.getArtifactId() );
+                artifact.setFile( new File( artifact.getArtifactId() + ".jar" ) );
+                return null;
+            }
+        };
+        return (ArtifactResolver) Proxy.newProxyInstance( getClass().getClassLoader(),
+                                                          new Class[] { ArtifactResolver.class }, handler );
+    }
+}
@@ -0,0 +1,147 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.apache.maven.model.Model;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BuildTimingsTest
+    extends AbstractMojoTestCase
+{
+    private static File testDirectory = new File( getBasedir(), "target/test-classes/unit/buildtimings-test" );
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        FileUtils.deleteDirectory( testDirectory );
+        testDirectory.mkdirs();
+    }
+
+    public void testPhasesAreSummed()
+        throws Exception
+    {
+        File copied = new File( testDirectory, "copied.jar" );
+        FileUtils.fileWrite( copied.getPath(), "12345" );
+
+        BuildTimings timings = new BuildTimings();
+        timings.recordCopy( BuildTimings.DEPLOY, timings.start(), copied, true );
+        timings.recordCopy( BuildTimings.DEPLOY, timings.start(), copied, false );
+        timings.recordCopy( BuildTimings.DEPLOY, timings.start(), copied, true );
+        timings.recordEntries( BuildTimings.UNPACK, timings.start(), 7, 3 );
+        timings.record( BuildTimings.RESOLVE, timings.start() );
+
+        List<String> summary = timings.getSummary();
+        assertEquals( 5, summary.size() );
+        String[] deploy = summary.get( 1 ).split( " +" );
+        assertEquals( "deploy", deploy[0] );
+        assertEquals( "3", deploy[1] );
+        assertEquals( Arrays.asList( new String[]{ "2", "1", "10", "0" } ),
+                      Arrays.asList( deploy ).subList( 3, 7 ) );
+
+        String json = timings.toJson();
+        assertTrue( json, json.indexOf( "\"filesCopied\": 2, \"filesSkipped\": 1, \"bytesCopied\": 10" ) > 0 );
+        assertTrue( json, json.indexOf( "\"filesSkipped\": 3, \"bytesCopied\": 0, \"entriesWritten\": 7}" ) > 0 );
+
+        File file = new File( testDirectory, "timings/build.json" );
+        timings.writeJson( file );
+        assertTrue( FileUtils.fileRead( file, "UTF-8" ).indexOf( "\"resolve\": {\"calls\": 1" ) > 0 );
+    }
+
+    public void testReactorSharesTimings()
+        throws Exception
+    {
+        Model model = new Model();
+        model.setArtifactId( "root" );
+        List reactor = Arrays.asList( new Object[]{ new MavenProject( model ) } );
+
+        BuildTimings timings = BuildTimings.forReactor( reactor );
+        assertSame( timings, BuildTimings.forReactor( reactor ) );
+        assertNotSame( timings, BuildTimings.forReactor( Arrays.asList( new Object[]{ new MavenProject( model ) } ) ) );
+    }
+
+    public void testTimingsAreOnlyReportedAgainWhenChanged()
+        throws Exception
+    {
+        RecordingLog log = new RecordingLog();
+        File file = new File( testDirectory, "build.json" );
+        BuildTimings timings = new BuildTimings();
+
+        timings.record( BuildTimings.RESOLVE, timings.start() );
+        assertTrue( timings.report( log, true, file ) );
+        int lines = log.lines.size();
+        assertTrue( lines > 0 );
+        assertTrue( file.isFile() );
+
+        // a second goal on the last module which did nothing
+        assertFalse( timings.report( log, true, file ) );
+        assertEquals( lines, log.lines.size() );
+
+        timings.record( BuildTimings.ARCHIVE, timings.start() );
+        assertTrue( timings.report( log, true, file ) );
+    }
+
+    public void testOnlyTheLastModuleReports()
+        throws Exception
+    {
+        RecordingLog log = new RecordingLog();
+        MavenProject root = newProject( "root" );
+        MavenProject leaf = newProject( "leaf" );
+        List reactor = Arrays.asList( new Object[]{ root, leaf } );
+        BuildTimings timings = BuildTimings.forReactor( reactor );
+
+        assertFalse( timings.reportFrom( root, reactor, log, true, null ) );
+        assertTrue( log.lines.isEmpty() );
+
+        timings.record( BuildTimings.ARCHIVE, timings.start() );
+        assertFalse( "not asked to", timings.reportFrom( leaf, reactor, log, false, null ) );
+        assertTrue( timings.reportFrom( leaf, reactor, log, true, null ) );
+        assertFalse( log.lines.isEmpty() );
+    }
+
+    private static MavenProject newProject( String artifactId )
+    {
+        Model model = new Model();
+        model.setGroupId( "org.sakaiproject" );
+        model.setArtifactId( artifactId );
+        model.setVersion( "1.0" );
+        return new MavenProject( model );
+    }
+
+    private static final class RecordingLog
+        extends SystemStreamLog
+    {
+        private final List<String> lines = new ArrayList<String>();
+
+        public void info( CharSequence content )
+        {
+            lines.add( content.toString() );
+        }
+    }
+}
@@ -113,6 +113,56 @@ public class ComponentMojoTest
                     jarContent.containsKey( "META-INF/maven/org.apache.maven.test/maven-test-plugin/pom.properties" ) );
     }
 
+    public void testStreamingWar()
+        throws Exception
+    {
+        String testId = "StreamingWar";
+        MavenProject4CopyConstructor project = new MavenProject4CopyConstructor();
+        String outputDir = getTestDirectory().getAbsolutePath() + "/" + testId + "-output";
+        File webAppDirectory = new File( getTestDirectory(), testId );
+        SimpleWarArtifact4CCStub warArtifact = new SimpleWarArtifact4CCStub( getBasedir() );
+        String warName = "simple";
+        File webAppSource = createWebAppSource( testId );
+        File classesDir = createClassesDir( testId, true );
+        File xmlSource = createXMLConfigDir( testId, new String[]{"web.xml"} );
+
+        project.setArtifact( warArtifact );
+        this.configureMojo( mojo, new LinkedList(), classesDir, webAppSource, webAppDirectory, null, project );
+        setVariableValueToObject( mojo, "outputDirectory", outputDir );
+        setVariableValueToObject( mojo, "warName", warName );
+        setVariableValueToObject( mojo, "streaming", Boolean.TRUE );
+        mojo.setWebXml( new File( xmlSource, "web.xml" ) );
+
+        mojo.execute();
+
+        //validate jar file
+        File expectedJarFile = new File( outputDir, "simple.war" );
+        Map jarContent = new HashMap();
+
+        assertTrue( "war file not created: " + expectedJarFile.toString(), expectedJarFile.exists() );
+        assertFalse( "exploded webapp was built", new File( webAppDirectory, "pansit.jsp" ).exists() );
+
+        JarFile jarFile = new JarFile( expectedJarFile );
+        JarEntry entry;
+        Enumeration enumeration = jarFile.entries();
+
+        while ( enumeration.hasMoreElements() )
+        {
+            entry = (JarEntry) enumeration.nextElement();
+            jarContent.put( entry.getName(), entry );
+        }
+
+        assertNotNull( "manifest file not found", jarFile.getManifest() );
+        assertTrue( "web xml not found", jarContent.containsKey( "WEB-INF/web.xml" ) );
+        assertEquals( "web xml file incorrect", mojo.getWebXml().toString(),
+                      IOUtil.toString( jarFile.getInputStream( (ZipEntry) jarContent.get( "WEB-INF/web.xml" ) ) ) );
+        assertTrue( "web source not found: pansit.jsp", jarContent.containsKey( "pansit.jsp" ) );
+        assertTrue( "web source not found: org/web/app/last-exile.jsp",
+                    jarContent.containsKey( "org/web/app/last-exile.jsp" ) );
+        assertTrue( "pom properties not found",
+                    jarContent.containsKey( "META-INF/maven/org.apache.maven.test/maven-test-plugin/pom.properties" ) );
+    }
+
     public void testClassifier()
         throws Exception
     {
@@ -0,0 +1,77 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.model.Model;
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+import org.apache.maven.project.MavenProject;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+public class CompositeMapTest
+    extends AbstractMojoTestCase
+{
+    public void testLookupsAreRemembered()
+        throws Exception
+    {
+        final int[] lookups = new int[1];
+        Map dominant = new HashMap()
+        {
+            public Object get( Object key )
+            {
+                lookups[0]++;
+                return super.get( key );
+            }
+        };
+        dominant.put( "name", "dominant" );
+        Properties recessive = new Properties();
+        recessive.setProperty( "name", "recessive" );
+        recessive.setProperty( "other", "recessive" );
+
+        CompositeMap map = new CompositeMap( dominant, recessive );
+        for ( int i = 0; i < 3; i++ )
+        {
+            assertEquals( "dominant", map.get( "name" ) );
+            assertEquals( "recessive", map.get( "other" ) );
+            assertNull( map.get( "missing" ) );
+        }
+        assertEquals( 3, lookups[0] );
+    }
+
+    public void testEntrySetOverProject()
+        throws Exception
+    {
+        Model model = new Model();
+        model.setArtifactId( "project" );
+        model.setVersion( "1.0" );
+        Properties recessive = new Properties();
+        recessive.setProperty( "artifactId", "recessive" );
+        recessive.setProperty( "other", "recessive" );
+
+        CompositeMap map = new CompositeMap( new ReflectionProperties( new MavenProject( model ) ), recessive );
+        assertEquals( "1.0", map.get( "version" ) );
+        assertEquals( 2, map.entrySet().size() );
+        assertEquals( "project", new HashMap( map ).get( "artifactId" ) );
+        assertTrue( map.containsKey( "version" ) );
+        assertFalse( map.containsKey( "missing" ) );
+    }
+}
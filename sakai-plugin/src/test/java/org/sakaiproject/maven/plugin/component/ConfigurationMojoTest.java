@@ -27,6 +27,8 @@ import java.util.Map;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+import org.codehaus.plexus.util.FileUtils;
+
 import org.sakaiproject.maven.plugin.component.stub.MavenProject4CopyConstructor;
 import org.sakaiproject.maven.plugin.component.stub.ProjectHelperStub;
 import org.sakaiproject.maven.plugin.component.stub.SimpleConfigurationArtifact4CCStub;
@@ -147,4 +149,35 @@ public class ConfigurationMojoTest
         		zipContent.contains( "source/org/web/app/last-exile.jsp" ) );
     }
 
+    public void testUnchangedConfigurationIsKept()
+        throws Exception
+    {
+        String testId = "Unchanged";
+        MavenProject4CopyConstructor project = new MavenProject4CopyConstructor();
+        String outputDir = getTestDirectory().getAbsolutePath() + "/" + testId + "-output";
+        File webAppSource = createWebAppSource( testId );
+
+        project.setArtifact( new SimpleConfigurationArtifact4CCStub( getBasedir() ) );
+        mojo.setProject( project );
+        setVariableValueToObject( mojo, "projectHelper", new ProjectHelperStub() );
+        setVariableValueToObject( mojo, "outputDirectory", outputDir );
+        setVariableValueToObject( mojo, "configurationDirectory", getBaseSampleDir( testId ).getAbsolutePath() );
+        setVariableValueToObject( mojo, "configurationName", "simple" );
+
+        File zip = new File( outputDir, "simple.configuration" );
+        zip.delete();
+        mojo.execute();
+        String manifest = ConfigurationMojo.readContentManifest( zip );
+        assertTrue( "manifest not found", manifest != null && manifest.indexOf( "source/pansit.jsp" ) != -1 );
+
+        zip.setLastModified( zip.lastModified() - 10000 );
+        long built = zip.lastModified();
+        mojo.execute();
+        assertEquals( "unchanged configuration zipped again", built, zip.lastModified() );
+
+        FileUtils.fileWrite( new File( webAppSource, "pansit.jsp" ).getPath(), "changed" );
+        mojo.execute();
+        assertFalse( "changed configuration not zipped", manifest.equals( ConfigurationMojo.readContentManifest( zip ) ) );
+    }
+
 }
@@ -0,0 +1,144 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.util.List;
+
+public class CopyManifestTest
+    extends AbstractMojoTestCase
+{
+    private static File testDirectory = new File( getBasedir(), "target/test-classes/unit/copymanifest-test" );
+
+    private File source;
+
+    private File destination;
+
+    private File manifestFile;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        FileUtils.deleteDirectory( testDirectory );
+        source = new File( testDirectory, "source/lib.jar" );
+        destination = new File( testDirectory, "webapp/WEB-INF/lib/lib.jar" );
+        manifestFile = new File( testDirectory, "work/webapp.copy-manifest" );
+        source.getParentFile().mkdirs();
+        FileUtils.fileWrite( source.getPath(), "version 1" );
+    }
+
+    public void testUnchangedContentIsNotCopiedAgain()
+        throws Exception
+    {
+        CopyManifest manifest = new CopyManifest( manifestFile );
+        assertTrue( manifest.copy( source, destination ) );
+        manifest.store();
+
+        manifest = new CopyManifest( manifestFile );
+        assertFalse( manifest.copy( source, destination ) );
+
+        // a touch without a change of content
+        source.setLastModified( source.lastModified() + 60000 );
+        assertFalse( manifest.copy( source, destination ) );
+        assertEquals( "version 1", FileUtils.fileRead( destination ) );
+    }
+
+    public void testChangedContentIsCopiedEvenIfOlder()
+        throws Exception
+    {
+        CopyManifest manifest = new CopyManifest( manifestFile );
+        manifest.copy( source, destination );
+        manifest.store();
+
+        long lastModified = source.lastModified();
+        FileUtils.fileWrite( source.getPath(), "version 2" );
+        source.setLastModified( lastModified - 60000 );
+
+        manifest = new CopyManifest( manifestFile );
+        assertTrue( manifest.copy( source, destination ) );
+        assertEquals( "version 2", FileUtils.fileRead( destination ) );
+    }
+
+    public void testUnrecordedDestinationIsComparedBeforeSkipping()
+        throws Exception
+    {
+        // left by a build without a manifest, newer than the source but with other content
+        destination.getParentFile().mkdirs();
+        FileUtils.fileWrite( destination.getPath(), "version 0" );
+        destination.setLastModified( source.lastModified() + 60000 );
+
+        CopyManifest manifest = new CopyManifest( manifestFile );
+        assertTrue( manifest.copy( source, destination ) );
+        assertEquals( "version 1", FileUtils.fileRead( destination ) );
+        manifest.store();
+
+        // same content without a manifest entry is adopted and recorded
+        manifestFile.delete();
+        destination.setLastModified( source.lastModified() + 60000 );
+        manifest = new CopyManifest( manifestFile );
+        assertFalse( manifest.copy( source, destination ) );
+        manifest.store();
+
+        assertEquals( 1, new CopyManifest( manifestFile ).removeStale().size() );
+    }
+
+    public void testStaleFilesAreRemoved()
+        throws Exception
+    {
+        CopyManifest manifest = new CopyManifest( manifestFile );
+        manifest.copy( source, destination );
+        manifest.store();
+
+        manifest = new CopyManifest( manifestFile );
+        List removed = manifest.removeStale();
+        assertEquals( 1, removed.size() );
+        assertFalse( "stale file not removed", destination.exists() );
+    }
+
+    public void testStaleFilesAreOnlyListed()
+        throws Exception
+    {
+        CopyManifest manifest = new CopyManifest( manifestFile );
+        manifest.copy( source, destination );
+        manifest.store();
+
+        manifest = new CopyManifest( manifestFile );
+        assertEquals( 1, manifest.getStale().size() );
+        assertTrue( "stale file removed", destination.exists() );
+    }
+
+    public void testChangedDestinationIsNotRemoved()
+        throws Exception
+    {
+        CopyManifest manifest = new CopyManifest( manifestFile );
+        manifest.copy( source, destination );
+        manifest.store();
+
+        FileUtils.fileWrite( destination.getPath(), "edited in place" );
+
+        manifest = new CopyManifest( manifestFile );
+        assertTrue( manifest.removeStale().isEmpty() );
+        assertTrue( "edited file removed", destination.exists() );
+    }
+}
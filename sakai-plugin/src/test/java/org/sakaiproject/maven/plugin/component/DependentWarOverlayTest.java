@@ -0,0 +1,133 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.StringUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class DependentWarOverlayTest
+    extends AbstractMojoTestCase
+{
+    private static File testDirectory = new File( getBasedir(), "target/test-classes/unit/dependentwaroverlay-test" );
+
+    private static final String[] ENTRIES = { "META-INF/", "META-INF/MANIFEST.MF", "WEB-INF/", "WEB-INF/web.xml",
+        "WEB-INF/lib/library.jar", "index.jsp", "org/sample/company/testInclude.jsp",
+        "org\\sample\\company\\testInclude.jsp", "org/sample/companyExclude/test.jsp", "CVS/Entries", "notes.txt~" };
+
+    private File war;
+
+    private File unpacked;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        FileUtils.deleteDirectory( testDirectory );
+        testDirectory.mkdirs();
+        war = new File( testDirectory, "overlay.war" );
+        unpacked = new File( testDirectory, "unpacked" );
+        ZipOutputStream zip = new ZipOutputStream( new FileOutputStream( war ) );
+        for ( int i = 0; i < ENTRIES.length; i++ )
+        {
+            zip.putNextEntry( new ZipEntry( ENTRIES[i] ) );
+            File file = new File( unpacked, ENTRIES[i].replace( '\\', '/' ) );
+            if ( ENTRIES[i].endsWith( "/" ) )
+            {
+                file.mkdirs();
+            }
+            else
+            {
+                zip.write( ENTRIES[i].getBytes( "UTF-8" ) );
+                file.getParentFile().mkdirs();
+                FileUtils.fileWrite( file.getPath(), ENTRIES[i] );
+            }
+        }
+        zip.close();
+    }
+
+    public void testExcludesMatchTheUnpackedWar()
+        throws Exception
+    {
+        assertSameAsUnpacked( null, "**/*Exclude*,**/MANIFEST.MF" );
+    }
+
+    public void testIncludesAndExcludesMatchTheUnpackedWar()
+        throws Exception
+    {
+        assertSameAsUnpacked( "**/*Include.jsp,**/*.xml", "**/*Exclude*,**/MANIFEST.MF" );
+    }
+
+    public void testEntriesInTheWarTwiceAreListedOnce()
+        throws Exception
+    {
+        Set<String> directories = new HashSet<String>();
+        Set<String> files = AbstractComponentMojo.listOverlayFiles( war, new String[0], new String[0],
+                                                                    Collections.<String>emptySet(), directories );
+        List<String> listed = new ArrayList<String>( files );
+        assertEquals( 1, Collections.frequency( listed, "org/sample/company/testInclude.jsp" ) );
+        assertTrue( directories.contains( "org/sample/company" ) );
+    }
+
+    /**
+     * Checks that the files listed from the war are the ones a DirectoryScanner finds in the unpacked war, as the
+     * overlay was done before, leaving out the files of the webapp itself.
+     */
+    private void assertSameAsUnpacked( String includes, String excludes )
+        throws Exception
+    {
+        String[] includePatterns = includes == null ? null : StringUtils.split( includes, "," );
+        String[] excludePatterns = StringUtils.split( excludes, "," );
+        Set<String> localFiles = Collections.singleton( "index.jsp" );
+
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir( unpacked );
+        scanner.setExcludes( excludePatterns );
+        scanner.addDefaultExcludes();
+        scanner.setIncludes( includePatterns );
+        scanner.scan();
+        Set<String> expected = new TreeSet<String>();
+        String[] included = scanner.getIncludedFiles();
+        for ( int i = 0; i < included.length; i++ )
+        {
+            expected.add( included[i].replace( File.separatorChar, '/' ) );
+        }
+        expected.removeAll( localFiles );
+
+        Set<String> files = AbstractComponentMojo.listOverlayFiles(
+            war, AbstractComponentMojo.normalizePatterns( includePatterns ),
+            AbstractComponentMojo.normalizePatterns( excludePatterns ), localFiles, new HashSet<String>() );
+        assertEquals( expected, new TreeSet<String>( files ) );
+        assertFalse( "nothing overlaid", expected.isEmpty() );
+    }
+}
@@ -0,0 +1,163 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class DeployLedgerTest
+    extends AbstractMojoTestCase
+{
+    private static File testDirectory = new File( getBasedir(), "target/test-classes/unit/deployledger-test" );
+
+    private File repository;
+
+    private File deployDirectory;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        FileUtils.deleteDirectory( testDirectory );
+        repository = new File( testDirectory, "repository" );
+        deployDirectory = new File( testDirectory, "tomcat" );
+        repository.mkdirs();
+    }
+
+    public void testUnchangedUnitIsUpToDate()
+        throws Exception
+    {
+        File jar = deploy( "library-1.0.jar", "one" );
+        DeployLedger ledger = DeployLedger.forDirectory( deployDirectory );
+        DeployLedger.Unit unit = unit( ledger, "library-1.0.jar" );
+        assertFalse( "nothing recorded yet", ledger.isUpToDate( unit ) );
+        ledger.record( unit );
+
+        assertTrue( "unchanged unit deployed again", ledger.isUpToDate( unit( ledger, "library-1.0.jar" ) ) );
+
+        FileUtils.fileWrite( jar.getPath(), "changed" );
+        assertFalse( "changed deployed file not noticed", ledger.isUpToDate( unit( ledger, "library-1.0.jar" ) ) );
+    }
+
+    public void testUnpackedFilesAreCheckedBySizeAndTimestamp()
+        throws Exception
+    {
+        File war = new File( repository, "library.war" );
+        ZipOutputStream zip = new ZipOutputStream( new FileOutputStream( war ) );
+        zip.putNextEntry( new ZipEntry( "WEB-INF/components.xml" ) );
+        zip.write( "<beans/>".getBytes( "UTF-8" ) );
+        zip.close();
+        File component = new File( deployDirectory, "components/library" );
+        File file = new File( component, "WEB-INF/components.xml" );
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite( file.getPath(), "<beans/>" );
+
+        DeployLedger ledger = DeployLedger.forDirectory( deployDirectory );
+        DeployLedger.Unit unit = ledger.newUnit( "org.sakaiproject:library" );
+        unit.addInput( "org.sakaiproject:library:war:1.0", war );
+        unit.addTargets( war, component, null );
+        ledger.record( unit );
+        assertTrue( ledger.isUpToDate( unit ) );
+
+        // same size, edited in place
+        file.setLastModified( file.lastModified() - 10000 );
+        assertFalse( "changed component file not noticed", ledger.isUpToDate( unit ) );
+    }
+
+    public void testOrphansAreRemoved()
+        throws Exception
+    {
+        File old = deploy( "library-1.0.jar", "one" );
+        DeployLedger ledger = DeployLedger.forDirectory( deployDirectory );
+        ledger.record( unit( ledger, "library-1.0.jar" ) );
+
+        deploy( "library-1.1.jar", "two" );
+        DeployLedger.Unit unit = unit( ledger, "library-1.1.jar" );
+        assertFalse( ledger.isUpToDate( unit ) );
+        assertEquals( 1, ledger.removeOrphans( unit ).size() );
+        assertFalse( "orphan still deployed", old.exists() );
+    }
+
+    public void testDeferredOrphansAreRemovedOnceDeployed()
+        throws Exception
+    {
+        File old = deploy( "library-1.0.jar", "one" );
+        DeployLedger ledger = DeployLedger.forDirectory( deployDirectory );
+        ledger.record( unit( ledger, "library-1.0.jar" ) );
+
+        // queued for the end of the reactor
+        FileUtils.fileWrite( new File( repository, "library-1.1.jar" ).getPath(), "two" );
+        DeployLedger.Unit unit = unit( ledger, "library-1.1.jar" );
+        assertEquals( 1, ledger.getOrphans( unit ).size() );
+        assertTrue( "orphan removed before its replacement", old.exists() );
+        ledger.defer( unit );
+
+        deploy( "library-1.1.jar", "two" );
+        assertEquals( 1, ledger.removeDeferredOrphans().size() );
+        assertFalse( "orphan still deployed", old.exists() );
+        ledger.recordDeferred();
+        assertTrue( ledger.isUpToDate( unit( ledger, "library-1.1.jar" ) ) );
+    }
+
+    public void testDirectoryHoldingTheTargetsIsNoOrphan()
+        throws Exception
+    {
+        File component = new File( deployDirectory, "components/library" );
+        File file = new File( component, "WEB-INF/components.xml" );
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite( file.getPath(), "<beans/>" );
+        FileUtils.fileWrite( new File( repository, "library.war" ).getPath(), "war" );
+        DeployLedger ledger = DeployLedger.forDirectory( deployDirectory );
+        DeployLedger.Unit unit = ledger.newUnit( "org.sakaiproject:library" );
+        unit.addInput( "org.sakaiproject:library:war:1.0", new File( repository, "library.war" ) );
+        unit.addTarget( component, false );
+        ledger.record( unit );
+
+        unit = ledger.newUnit( "org.sakaiproject:library" );
+        unit.addInput( "org.sakaiproject:library:war:1.0", new File( repository, "library.war" ) );
+        unit.addTarget( file, false );
+        assertTrue( ledger.removeOrphans( unit ).isEmpty() );
+        assertTrue( "component removed", file.exists() );
+    }
+
+    private File deploy( String name, String content )
+        throws Exception
+    {
+        FileUtils.fileWrite( new File( repository, name ).getPath(), content );
+        File deployed = new File( deployDirectory, "shared/lib/" + name );
+        deployed.getParentFile().mkdirs();
+        FileUtils.copyFile( new File( repository, name ), deployed );
+        return deployed;
+    }
+
+    private DeployLedger.Unit unit( DeployLedger ledger, String name )
+        throws Exception
+    {
+        DeployLedger.Unit unit = ledger.newUnit( "org.sakaiproject:library" );
+        unit.addInput( "org.sakaiproject:library:jar:" + name, new File( repository, name ) );
+        unit.addTarget( new File( deployDirectory, "shared/lib/" + name ), true );
+        return unit;
+    }
+}
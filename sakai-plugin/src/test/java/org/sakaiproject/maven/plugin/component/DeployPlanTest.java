@@ -0,0 +1,114 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.model.Model;
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DeployPlanTest
+    extends AbstractMojoTestCase
+{
+    private List<MavenProject> reactorProjects;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        reactorProjects = new ArrayList<MavenProject>();
+        reactorProjects.add( newProject( "base" ) );
+        reactorProjects.add( newProject( "kernel-api" ) );
+        reactorProjects.add( newProject( "portal" ) );
+    }
+
+    public void testPlanIsSharedByTheReactor()
+    {
+        DeployPlan plan = DeployPlan.forReactor( reactorProjects );
+        assertSame( plan, DeployPlan.forReactor( reactorProjects ) );
+        assertTrue( "first module", plan.begin() );
+        assertFalse( "second module", plan.begin() );
+
+        List<MavenProject> rebuilt = new ArrayList<MavenProject>( reactorProjects );
+        rebuilt.set( 0, newProject( "base" ) );
+        assertNotSame( "a later build reuses the plan", plan, DeployPlan.forReactor( rebuilt ) );
+    }
+
+    public void testPlanIsCompleteOnceEveryModuleReported()
+    {
+        DeployPlan plan = DeployPlan.forReactor( reactorProjects );
+        assertFalse( plan.report( "sakai:base:pom:1.0" ) );
+        assertFalse( plan.report( "sakai:kernel-api:pom:1.0" ) );
+        assertFalse( "a module reported twice", plan.report( "sakai:kernel-api:pom:1.0" ) );
+        assertTrue( plan.report( "sakai:portal:pom:1.0" ) );
+    }
+
+    public void testDuplicatesAreDeployedOnce()
+    {
+        DeployPlan plan = DeployPlan.forReactor( reactorProjects );
+        File lib = new File( "tomcat/shared/lib/sakai-kernel-api.jar" );
+        File component = new File( "tomcat/components/sakai-kernel-component" );
+        File first = new File( "repository/sakai-kernel-api-1.0.jar" );
+        File second = new File( "repository/sakai-kernel-api-1.1.jar" );
+        File war = new File( "repository/sakai-kernel-component-1.0.war" );
+
+        assertNull( plan.addCopy( first, lib ) );
+        assertNull( "the same source is no replacement", plan.addCopy( first, lib ) );
+        assertEquals( first, plan.addCopy( second, lib ) );
+        assertNull( plan.addUnpack( war, component ) );
+        assertNull( plan.addUnpack( war, component ) );
+        assertEquals( 3, plan.getDuplicates() );
+
+        List<File[]> copies = plan.takeCopies();
+        assertEquals( 1, copies.size() );
+        assertEquals( second, copies.get( 0 )[0] );
+        assertEquals( lib, copies.get( 0 )[1] );
+        List<File[]> unpacks = plan.takeUnpacks();
+        assertEquals( 1, unpacks.size() );
+        assertEquals( war, unpacks.get( 0 )[0] );
+        assertEquals( component, unpacks.get( 0 )[1] );
+    }
+
+    public void testPlanIsHandedOutOnce()
+    {
+        DeployPlan plan = DeployPlan.forReactor( reactorProjects );
+        plan.addCopy( new File( "a.jar" ), new File( "tomcat/shared/lib/a.jar" ) );
+        assertFalse( plan.isExecuted() );
+
+        assertEquals( 1, plan.takeCopies().size() );
+        assertTrue( plan.isExecuted() );
+        assertTrue( plan.takeCopies().isEmpty() );
+        assertTrue( plan.takeUnpacks().isEmpty() );
+        assertSame( "an executed plan is still found", plan, DeployPlan.forReactor( reactorProjects ) );
+    }
+
+    private static MavenProject newProject( String artifactId )
+    {
+        Model model = new Model();
+        model.setGroupId( "sakai" );
+        model.setArtifactId( artifactId );
+        model.setVersion( "1.0" );
+        model.setPackaging( "pom" );
+        return new MavenProject( model );
+    }
+}
@@ -0,0 +1,123 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class DifferentialUnpackerTest
+    extends AbstractMojoTestCase
+{
+    private static File testDirectory = new File( getBasedir(), "target/test-classes/unit/differentialunpacker-test" );
+
+    private File archive;
+
+    private File directory;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        FileUtils.deleteDirectory( testDirectory );
+        testDirectory.mkdirs();
+        archive = new File( testDirectory, "component.war" );
+        directory = new File( testDirectory, "components/component" );
+    }
+
+    public void testOnlyChangedEntriesAreWritten()
+        throws Exception
+    {
+        createArchive( new String[]{ "WEB-INF/web.xml", "<web-app/>", "WEB-INF/classes/A.class", "a",
+            "WEB-INF/classes/B.class", "b" } );
+        DifferentialUnpacker unpacker = new DifferentialUnpacker();
+        unpacker.unpack( archive, directory );
+        assertEquals( 3, unpacker.getWritten() );
+
+        // same size, different content
+        createArchive( new String[]{ "WEB-INF/web.xml", "<web-app/>", "WEB-INF/classes/A.class", "a",
+            "WEB-INF/classes/B.class", "B" } );
+        unpacker = new DifferentialUnpacker();
+        unpacker.unpack( archive, directory );
+        assertEquals( 1, unpacker.getWritten() );
+        assertEquals( 2, unpacker.getUnchanged() );
+        assertEquals( "B", FileUtils.fileRead( new File( directory, "WEB-INF/classes/B.class" ) ) );
+    }
+
+    public void testVanishedEntriesAreRemoved()
+        throws Exception
+    {
+        createArchive( new String[]{ "WEB-INF/web.xml", "<web-app/>", "WEB-INF/lib/old.jar", "old" } );
+        new DifferentialUnpacker().unpack( archive, directory );
+
+        createArchive( new String[]{ "WEB-INF/web.xml", "<web-app/>" } );
+        DifferentialUnpacker unpacker = new DifferentialUnpacker();
+        unpacker.unpack( archive, directory );
+        assertFalse( "vanished file still deployed", new File( directory, "WEB-INF/lib/old.jar" ).exists() );
+        assertFalse( "empty directory still deployed", new File( directory, "WEB-INF/lib" ).exists() );
+        assertTrue( "web.xml removed", new File( directory, "WEB-INF/web.xml" ).exists() );
+    }
+
+    public void testOtherAndNewerFilesAreKept()
+        throws Exception
+    {
+        createArchive( new String[]{ "sakai/sakai.properties", "a=1", "sakai/local.properties", "b=1" } );
+        File local = new File( directory, "sakai/local.properties" );
+        File other = new File( directory, "bin/startup.sh" );
+        local.getParentFile().mkdirs();
+        other.getParentFile().mkdirs();
+        FileUtils.fileWrite( local.getPath(), "b=2" );
+        FileUtils.fileWrite( other.getPath(), "run" );
+        local.setLastModified( System.currentTimeMillis() + 10000 );
+
+        DifferentialUnpacker unpacker = new DifferentialUnpacker();
+        unpacker.setRemoveOthers( false );
+        unpacker.setOverwriteNewer( false );
+        unpacker.skip( "sakai/sakai.properties" );
+        unpacker.unpack( archive, directory );
+        assertEquals( 0, unpacker.getWritten() );
+        assertFalse( "skipped entry unpacked", new File( directory, "sakai/sakai.properties" ).exists() );
+        assertEquals( "b=2", FileUtils.fileRead( local ) );
+        assertTrue( "other file removed", other.exists() );
+    }
+
+    private void createArchive( String[] entries )
+        throws Exception
+    {
+        ZipOutputStream out = new ZipOutputStream( new FileOutputStream( archive ) );
+        try
+        {
+            for ( int i = 0; i < entries.length; i += 2 )
+            {
+                out.putNextEntry( new ZipEntry( entries[i] ) );
+                out.write( entries[i + 1].getBytes( "UTF-8" ) );
+                out.closeEntry();
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+}
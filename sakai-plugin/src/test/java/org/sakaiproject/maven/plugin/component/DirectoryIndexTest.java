@@ -0,0 +1,98 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+
+public class DirectoryIndexTest
+    extends AbstractMojoTestCase
+{
+    private static File testDirectory = new File( getBasedir(), "target/test-classes/unit/directoryindex-test" );
+
+    private File directory;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        FileUtils.deleteDirectory( testDirectory );
+        directory = new File( testDirectory, "shared/lib" );
+        directory.mkdirs();
+        FileUtils.fileWrite( new File( directory, "sakai-kernel-api-1.0.jar" ).getPath(), "1.0" );
+        FileUtils.fileWrite( new File( directory, "commons-lang-2.4.jar" ).getPath(), "2.4" );
+    }
+
+    public void testNamesStartingWith()
+    {
+        DirectoryIndex index = DirectoryIndex.forDirectory( directory );
+        assertSame( index, DirectoryIndex.forDirectory( new File( directory.getPath() ) ) );
+        assertEquals( 1, index.getNamesStartingWith( "sakai-kernel-api" ).size() );
+        assertTrue( index.getNamesStartingWith( "sakai-kernel-impl" ).isEmpty() );
+    }
+
+    public void testFileAddedByOthersIsNoticed()
+        throws Exception
+    {
+        DirectoryIndex index = DirectoryIndex.forDirectory( directory );
+        assertEquals( 1, index.getNamesStartingWith( "sakai-kernel-api" ).size() );
+
+        // added within the timestamp resolution of the directory, which does not change
+        long lastModified = directory.lastModified();
+        FileUtils.fileWrite( new File( directory, "sakai-kernel-api-1.1.jar" ).getPath(), "1.1" );
+        directory.setLastModified( lastModified );
+        assertEquals( 2, index.getNamesStartingWith( "sakai-kernel-api" ).size() );
+
+        new File( directory, "sakai-kernel-api-1.0.jar" ).delete();
+        assertEquals( 1, index.getNamesStartingWith( "sakai-kernel-api" ).size() );
+    }
+
+    public void testChangesRecordedByTheIndex()
+        throws Exception
+    {
+        DirectoryIndex index = DirectoryIndex.forDirectory( directory );
+        index.getNamesStartingWith( "sakai-kernel-api" );
+        FileUtils.fileWrite( new File( directory, "sakai-kernel-api-1.1.jar" ).getPath(), "1.1" );
+        index.added( "sakai-kernel-api-1.1.jar" );
+        assertEquals( 2, index.getNamesStartingWith( "sakai-kernel-api" ).size() );
+        new File( directory, "sakai-kernel-api-1.0.jar" ).delete();
+        index.removed( "sakai-kernel-api-1.0.jar" );
+        assertEquals( 1, index.getNamesStartingWith( "sakai-kernel-api" ).size() );
+    }
+
+    public void testDeploymentsDoNotListTheDirectoryAgain()
+        throws Exception
+    {
+        File lib = new File( testDirectory, "common/lib" );
+        lib.mkdirs();
+        DirectoryIndex index = DirectoryIndex.forDirectory( lib );
+        for ( int i = 0; i < 20; i++ )
+        {
+            String name = "library-" + i + "-1.0.jar";
+            assertTrue( index.getNamesStartingWith( "library-" + i + "-" ).isEmpty() );
+            FileUtils.fileWrite( new File( lib, name ).getPath(), "jar" );
+            index.added( name );
+        }
+        assertEquals( 20, index.getNamesStartingWith( "library-" ).size() );
+        assertEquals( 1, index.getListings() );
+    }
+}
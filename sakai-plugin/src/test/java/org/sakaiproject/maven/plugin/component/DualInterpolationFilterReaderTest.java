@@ -0,0 +1,94 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.InterpolationFilterReader;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+public class DualInterpolationFilterReaderTest
+    extends AbstractMojoTestCase
+{
+    private Properties variables;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        variables = new Properties();
+        variables.setProperty( "name", "sakai" );
+        variables.setProperty( "empty", "" );
+        variables.setProperty( "at", "@name@" );
+        variables.setProperty( "half", "na" );
+    }
+
+    public void testBothSyntaxes()
+        throws Exception
+    {
+        assertEquals( "sakai and sakai", filter( "${name} and @name@" ) );
+        assertEquals( "${missing} @missing@", filter( "${missing} @missing@" ) );
+        assertEquals( "[]", filter( "[${empty}]" ) );
+    }
+
+    public void testSameAsStackedReaders()
+        throws Exception
+    {
+        String[] inputs = { "${at}", "@${half}me@", "user@host @name@", "@@name@", "$${name}", "${na${name}}",
+            "${name", "tail @", "$ {name}", "mail@x.org and ${name}@name@" };
+        for ( int i = 0; i < inputs.length; i++ )
+        {
+            assertEquals( inputs[i], stacked( inputs[i] ), filter( inputs[i] ) );
+        }
+    }
+
+    public void testResolvedTokensAreShared()
+        throws Exception
+    {
+        Map<String, String> resolved = new HashMap<String, String>();
+        IOUtil.toString( new DualInterpolationFilterReader( new StringReader( "${name} @missing@" ), variables,
+                                                            resolved ) );
+        assertEquals( "sakai", resolved.get( "name" ) );
+        assertTrue( resolved.containsKey( "missing" ) );
+
+        variables.setProperty( "name", "changed" );
+        assertEquals( "sakai", IOUtil.toString(
+            new DualInterpolationFilterReader( new StringReader( "${name}" ), variables, resolved ) ) );
+    }
+
+    private String filter( String input )
+        throws Exception
+    {
+        return IOUtil.toString( new DualInterpolationFilterReader( new StringReader( input ), variables ) );
+    }
+
+    private String stacked( String input )
+        throws Exception
+    {
+        Reader reader = new InterpolationFilterReader( new StringReader( input ), variables, "${", "}" );
+        reader = new InterpolationFilterReader( reader, variables, "@", "@" );
+        return IOUtil.toString( reader );
+    }
+}
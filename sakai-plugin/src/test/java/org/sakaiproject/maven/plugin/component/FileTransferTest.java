@@ -0,0 +1,72 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+
+public class FileTransferTest
+    extends AbstractMojoTestCase
+{
+    private static File testDirectory = new File( getBasedir(), "target/test-classes/unit/filetransfer-test" );
+
+    private File repository;
+
+    private File destination;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        FileUtils.deleteDirectory( testDirectory );
+        repository = new File( testDirectory, "repository/lib-1.0.jar" );
+        destination = new File( testDirectory, "webapp/WEB-INF/lib/lib-1.0.jar" );
+        repository.getParentFile().mkdirs();
+        FileUtils.fileWrite( repository.getPath(), "repository" );
+    }
+
+    public void testCopyCreatesParentDirectories()
+        throws Exception
+    {
+        FileTransfer.copy( repository, destination );
+        assertEquals( "repository", FileUtils.fileRead( destination ) );
+        assertEquals( "no temporary file left", 1, destination.getParentFile().list().length );
+    }
+
+    public void testCopyDoesNotWriteThroughALink()
+        throws Exception
+    {
+        if ( !FileTransfer.link( repository, destination ) )
+        {
+            // the JVM or the file system cannot create links
+            return;
+        }
+        File source = new File( testDirectory, "target/lib-1.0.jar" );
+        source.getParentFile().mkdirs();
+        FileUtils.fileWrite( source.getPath(), "rebuilt" );
+
+        FileTransfer.copy( source, destination );
+        assertEquals( "rebuilt", FileUtils.fileRead( destination ) );
+        assertEquals( "repository changed through the link", "repository", FileUtils.fileRead( repository ) );
+        assertEquals( "no temporary file left", 1, destination.getParentFile().list().length );
+    }
+}
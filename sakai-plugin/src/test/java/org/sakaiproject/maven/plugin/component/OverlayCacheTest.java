@@ -0,0 +1,162 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class OverlayCacheTest
+    extends AbstractMojoTestCase
+{
+    private static File testDirectory = new File( getBasedir(), "target/test-classes/unit/overlaycache-test" );
+
+    private File cacheDirectory;
+
+    private File war;
+
+    private AtomicInteger unpacked = new AtomicInteger();
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        FileUtils.deleteDirectory( testDirectory );
+        cacheDirectory = new File( testDirectory, "repository/.cache/sakai-overlays" );
+        war = new File( testDirectory, "repository/overlay-1.0.war" );
+        war.getParentFile().mkdirs();
+        FileUtils.fileWrite( war.getPath(), "first build" );
+    }
+
+    public void testUnpackedWarIsReused()
+        throws Exception
+    {
+        File first = new OverlayCache( cacheDirectory, new SystemStreamLog() ).get( war, unpacker() );
+        File second = new OverlayCache( cacheDirectory, new SystemStreamLog() ).get( war, unpacker() );
+
+        assertEquals( first, second );
+        assertEquals( "war unpacked again", 1, unpacked.get() );
+        assertEquals( "first build", FileUtils.fileRead( new File( second, "index.html" ) ) );
+        assertTrue( second.getName().startsWith( "overlay-1.0-" ) );
+    }
+
+    public void testBuildsRacingToUnpackTheSameWarShareOneEntry()
+        throws Exception
+    {
+        final CountDownLatch started = new CountDownLatch( 2 );
+        final OverlayCache.Unpacker unpacker = new OverlayCache.Unpacker()
+        {
+            public void unpack( File war, File directory )
+                throws MojoExecutionException
+            {
+                started.countDown();
+                try
+                {
+                    // both builds are unpacking before either one is done
+                    started.await( 10, TimeUnit.SECONDS );
+                    FileUtils.fileWrite( new File( directory, "index.html" ).getPath(), "first build" );
+                }
+                catch ( Exception e )
+                {
+                    throw new MojoExecutionException( "Could not unpack", e );
+                }
+                unpacked.incrementAndGet();
+            }
+        };
+        Callable<File> build = new Callable<File>()
+        {
+            public File call()
+                throws Exception
+            {
+                return new OverlayCache( cacheDirectory, new SystemStreamLog() ).get( war, unpacker );
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            Future<File> first = executor.submit( build );
+            Future<File> second = executor.submit( build );
+            assertEquals( first.get(), second.get() );
+            assertEquals( 2, unpacked.get() );
+            assertEquals( "first build", FileUtils.fileRead( new File( first.get(), "index.html" ) ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        assertEquals( "temporary directory left behind", 1, cacheDirectory.list().length );
+    }
+
+    public void testStaleEntriesAreRemovedUnlessInUse()
+        throws Exception
+    {
+        OverlayCache cache = new OverlayCache( cacheDirectory, new SystemStreamLog() );
+        File inUse = cache.get( war, unpacker() );
+        inUse.setLastModified( System.currentTimeMillis() - OverlayCache.STALE_AGE - 60000 );
+
+        // an entry left by an earlier build, and one being unpacked by another build
+        File stale = new File( cacheDirectory, "overlay-1.0-0123456789abcdef0123456789abcdef" );
+        stale.mkdirs();
+        stale.setLastModified( System.currentTimeMillis() - OverlayCache.STALE_AGE - 60000 );
+        File unpacking = new File( cacheDirectory, ".unpack-overlay-1.0-" + System.nanoTime() );
+        unpacking.mkdirs();
+        unpacking.setLastModified( System.currentTimeMillis() - OverlayCache.STALE_AGE - 60000 );
+
+        FileUtils.fileWrite( war.getPath(), "second build" );
+        war.setLastModified( war.lastModified() + 2000 );
+        File current = cache.get( war, unpacker() );
+
+        assertFalse( current.equals( inUse ) );
+        assertFalse( "stale entry kept", stale.exists() );
+        assertTrue( "entry in use removed", inUse.isDirectory() );
+        assertTrue( "entry being unpacked removed", unpacking.isDirectory() );
+    }
+
+    private OverlayCache.Unpacker unpacker()
+    {
+        return new OverlayCache.Unpacker()
+        {
+            public void unpack( File war, File directory )
+                throws MojoExecutionException
+            {
+                try
+                {
+                    FileUtils.fileWrite( new File( directory, "index.html" ).getPath(), FileUtils.fileRead( war ) );
+                }
+                catch ( Exception e )
+                {
+                    throw new MojoExecutionException( "Could not unpack", e );
+                }
+                unpacked.incrementAndGet();
+            }
+        };
+    }
+}
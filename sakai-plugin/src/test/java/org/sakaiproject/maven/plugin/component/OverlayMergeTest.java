@@ -0,0 +1,101 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class OverlayMergeTest
+    extends AbstractMojoTestCase
+{
+    private static File testDirectory = new File( getBasedir(), "target/test-classes/unit/overlaymerge-test" );
+
+    private File directory;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        FileUtils.deleteDirectory( testDirectory );
+        testDirectory.mkdirs();
+        directory = new File( testDirectory, "tomcat" );
+    }
+
+    public void testLaterArchiveWins()
+        throws Exception
+    {
+        File first = createArchive( "first.zip", new String[]{ "conf/server.xml", "<first/>", "bin/setenv.sh", "x" } );
+        File second = createArchive( "second.zip", new String[]{ "conf/server.xml", "<second/>", "bin/setenv.sh", "x",
+            "lib/extra.jar", "jar" } );
+        File notZip = new File( testDirectory, "notzip.tar.gz" );
+        FileUtils.fileWrite( notZip.getPath(), "not a zip" );
+
+        OverlayMerge merge = new OverlayMerge( directory );
+        try
+        {
+            assertTrue( merge.add( first, "first" ) );
+            assertTrue( merge.add( second, "second" ) );
+            assertFalse( merge.add( notZip, "notzip" ) );
+            assertEquals( 3, merge.size() );
+            assertEquals( 1, merge.getConflicts().size() );
+            assertEquals( 1, merge.getIdentical() );
+
+            List<Callable<File>> tasks = merge.createTasks();
+            for ( Callable<File> task : tasks )
+            {
+                task.call();
+            }
+        }
+        finally
+        {
+            merge.close();
+        }
+        assertEquals( "<second/>", FileUtils.fileRead( new File( directory, "conf/server.xml" ) ) );
+        assertEquals( "jar", FileUtils.fileRead( new File( directory, "lib/extra.jar" ) ) );
+    }
+
+    private File createArchive( String name, String[] entries )
+        throws Exception
+    {
+        File archive = new File( testDirectory, name );
+        ZipOutputStream out = new ZipOutputStream( new FileOutputStream( archive ) );
+        try
+        {
+            for ( int i = 0; i < entries.length; i += 2 )
+            {
+                out.putNextEntry( new ZipEntry( entries[i] ) );
+                out.write( entries[i + 1].getBytes( "UTF-8" ) );
+                out.closeEntry();
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+        return archive;
+    }
+}
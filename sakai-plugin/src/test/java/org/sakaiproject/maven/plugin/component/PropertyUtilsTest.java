@@ -75,6 +75,35 @@ public class PropertyUtilsTest
         assertTrue( prop.getProperty( "key" ).equals( System.getProperty( "user.dir" ) ) );
     }
 
+    public void testChainsAndCycles()
+        throws Exception
+    {
+        File chainProp = new File( testDirectory, "chain.properties" );
+
+        if ( chainProp.exists() )
+        {
+            chainProp.delete();
+        }
+
+        chainProp.createNewFile();
+        FileWriter writer = new FileWriter( chainProp );
+
+        writer.write( "link0=end\n" );
+        for ( int i = 1; i < 5000; i++ )
+        {
+            writer.write( "link" + i + "=${link" + ( i - 1 ) + "}\n" );
+        }
+        writer.write( "self=${self}\n" );
+        writer.write( "open=a${b\n" );
+        writer.flush();
+        writer.close();
+
+        Properties prop = PropertyUtils.loadPropertyFile( chainProp, false, false );
+        assertEquals( "end", prop.getProperty( "link4999" ) );
+        assertEquals( "${self}", prop.getProperty( "self" ) );
+        assertEquals( "a${b", prop.getProperty( "open" ) );
+    }
+
     public void testException()
         throws Exception
     {
@@ -0,0 +1,129 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+public class SourceWatcherTest
+    extends AbstractMojoTestCase
+{
+    private static File testDirectory = new File( getBasedir(), "target/test-classes/unit/sourcewatcher-test" );
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        FileUtils.deleteDirectory( testDirectory );
+        new File( testDirectory, "images" ).mkdirs();
+        FileUtils.fileWrite( new File( testDirectory, "index.jsp" ).getPath(), "<html/>" );
+        FileUtils.fileWrite( new File( testDirectory, "images/logo.png" ).getPath(), "png" );
+        FileUtils.fileWrite( new File( testDirectory, "notes.txt" ).getPath(), "notes" );
+    }
+
+    public void testChangesAreReported()
+        throws Exception
+    {
+        SourceWatcher watcher = new SourceWatcher( testDirectory, new String[0], new String[]{ "*.txt" }, false );
+        List<String> changed = new ArrayList<String>();
+        List<String> removed = new ArrayList<String>();
+        assertFalse( watcher.poll( changed, removed ) );
+
+        FileUtils.fileWrite( new File( testDirectory, "index.jsp" ).getPath(), "<html></html>" );
+        FileUtils.fileWrite( new File( testDirectory, "images/icon.png" ).getPath(), "icon" );
+        FileUtils.fileWrite( new File( testDirectory, "notes.txt" ).getPath(), "more notes" );
+        new File( testDirectory, "images/logo.png" ).delete();
+        assertTrue( watcher.poll( changed, removed ) );
+
+        Collections.sort( changed );
+        assertEquals( "[images/icon.png, index.jsp]", changed.toString() );
+        assertEquals( "[images/logo.png]", removed.toString() );
+        assertEquals( "[images/icon.png, index.jsp]", watcher.getPaths().toString() );
+
+        changed.clear();
+        removed.clear();
+        assertFalse( watcher.poll( changed, removed ) );
+        assertTrue( changed.isEmpty() );
+    }
+
+    public void testChangesAreReportedByTheWatchService()
+        throws Exception
+    {
+        SourceWatcher watcher = new SourceWatcher( testDirectory, new String[0], new String[]{ "*.txt" } );
+        try
+        {
+            List<String> changed = new ArrayList<String>();
+            List<String> removed = new ArrayList<String>();
+            assertFalse( watcher.poll( changed, removed ) );
+
+            FileUtils.fileWrite( new File( testDirectory, "index.jsp" ).getPath(), "<html></html>" );
+            new File( testDirectory, "images/logo.png" ).delete();
+            new File( testDirectory, "css" ).mkdirs();
+            FileUtils.fileWrite( new File( testDirectory, "css/site.css" ).getPath(), "body {}" );
+            FileUtils.fileWrite( new File( testDirectory, "notes.txt" ).getPath(), "more notes" );
+            waitFor( watcher, changed, removed, "[css/site.css, index.jsp]", "[images/logo.png]" );
+            assertEquals( "[css/site.css, index.jsp]", watcher.getPaths().toString() );
+
+            // the new directory is watched too
+            changed.clear();
+            removed.clear();
+            FileUtils.fileWrite( new File( testDirectory, "css/print.css" ).getPath(), "body {}" );
+            waitFor( watcher, changed, removed, "[css/print.css]", "[]" );
+
+            FileUtils.deleteDirectory( new File( testDirectory, "css" ) );
+            changed.clear();
+            removed.clear();
+            waitFor( watcher, changed, removed, "[]", "[css/print.css, css/site.css]" );
+        }
+        finally
+        {
+            watcher.close();
+        }
+    }
+
+    /**
+     * Polls until the expected changes have all been reported, as the watch service may report them late or over
+     * several polls.
+     */
+    private static void waitFor( SourceWatcher watcher, List<String> changed, List<String> removed,
+                                 String expectedChanged, String expectedRemoved )
+        throws InterruptedException
+    {
+        for ( int i = 0; i < 100; i++ )
+        {
+            watcher.poll( changed, removed );
+            if ( new TreeSet<String>( changed ).toString().equals( expectedChanged )
+                && new TreeSet<String>( removed ).toString().equals( expectedRemoved ) )
+            {
+                return;
+            }
+            Thread.sleep( 50 );
+        }
+        assertEquals( expectedChanged, new TreeSet<String>( changed ).toString() );
+        assertEquals( expectedRemoved, new TreeSet<String>( removed ).toString() );
+    }
+}
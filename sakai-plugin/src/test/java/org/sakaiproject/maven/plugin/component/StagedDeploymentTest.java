@@ -0,0 +1,128 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.util.List;
+
+public class StagedDeploymentTest
+    extends AbstractMojoTestCase
+{
+    private static File testDirectory = new File( getBasedir(), "target/test-classes/unit/stageddeployment-test" );
+
+    private File deployDirectory;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        FileUtils.deleteDirectory( testDirectory );
+        deployDirectory = new File( testDirectory, "tomcat" );
+        deployDirectory.mkdirs();
+    }
+
+    public void testDirectoryIsReplacedAsAWhole()
+        throws Exception
+    {
+        File target = new File( deployDirectory, "components/sakai-component" );
+        FileUtils.fileWrite( mkdirs( new File( target, "WEB-INF/old.xml" ) ).getPath(), "old" );
+        FileUtils.fileWrite( mkdirs( new File( target, "WEB-INF/components.xml" ) ).getPath(), "old" );
+
+        StagedDeployment deployment = new StagedDeployment( deployDirectory );
+        File stage = deployment.stage( target );
+        assertFalse( "stage exists before it is written", stage.exists() );
+        FileUtils.fileWrite( mkdirs( new File( stage, "WEB-INF/components.xml" ) ).getPath(), "new" );
+
+        List<File> published = deployment.publish();
+        assertEquals( 1, published.size() );
+        assertEquals( target, published.get( 0 ) );
+        assertEquals( "new", FileUtils.fileRead( new File( target, "WEB-INF/components.xml" ) ) );
+        assertFalse( "old content survived", new File( target, "WEB-INF/old.xml" ).exists() );
+
+        deployment.cleanup();
+        assertNothingStaged();
+    }
+
+    public void testFileIsReplacedAndUnwrittenStagesAreSkipped()
+        throws Exception
+    {
+        File jar = new File( deployDirectory, "shared/lib/sakai-kernel-api.jar" );
+        FileUtils.fileWrite( mkdirs( jar ).getPath(), "old" );
+        File untouched = new File( deployDirectory, "webapps/untouched" );
+        FileUtils.fileWrite( mkdirs( new File( untouched, "index.html" ) ).getPath(), "live" );
+
+        StagedDeployment deployment = new StagedDeployment( deployDirectory );
+        FileUtils.fileWrite( deployment.stage( jar ).getPath(), "new" );
+        deployment.stage( untouched );
+
+        List<File> published = deployment.publish();
+        assertEquals( 1, published.size() );
+        assertEquals( "new", FileUtils.fileRead( jar ) );
+        assertEquals( "live", FileUtils.fileRead( new File( untouched, "index.html" ) ) );
+
+        deployment.cleanup();
+        assertNothingStaged();
+    }
+
+    public void testCleanupRemovesUnpublishedStages()
+        throws Exception
+    {
+        File target = new File( deployDirectory, "webapps/portal" );
+        StagedDeployment deployment = new StagedDeployment( deployDirectory );
+        FileUtils.fileWrite( mkdirs( new File( deployment.stage( target ), "index.html" ) ).getPath(), "new" );
+
+        deployment.cleanup();
+        assertFalse( "unpublished stage deployed", target.exists() );
+        assertNothingStaged();
+    }
+
+    public void testCleanupLeavesOtherDeploymentsAlone()
+        throws Exception
+    {
+        File jar = new File( deployDirectory, "shared/lib/sakai-kernel-api.jar" );
+        StagedDeployment first = new StagedDeployment( deployDirectory );
+        StagedDeployment second = new StagedDeployment( deployDirectory );
+        first.cleanup();
+
+        FileUtils.fileWrite( mkdirs( second.stage( jar ) ).getPath(), "new" );
+        assertEquals( 1, second.publish().size() );
+        assertEquals( "new", FileUtils.fileRead( jar ) );
+        second.cleanup();
+        assertNothingStaged();
+
+        new StagedDeployment( deployDirectory ).cleanup();
+    }
+
+    private void assertNothingStaged()
+    {
+        String[] left = new File( deployDirectory, ".sakai-staging" ).list();
+        assertNotNull( "staging directory removed", left );
+        assertEquals( "staging directory left behind", 0, left.length );
+    }
+
+    private static File mkdirs( File file )
+    {
+        file.getParentFile().mkdirs();
+        return file;
+    }
+}
@@ -0,0 +1,173 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class StagingTasksTest
+    extends AbstractMojoTestCase
+{
+    public void testTasksRunInParallelAndKeepTheirOrder()
+        throws Exception
+    {
+        final CountDownLatch running = new CountDownLatch( 2 );
+        final Set<Thread> threads = Collections.synchronizedSet( new HashSet<Thread>() );
+        List<Callable<File>> tasks = new ArrayList<Callable<File>>();
+        for ( int i = 0; i < 8; i++ )
+        {
+            final File file = new File( "file-" + i );
+            final long delay = ( 8 - i ) * 5;
+            tasks.add( new Callable<File>()
+            {
+                public File call()
+                    throws Exception
+                {
+                    threads.add( Thread.currentThread() );
+                    running.countDown();
+                    // the first tasks only finish once another one runs
+                    running.await( 10, TimeUnit.SECONDS );
+                    Thread.sleep( delay );
+                    return file;
+                }
+            } );
+        }
+
+        List<File> results = StagingTasks.run( tasks, 4 );
+        assertEquals( 8, results.size() );
+        for ( int i = 0; i < 8; i++ )
+        {
+            assertEquals( new File( "file-" + i ), results.get( i ) );
+        }
+        assertTrue( "tasks ran on one thread", threads.size() > 1 );
+        assertFalse( "task ran on the build thread", threads.contains( Thread.currentThread() ) );
+    }
+
+    public void testSingleThreadRunsTheTasksOnTheBuildThread()
+        throws Exception
+    {
+        final List<Thread> threads = new ArrayList<Thread>();
+        List<Callable<File>> tasks = new ArrayList<Callable<File>>();
+        for ( int i = 0; i < 3; i++ )
+        {
+            final File file = new File( "file-" + i );
+            tasks.add( new Callable<File>()
+            {
+                public File call()
+                {
+                    threads.add( Thread.currentThread() );
+                    return file;
+                }
+            } );
+        }
+
+        assertEquals( 3, StagingTasks.run( tasks, 1 ).size() );
+        assertEquals( Collections.nCopies( 3, Thread.currentThread() ), threads );
+    }
+
+    public void testFailureOfAParallelTaskIsRethrown()
+        throws Exception
+    {
+        IOException failure = new IOException( "disk full" );
+        try
+        {
+            StagingTasks.run( failingTasks( failure ), 4 );
+            fail( "failure not rethrown" );
+        }
+        catch ( IOException e )
+        {
+            assertSame( failure, e );
+        }
+
+        MojoExecutionException mojoFailure = new MojoExecutionException( "cannot unpack" );
+        try
+        {
+            StagingTasks.run( failingTasks( mojoFailure ), 4 );
+            fail( "failure not rethrown" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            assertSame( mojoFailure, e );
+        }
+
+        RuntimeException bug = new IllegalStateException( "bug" );
+        try
+        {
+            StagingTasks.run( failingTasks( bug ), 4 );
+            fail( "failure not rethrown" );
+        }
+        catch ( IllegalStateException e )
+        {
+            assertSame( bug, e );
+        }
+    }
+
+    public void testOtherFailuresAreWrapped()
+        throws Exception
+    {
+        Exception failure = new Exception( "unexpected" );
+        try
+        {
+            StagingTasks.run( failingTasks( failure ), 4 );
+            fail( "failure not rethrown" );
+        }
+        catch ( MojoExecutionException e )
+        {
+            assertSame( failure, e.getCause() );
+        }
+    }
+
+    /**
+     * Returns tasks of which the second one fails.
+     */
+    private static List<Callable<File>> failingTasks( final Exception failure )
+    {
+        List<Callable<File>> tasks = new ArrayList<Callable<File>>();
+        for ( int i = 0; i < 3; i++ )
+        {
+            final boolean fails = i == 1;
+            tasks.add( new Callable<File>()
+            {
+                public File call()
+                    throws Exception
+                {
+                    if ( fails )
+                    {
+                        throw failure;
+                    }
+                    return new File( "file" );
+                }
+            } );
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,151 @@
+package org.sakaiproject.maven.plugin.component;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.plugin.testing.AbstractMojoTestCase;
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.TimeZone;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+public class WarWriterTest
+    extends AbstractMojoTestCase
+{
+    private static File testDirectory = new File( getBasedir(), "target/test-classes/unit/warwriter-test" );
+
+    private File source;
+
+    private File warFile;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        FileUtils.deleteDirectory( testDirectory );
+        source = new File( testDirectory, "source" );
+        source.mkdirs();
+        warFile = new File( testDirectory, "component.war" );
+        FileUtils.fileWrite( new File( source, "web.xml" ).getPath(), "<web-app/>" );
+        FileUtils.fileWrite( new File( source, "library.jar" ).getPath(), "not really a jar" );
+    }
+
+    public void testUnchangedWarIsIdentical()
+        throws Exception
+    {
+        assertEquals( 0, write() );
+        byte[] first = FileUtils.fileRead( warFile, "ISO-8859-1" ).getBytes( "ISO-8859-1" );
+
+        new File( source, "web.xml" ).setLastModified( System.currentTimeMillis() + 10000 );
+        assertEquals( 3, write() );
+        byte[] second = FileUtils.fileRead( warFile, "ISO-8859-1" ).getBytes( "ISO-8859-1" );
+        assertTrue( "war changed", java.util.Arrays.equals( first, second ) );
+    }
+
+    public void testChangedEntryIsWritten()
+        throws Exception
+    {
+        write();
+        FileUtils.fileWrite( new File( source, "web.xml" ).getPath(), "<web-app version=\"2.4\"/>" );
+        assertEquals( 2, write() );
+
+        JarFile jar = new JarFile( warFile );
+        try
+        {
+            assertNotNull( "manifest not found", jar.getManifest() );
+            ZipEntry library = jar.getEntry( "WEB-INF/lib/library.jar" );
+            assertEquals( "jar compressed again", ZipEntry.STORED, library.getMethod() );
+            assertEquals( "<web-app version=\"2.4\"/>",
+                          IOUtil.toString( jar.getInputStream( jar.getEntry( "WEB-INF/web.xml" ) ) ) );
+        }
+        finally
+        {
+            jar.close();
+        }
+    }
+
+    public void testFixedTimeDoesNotDependOnTheTimeZone()
+        throws Exception
+    {
+        // 2010-01-01T12:00:00Z
+        long fixedTime = 1262347200000L;
+        TimeZone zone = TimeZone.getDefault();
+        try
+        {
+            TimeZone.setDefault( TimeZone.getTimeZone( "America/New_York" ) );
+            write( fixedTime );
+            byte[] first = FileUtils.fileRead( warFile, "ISO-8859-1" ).getBytes( "ISO-8859-1" );
+
+            TimeZone.setDefault( TimeZone.getTimeZone( "Asia/Tokyo" ) );
+            FileUtils.deleteDirectory( testDirectory );
+            setUp();
+            write( fixedTime );
+            byte[] second = FileUtils.fileRead( warFile, "ISO-8859-1" ).getBytes( "ISO-8859-1" );
+            assertTrue( "war depends on the time zone", Arrays.equals( first, second ) );
+
+            TimeZone.setDefault( TimeZone.getTimeZone( "UTC" ) );
+            ZipFile zip = new ZipFile( warFile );
+            try
+            {
+                assertEquals( fixedTime, zip.getEntry( "WEB-INF/web.xml" ).getTime() );
+            }
+            finally
+            {
+                zip.close();
+            }
+        }
+        finally
+        {
+            TimeZone.setDefault( zone );
+        }
+    }
+
+    /**
+     * @return the number of entries copied from the previous war
+     */
+    private int write()
+        throws Exception
+    {
+        return write( -1 );
+    }
+
+    private int write( long fixedTime )
+        throws Exception
+    {
+        WarWriter writer = new WarWriter( warFile, true, fixedTime );
+        try
+        {
+            writer.addManifest( new Manifest() );
+            writer.addFile( "WEB-INF/lib/library.jar", new File( source, "library.jar" ) );
+            writer.addFile( "WEB-INF/web.xml", new File( source, "web.xml" ) );
+            writer.close();
+        }
+        finally
+        {
+            writer.abort();
+        }
+        return writer.getReused();
+    }
+}
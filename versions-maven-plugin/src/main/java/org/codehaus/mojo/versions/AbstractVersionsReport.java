@@ -31,6 +31,8 @@ import org.apache.maven.artifact.versioning.VersionRange;
 import org.apache.maven.doxia.sink.Sink;
 import org.apache.maven.doxia.siterenderer.Renderer;
 import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Plugin;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.project.path.PathTranslator;
@@ -40,9 +42,15 @@ import org.apache.maven.settings.Settings;
 import org.codehaus.mojo.versions.api.ArtifactVersions;
 import org.codehaus.mojo.versions.api.DefaultVersionsHelper;
 import org.codehaus.mojo.versions.api.VersionsHelper;
+import org.codehaus.mojo.versions.utils.ReportCache;
+import org.codehaus.mojo.versions.utils.ReportFingerprint;
 import org.codehaus.plexus.i18n.I18N;
 
 import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 
@@ -193,6 +201,25 @@ public abstract class AbstractVersionsReport
      */
     protected Boolean allowSnapshots;
 
+    /**
+     * Whether to reuse the previously rendered report when neither the report inputs (dependencies, plugins,
+     * properties and rules) nor the repository metadata in the local repository have changed.
+     *
+     * @parameter expression="${versions.reuseReports}" default-value="true"
+     * @since 1.2
+     */
+    private Boolean reuseReports;
+
+    /**
+     * The maximum age, in minutes, of a previously rendered report before it is regenerated regardless of whether its
+     * inputs have changed. This bounds how stale the reported updates can be, the default matches the daily update
+     * policy of remote repositories.
+     *
+     * @parameter expression="${versions.reportCacheMaxAge}" default-value="1440"
+     * @since 1.2
+     */
+    private int reportCacheMaxAge;
+
     /**
      * Our versions helper.
      */
@@ -245,7 +272,20 @@ public abstract class AbstractVersionsReport
         {
             try
             {
-                doGenerateReport( locale, getSink() );
+                ReportCache cache = getReportCache( locale );
+                if ( cache == null )
+                {
+                    doGenerateReport( locale, getSink() );
+                }
+                else if ( cache.replay( getSink() ) )
+                {
+                    getLog().info( "Inputs of " + getOutputName() + " are unchanged, reusing previous report" );
+                }
+                else
+                {
+                    doGenerateReport( locale, cache.record( getSink() ) );
+                    cache.store();
+                }
             }
             catch ( MojoExecutionException e )
             {
@@ -254,6 +294,100 @@ public abstract class AbstractVersionsReport
         }
     }
 
+    /**
+     * Creates the cache of the previously rendered report.
+     *
+     * @param locale the locale to generate the report for.
+     * @return the report cache or <code>null</code> if the report cannot be reused.
+     * @throws MavenReportException when things go wrong.
+     * @since 1.2
+     */
+    private ReportCache getReportCache( Locale locale )
+        throws MavenReportException
+    {
+        if ( Boolean.FALSE.equals( reuseReports ) || project.getBuild() == null ||
+            project.getBuild().getDirectory() == null )
+        {
+            return null;
+        }
+        ReportFingerprint fingerprint = new ReportFingerprint();
+        fingerprint.add( getOutputName() ).add( locale ).add( allowSnapshots ).add( comparisonMethod );
+        fingerprint.add( rulesUri ).add( serverId );
+        if ( rulesUri != null && rulesUri.startsWith( "file:" ) )
+        {
+            try
+            {
+                fingerprint.addFile( new File( new URI( rulesUri ) ) );
+            }
+            catch ( URISyntaxException e )
+            {
+                return null;
+            }
+            catch ( IllegalArgumentException e )
+            {
+                return null;
+            }
+        }
+        if ( !fingerprintInputs( fingerprint ) )
+        {
+            return null;
+        }
+        File cacheFile =
+            new File( project.getBuild().getDirectory(), "versions-reports/" + getOutputName() + ".cache" );
+        return new ReportCache( cacheFile, fingerprint.toString(), reportCacheMaxAge * 60000L, getLog() );
+    }
+
+    /**
+     * Adds everything the report depends on to the fingerprint. The default implementation returns
+     * <code>false</code> so that the report is always regenerated.
+     *
+     * @param fingerprint the fingerprint of the report inputs.
+     * @return <code>true</code> if the previously rendered report can be reused when the fingerprint is unchanged.
+     * @throws MavenReportException when things go wrong.
+     * @since 1.2
+     */
+    protected boolean fingerprintInputs( ReportFingerprint fingerprint )
+        throws MavenReportException
+    {
+        return false;
+    }
+
+    /**
+     * Adds the timestamps of the local repository metadata of the specified dependencies to the fingerprint.
+     *
+     * @param fingerprint  the fingerprint of the report inputs.
+     * @param dependencies the dependencies.
+     * @since 1.2
+     */
+    protected void fingerprintDependencyMetadata( ReportFingerprint fingerprint,
+                                                  Collection/*<Dependency>*/ dependencies )
+    {
+        fingerprint.addDependencies( dependencies );
+        for ( Iterator i = dependencies.iterator(); i.hasNext(); )
+        {
+            Dependency dependency = (Dependency) i.next();
+            fingerprint.addMetadata( localRepository.getBasedir(), dependency.getGroupId(),
+                                     dependency.getArtifactId() );
+        }
+    }
+
+    /**
+     * Adds the timestamps of the local repository metadata of the specified plugins to the fingerprint.
+     *
+     * @param fingerprint the fingerprint of the report inputs.
+     * @param plugins     the plugins.
+     * @since 1.2
+     */
+    protected void fingerprintPluginMetadata( ReportFingerprint fingerprint, Collection/*<Plugin>*/ plugins )
+    {
+        fingerprint.addPlugins( plugins );
+        for ( Iterator i = plugins.iterator(); i.hasNext(); )
+        {
+            Plugin plugin = (Plugin) i.next();
+            fingerprint.addMetadata( localRepository.getBasedir(), plugin.getGroupId(), plugin.getArtifactId() );
+        }
+    }
+
     /**
      * generates the report.
      *
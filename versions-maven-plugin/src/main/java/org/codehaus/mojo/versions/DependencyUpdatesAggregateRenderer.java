@@ -0,0 +1,67 @@
+package org.codehaus.mojo.versions;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.doxia.sink.Sink;
+import org.apache.maven.model.Dependency;
+import org.codehaus.mojo.versions.api.ArtifactVersions;
+import org.codehaus.plexus.i18n.I18N;
+import org.codehaus.plexus.util.StringUtils;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Renders the reactor wide dependency updates report, cross referencing each dependency with the modules using it.
+ *
+ * @since 1.2
+ */
+public class DependencyUpdatesAggregateRenderer
+    extends DependencyUpdatesRenderer
+{
+
+    private final Map/*<Dependency,Set<String>>*/ usage;
+
+    public DependencyUpdatesAggregateRenderer( Sink sink, I18N i18n, String bundleName, Locale locale,
+                                               Map/*<Dependency,ArtifactUpdateDetails>*/ dependencyUpdates,
+                                               Map/*<Dependency,ArtifactUpdateDetails>*/ dependencyManagementUpdates,
+                                               Map/*<Dependency,Set<String>>*/ usage )
+    {
+        super( sink, i18n, bundleName, locale, dependencyUpdates, dependencyManagementUpdates );
+        this.usage = usage;
+    }
+
+    protected void renderDependencyDetail( Dependency dependency, ArtifactVersions details )
+    {
+        super.renderDependencyDetail( dependency, details );
+        Set modules = (Set) usage.get( dependency );
+        if ( modules != null && !modules.isEmpty() )
+        {
+            sink.paragraph();
+            safeBold();
+            sink.text( getText( "report.usedBy" ) );
+            safeBold_();
+            sink.text( " " + StringUtils.join( modules.iterator(), ", " ) );
+            sink.paragraph_();
+        }
+    }
+
+}
@@ -0,0 +1,202 @@
+package org.codehaus.mojo.versions;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.artifact.metadata.ArtifactMetadataRetrievalException;
+import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
+import org.apache.maven.doxia.sink.Sink;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.reporting.MavenReportException;
+import org.codehaus.mojo.versions.utils.DependencyComparator;
+import org.codehaus.mojo.versions.utils.DependencyManagementUtils;
+import org.codehaus.mojo.versions.utils.ReportFingerprint;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Generates a single report of available updates for the distinct dependencies of all the projects in the reactor.
+ * The available versions of each dependency are only looked up once, no matter how many modules use it.
+ *
+ * @goal dependency-updates-aggregate-report
+ * @aggregator
+ * @requiresProject true
+ * @since 1.2
+ */
+public class DependencyUpdatesAggregateReport
+    extends AbstractVersionsReport
+{
+    /**
+     * The projects in the reactor.
+     *
+     * @parameter expression="${reactorProjects}"
+     * @required
+     * @readonly
+     * @since 1.2
+     */
+    private List reactorProjects;
+
+    /**
+     * The maximum number of concurrent version lookups. The versions are looked up one at a time by default, as the
+     * metadata source and wagon manager of Maven 2.0.x are not thread safe. Only raise this on a Maven version whose
+     * artifact resolution is thread safe, such as Maven 3.
+     *
+     * @parameter expression="${versions.lookupThreads}" default-value="1"
+     * @since 1.2
+     */
+    private int lookupThreads;
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean isExternalReport()
+    {
+        return false;
+    }
+
+    /**
+     * The report covers the whole reactor so it is only generated for the execution root.
+     *
+     * @return <code>true</code> if the project is the execution root.
+     */
+    public boolean canGenerateReport()
+    {
+        return getProject().isExecutionRoot();
+    }
+
+    /**
+     * generates the aggregated report.
+     *
+     * @param locale the locale to generate the report for.
+     * @param sink   the report formatting tool
+     */
+    protected void doGenerateReport( Locale locale, Sink sink )
+        throws MavenReportException
+    {
+        Map/*<Dependency,Set<String>>*/ dependencyManagementUsage = new TreeMap( new DependencyComparator() );
+        Map/*<Dependency,Set<String>>*/ dependencyUsage = new TreeMap( new DependencyComparator() );
+        collectReactorDependencies( reactorProjects, dependencyManagementUsage, dependencyUsage );
+
+        try
+        {
+            Map/*<Dependency,ArtifactVersions>*/ dependencyManagementUpdates = getHelper().lookupDependenciesUpdates(
+                dependencyManagementUsage.keySet(), false, lookupThreads );
+            Map/*<Dependency,ArtifactVersions>*/ dependencyUpdates =
+                getHelper().lookupDependenciesUpdates( dependencyUsage.keySet(), false, lookupThreads );
+
+            Map/*<Dependency,Set<String>>*/ usage = new TreeMap( new DependencyComparator() );
+            usage.putAll( dependencyManagementUsage );
+            usage.putAll( dependencyUsage );
+
+            DependencyUpdatesAggregateRenderer renderer =
+                new DependencyUpdatesAggregateRenderer( sink, getI18n(), getOutputName(), locale, dependencyUpdates,
+                                                        dependencyManagementUpdates, usage );
+            renderer.render();
+        }
+        catch ( InvalidVersionSpecificationException e )
+        {
+            throw new MavenReportException( e.getMessage(), e );
+        }
+        catch ( ArtifactMetadataRetrievalException e )
+        {
+            throw new MavenReportException( e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Collects the distinct dependencies and dependency management entries of the reactor, recording which modules
+     * declare each of them.
+     *
+     * @param reactorProjects           the projects in the reactor.
+     * @param dependencyManagementUsage the map to add the dependency management entries to.
+     * @param dependencyUsage           the map to add the dependencies to.
+     */
+    static void collectReactorDependencies( List/*<MavenProject>*/ reactorProjects,
+                                            Map/*<Dependency,Set<String>>*/ dependencyManagementUsage,
+                                            Map/*<Dependency,Set<String>>*/ dependencyUsage )
+    {
+        for ( Iterator i = reactorProjects.iterator(); i.hasNext(); )
+        {
+            MavenProject project = (MavenProject) i.next();
+
+            Set dependencyManagement = new TreeSet( new DependencyComparator() );
+            dependencyManagement.addAll( project.getDependencyManagement() == null
+                ? Collections.EMPTY_LIST
+                : project.getDependencyManagement().getDependencies() );
+
+            Set dependencies = new TreeSet( new DependencyComparator() );
+            dependencies.addAll( project.getDependencies() );
+            dependencies = DependencyManagementUtils.removeDependencyManagement( dependencies,
+                                                                                 dependencyManagement );
+
+            addUsage( dependencyManagementUsage, dependencyManagement, project );
+            addUsage( dependencyUsage, dependencies, project );
+        }
+        // anything managed somewhere in the reactor is reported with the dependency management
+        dependencyUsage.keySet().removeAll( dependencyManagementUsage.keySet() );
+    }
+
+    private static void addUsage( Map/*<Dependency,Set<String>>*/ usage, Set/*<Dependency>*/ dependencies,
+                                  MavenProject project )
+    {
+        for ( Iterator i = dependencies.iterator(); i.hasNext(); )
+        {
+            Dependency dependency = (Dependency) i.next();
+            Set modules = (Set) usage.get( dependency );
+            if ( modules == null )
+            {
+                modules = new TreeSet();
+                usage.put( dependency, modules );
+            }
+            modules.add( project.getArtifactId() );
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected boolean fingerprintInputs( ReportFingerprint fingerprint )
+    {
+        Map/*<Dependency,Set<String>>*/ dependencyManagementUsage = new TreeMap( new DependencyComparator() );
+        Map/*<Dependency,Set<String>>*/ dependencyUsage = new TreeMap( new DependencyComparator() );
+        collectReactorDependencies( reactorProjects, dependencyManagementUsage, dependencyUsage );
+        fingerprintDependencyMetadata( fingerprint, dependencyManagementUsage.keySet() );
+        fingerprint.addAll( dependencyManagementUsage );
+        fingerprintDependencyMetadata( fingerprint, dependencyUsage.keySet() );
+        fingerprint.addAll( dependencyUsage );
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public String getOutputName()
+    {
+        return "dependency-updates-aggregate-report";
+    }
+
+}
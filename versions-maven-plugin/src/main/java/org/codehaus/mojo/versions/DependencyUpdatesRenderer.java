@@ -202,7 +202,7 @@ public class DependencyUpdatesRenderer
         sink.table_();
     }
 
-    private void renderDependencyDetail( Dependency dependency, ArtifactVersions details )
+    protected void renderDependencyDetail( Dependency dependency, ArtifactVersions details )
     {
         sink.section2();
         sink.sectionTitle2();
@@ -22,13 +22,12 @@ package org.codehaus.mojo.versions;
 import org.apache.maven.artifact.metadata.ArtifactMetadataRetrievalException;
 import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
 import org.apache.maven.doxia.sink.Sink;
-import org.apache.maven.model.Dependency;
 import org.apache.maven.reporting.MavenReportException;
 import org.codehaus.mojo.versions.utils.DependencyComparator;
-import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.mojo.versions.utils.DependencyManagementUtils;
+import org.codehaus.mojo.versions.utils.ReportFingerprint;
 
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
@@ -71,14 +70,9 @@ public class DependencyUpdatesReport
     protected void doGenerateReport( Locale locale, Sink sink )
         throws MavenReportException
     {
-        Set dependencyManagement = new TreeSet( new DependencyComparator() );
-        dependencyManagement.addAll( getProject().getDependencyManagement() == null
-            ? Collections.EMPTY_LIST
-            : getProject().getDependencyManagement().getDependencies() );
-
-        Set dependencies = new TreeSet( new DependencyComparator() );
-        dependencies.addAll( getProject().getDependencies() );
-        dependencies = removeDependencyManagment( dependencies, dependencyManagement );
+        Set dependencyManagement = getDependencyManagement();
+        Set dependencies =
+            DependencyManagementUtils.removeDependencyManagement( getDependencies(), dependencyManagement );
 
         try
         {
@@ -102,43 +96,29 @@ public class DependencyUpdatesReport
     }
 
     /**
-     * Returns a set of dependencies where the dependencies which are defined in the dependency management section have
-     * been filtered out.
-     *
-     * @param dependencies         The set of dependencies.
-     * @param dependencyManagement The set of dependencies from the dependency management section.
-     * @return A new set of dependencies which are from the set of dependencies but not from the set of dependency
-     *         management dependencies.
-     * @since 1.0-beta-1
+     * {@inheritDoc}
      */
-    private static Set removeDependencyManagment( Set dependencies, Set dependencyManagement )
+    protected boolean fingerprintInputs( ReportFingerprint fingerprint )
     {
-        Set result = new TreeSet( new DependencyComparator() );
-        for ( Iterator i = dependencies.iterator(); i.hasNext(); )
-        {
-            Dependency c = (Dependency) i.next();
-            boolean matched = false;
-            Iterator j = dependencyManagement.iterator();
-            while ( !matched && j.hasNext() )
-            {
-                Dependency t = (Dependency) j.next();
-                if ( StringUtils.equals( t.getGroupId(), c.getGroupId() ) &&
-                    StringUtils.equals( t.getArtifactId(), c.getArtifactId() ) &&
-                    ( t.getScope() == null || StringUtils.equals( t.getScope(), c.getScope() ) ) &&
-                    ( t.getClassifier() == null || StringUtils.equals( t.getClassifier(), c.getClassifier() ) ) &&
-                    ( c.getVersion() == null || t.getVersion() == null ||
-                        StringUtils.equals( t.getVersion(), c.getVersion() ) ) )
-                {
-                    matched = true;
-                    break;
-                }
-            }
-            if ( !matched )
-            {
-                result.add( c );
-            }
-        }
-        return result;
+        fingerprintDependencyMetadata( fingerprint, getDependencyManagement() );
+        fingerprintDependencyMetadata( fingerprint, getDependencies() );
+        return true;
+    }
+
+    private Set getDependencyManagement()
+    {
+        Set dependencyManagement = new TreeSet( new DependencyComparator() );
+        dependencyManagement.addAll( getProject().getDependencyManagement() == null
+            ? Collections.EMPTY_LIST
+            : getProject().getDependencyManagement().getDependencies() );
+        return dependencyManagement;
+    }
+
+    private Set getDependencies()
+    {
+        Set dependencies = new TreeSet( new DependencyComparator() );
+        dependencies.addAll( getProject().getDependencies() );
+        return dependencies;
     }
 
     /**
@@ -23,13 +23,13 @@ import org.apache.maven.artifact.ArtifactUtils;
 import org.apache.maven.artifact.metadata.ArtifactMetadataRetrievalException;
 import org.apache.maven.artifact.versioning.ArtifactVersion;
 import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
-import org.apache.maven.model.Dependency;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.codehaus.mojo.versions.api.ArtifactVersions;
 import org.codehaus.mojo.versions.api.UpdateScope;
 import org.codehaus.mojo.versions.rewriting.ModifiedPomXMLEventReader;
 import org.codehaus.mojo.versions.utils.DependencyComparator;
+import org.codehaus.mojo.versions.utils.DependencyManagementUtils;
 import org.codehaus.plexus.util.StringUtils;
 
 import javax.xml.stream.XMLStreamException;
@@ -77,46 +77,6 @@ public class DisplayDependencyUpdatesMojo
     
     // --------------------- GETTER / SETTER METHODS ---------------------
 
-    /**
-     * Returns a set of dependencies where the dependencies which are defined in the dependency management section have
-     * been filtered out.
-     *
-     * @param dependencies         The set of dependencies.
-     * @param dependencyManagement The set of dependencies from the dependency management section.
-     * @return A new set of dependencies which are from the set of dependencies but not from the set of dependency
-     *         management dependencies.
-     * @since 1.0-beta-1
-     */
-    private static Set removeDependencyManagment( Set dependencies, Set dependencyManagement )
-    {
-        Set result = new TreeSet( new DependencyComparator() );
-        for ( Iterator i = dependencies.iterator(); i.hasNext(); )
-        {
-            Dependency c = (Dependency) i.next();
-            boolean matched = false;
-            Iterator j = dependencyManagement.iterator();
-            while ( !matched && j.hasNext() )
-            {
-                Dependency t = (Dependency) j.next();
-                if ( StringUtils.equals( t.getGroupId(), c.getGroupId() ) &&
-                    StringUtils.equals( t.getArtifactId(), c.getArtifactId() ) &&
-                    ( t.getScope() == null || StringUtils.equals( t.getScope(), c.getScope() ) ) &&
-                    ( t.getClassifier() == null || StringUtils.equals( t.getClassifier(), c.getClassifier() ) ) &&
-                    ( c.getVersion() == null || t.getVersion() == null ||
-                        StringUtils.equals( t.getVersion(), c.getVersion() ) ) )
-                {
-                    matched = true;
-                    break;
-                }
-            }
-            if ( !matched )
-            {
-                result.add( c );
-            }
-        }
-        return result;
-    }
-
     public boolean isProcessingDependencyManagement()
     {
         // true if true or null
@@ -152,7 +112,7 @@ public class DisplayDependencyUpdatesMojo
         Set dependencies = new TreeSet( new DependencyComparator() );
         dependencies.addAll( getProject().getDependencies() );
         if (!Boolean.FALSE.equals(processDependencyManagement)) {
-        	dependencies = removeDependencyManagment( dependencies, dependencyManagement );
+        	dependencies = DependencyManagementUtils.removeDependencyManagement( dependencies, dependencyManagement );
         }
 
         try
@@ -54,6 +54,7 @@ import org.apache.maven.project.interpolation.ModelInterpolator;
 import org.apache.maven.settings.Settings;
 import org.codehaus.mojo.versions.api.PomHelper;
 import org.codehaus.mojo.versions.rewriting.ModifiedPomXMLEventReader;
+import org.codehaus.mojo.versions.utils.ParallelLookups;
 import org.codehaus.mojo.versions.utils.PluginComparator;
 import org.codehaus.plexus.component.repository.exception.ComponentLookupException;
 import org.codehaus.plexus.util.ReflectionUtils;
@@ -64,6 +65,7 @@ import javax.xml.stream.events.XMLEvent;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -74,6 +76,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
 
 /**
@@ -132,8 +136,91 @@ public class DisplayPluginUpdatesMojo
      */
     private PluginManager pluginManager;
 
+    /**
+     * The maximum number of concurrent plugin version lookups. The versions are looked up one at a time by default, as
+     * the metadata source and wagon manager of Maven 2.0.x are not thread safe. Only raise this on a Maven version
+     * whose artifact resolution is thread safe, such as Maven 3.
+     *
+     * @parameter expression="${versions.lookupThreads}" default-value="1"
+     * @since 1.2
+     */
+    private int lookupThreads;
+
+    /**
+     * Results which only depend on the build session, shared by the executions for every module of the reactor.
+     *
+     * @since 1.2
+     */
+    private static final Map/*<MavenSession,SessionCache>*/ SESSION_CACHES = new WeakHashMap();
+
+    /**
+     * The results cached for a single build session.
+     *
+     * @since 1.2
+     */
+    static final class SessionCache
+    {
+        private Map superPomPluginManagement;
+
+        private final Map/*<String,PluginDescriptor>*/ pluginDescriptors = new HashMap();
+
+        private final Map/*<String,Map>*/ lifecycleMappings = new HashMap();
+
+        private final Map/*<String,List>*/ optionalMojos = new HashMap();
+
+        private final Map/*<List,Model>*/ interpolatedModels = new HashMap();
+
+        /**
+         * Returns the original model of a project interpolated with some properties, interpolating it on the first
+         * request for the same project id and properties only.
+         *
+         * @param project      the project whose original model is required.
+         * @param properties   the properties to interpolate with.
+         * @param interpolator the interpolator to use.
+         * @return the interpolated original model, which must not be modified.
+         * @throws ModelInterpolationException when the model cannot be interpolated.
+         * @since 1.2
+         */
+        Model getInterpolatedModel( MavenProject project, Map properties, ModelInterpolator interpolator )
+            throws ModelInterpolationException
+        {
+            List key = Arrays.asList( new Object[]{ project.getId(), new HashMap( properties ) } );
+            Model model = (Model) interpolatedModels.get( key );
+            if ( model == null )
+            {
+                model = interpolator.interpolate( project.getOriginalModel(), properties );
+                interpolatedModels.put( key, model );
+            }
+            return model;
+        }
+    }
+
     // --------------------- GETTER / SETTER METHODS ---------------------
 
+    /**
+     * Returns the cache for the current build session.
+     *
+     * @return the cache for the current build session.
+     * @since 1.2
+     */
+    private SessionCache getSessionCache()
+    {
+        if ( session == null )
+        {
+            return new SessionCache();
+        }
+        synchronized ( SESSION_CACHES )
+        {
+            SessionCache cache = (SessionCache) SESSION_CACHES.get( session );
+            if ( cache == null )
+            {
+                cache = new SessionCache();
+                SESSION_CACHES.put( session, cache );
+            }
+            return cache;
+        }
+    }
+
     /**
      * Returns the pluginManagement section of the super-pom.
      *
@@ -143,6 +230,11 @@ public class DisplayPluginUpdatesMojo
     private Map getSuperPomPluginManagement()
         throws MojoExecutionException
     {
+        SessionCache cache = getSessionCache();
+        if ( cache.superPomPluginManagement != null )
+        {
+            return new HashMap( cache.superPomPluginManagement );
+        }
         Map superPomPluginManagement = new HashMap();
         try
         {
@@ -153,9 +245,34 @@ public class DisplayPluginUpdatesMojo
         {
             throw new MojoExecutionException( "Could not determine the super pom.xml", e );
         }
+        cache.superPomPluginManagement = new HashMap( superPomPluginManagement );
         return superPomPluginManagement;
     }
 
+    /**
+     * Returns the original model of a project interpolated with the properties of the current project. The result is
+     * memoized by project id (and the properties used) so that the parents shared by the modules of a reactor are
+     * only interpolated once.
+     *
+     * @param project the project whose original model is required.
+     * @return the interpolated original model, which must not be modified.
+     * @throws MojoExecutionException when things go wrong.
+     * @since 1.2
+     */
+    private Model getInterpolatedOriginalModel( MavenProject project )
+        throws MojoExecutionException
+    {
+        try
+        {
+            return getSessionCache().getInterpolatedModel( project, getProject().getProperties(),
+                                                           modelInterpolator );
+        }
+        catch ( ModelInterpolationException e )
+        {
+            throw new MojoExecutionException( e.getMessage(), e );
+        }
+    }
+
     /**
      * Gets the plugin management plugins of a specific project.
      *
@@ -259,16 +376,7 @@ public class DisplayPluginUpdatesMojo
         {
             MavenProject parentProject = (MavenProject) i.next();
 
-            Model originalModel;
-            try
-            {
-                originalModel =
-                    modelInterpolator.interpolate( parentProject.getOriginalModel(), getProject().getProperties() );
-            }
-            catch ( ModelInterpolationException e )
-            {
-                throw new MojoExecutionException( e.getMessage(), e );
-            }
+            Model originalModel = getInterpolatedOriginalModel( parentProject );
             parentPluginManagement.putAll( getPluginManagement( originalModel ) );
             parentBuildPlugins.putAll( getBuildPlugins( originalModel, true ) );
             parentReportPlugins.putAll( getReportPlugins( originalModel, true ) );
@@ -278,10 +386,13 @@ public class DisplayPluginUpdatesMojo
                                          parentReportPlugins, pluginsWithVersionsSpecified );
         List updates = new ArrayList();
         List lockdown = new ArrayList();
-        i = plugins.iterator();
-        while ( i.hasNext() )
+        Object[] pluginArray = plugins.toArray();
+        String[] versions = new String[pluginArray.length];
+        Artifact[] artifacts = new Artifact[pluginArray.length];
+        VersionRange[] versionRanges = new VersionRange[pluginArray.length];
+        for ( int index = 0; index < pluginArray.length; index++ )
         {
-            Object plugin = i.next();
+            Object plugin = pluginArray[index];
             String groupId = getPluginGroupId( plugin );
             String artifactId = getPluginArtifactId( plugin );
             String version = getPluginVersion( plugin );
@@ -305,17 +416,22 @@ public class DisplayPluginUpdatesMojo
                 throw new MojoExecutionException( "Invalid version range specification: " + version, e );
             }
 
-            Artifact artifact = artifactFactory.createPluginArtifact( groupId, artifactId, versionRange );
+            versions[index] = version;
+            versionRanges[index] = versionRange;
+            artifacts[index] = artifactFactory.createPluginArtifact( groupId, artifactId, versionRange );
+        }
 
-            ArtifactVersion artifactVersion;
-            try
-            {
-                artifactVersion = findLatestVersion( artifact, versionRange, null, true );
-            }
-            catch ( ArtifactMetadataRetrievalException e )
-            {
-                throw new MojoExecutionException( e.getMessage(), e );
-            }
+        ArtifactVersion[] latestVersions = findLatestVersions( artifacts, versionRanges );
+
+        for ( int index = 0; index < pluginArray.length; index++ )
+        {
+            Object plugin = pluginArray[index];
+            String groupId = getPluginGroupId( plugin );
+            String artifactId = getPluginArtifactId( plugin );
+            String version = versions[index];
+            String coords = ArtifactUtils.versionlessKey( groupId, artifactId );
+            Artifact artifact = artifacts[index];
+            ArtifactVersion artifactVersion = latestVersions[index];
 
             String newVersion;
 
@@ -428,6 +544,73 @@ public class DisplayPluginUpdatesMojo
         getLog().info( "" );
     }
 
+    /**
+     * Finds the latest version of each of the plugin artifacts, using up to {@link #lookupThreads} concurrent lookups.
+     *
+     * @param artifacts     the plugin artifacts.
+     * @param versionRanges the version range of each plugin artifact.
+     * @return the latest version of each plugin artifact, <code>null</code> where no version could be found.
+     * @throws MojoExecutionException when things go wrong.
+     * @since 1.2
+     */
+    private ArtifactVersion[] findLatestVersions( final Artifact[] artifacts, final VersionRange[] versionRanges )
+        throws MojoExecutionException
+    {
+        ArtifactVersion[] result = new ArtifactVersion[artifacts.length];
+        if ( lookupThreads < 2 || artifacts.length < 2 )
+        {
+            for ( int i = 0; i < artifacts.length; i++ )
+            {
+                try
+                {
+                    result[i] = findLatestVersion( artifacts[i], versionRanges[i], null, true );
+                }
+                catch ( ArtifactMetadataRetrievalException e )
+                {
+                    throw new MojoExecutionException( e.getMessage(), e );
+                }
+            }
+            return result;
+        }
+
+        // create the helper before any of the workers need it
+        getHelper();
+        List/*<Callable>*/ tasks = new ArrayList( artifacts.length );
+        for ( int i = 0; i < artifacts.length; i++ )
+        {
+            final int index = i;
+            tasks.add( new Callable()
+            {
+                public Object call()
+                    throws Exception
+                {
+                    return findLatestVersion( artifacts[index], versionRanges[index], null, true );
+                }
+            } );
+        }
+        try
+        {
+            return (ArtifactVersion[]) ParallelLookups.invokeAll( tasks, lookupThreads ).toArray( result );
+        }
+        catch ( MojoExecutionException e )
+        {
+            throw e;
+        }
+        catch ( RuntimeException e )
+        {
+            throw e;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Interrupted while looking up plugin versions", e );
+        }
+        catch ( Exception e )
+        {
+            throw new MojoExecutionException( e.getMessage(), e );
+        }
+    }
+
     private static final class StackState
     {
         private final String path;
@@ -770,6 +953,53 @@ public class DisplayPluginUpdatesMojo
      */
     private Map findMappingsForLifecycle( MavenProject project, Lifecycle lifecycle )
         throws LifecycleExecutionException, PluginNotFoundException
+    {
+        SessionCache cache = getSessionCache();
+        String key = getLifecycleMappingKey( project, lifecycle );
+        Map mappings = (Map) cache.lifecycleMappings.get( key );
+        if ( mappings == null )
+        {
+            mappings = findMappingsForLifecycleUncached( project, lifecycle );
+            cache.lifecycleMappings.put( key, mappings );
+        }
+        return mappings;
+    }
+
+    /**
+     * Returns the key under which lifecycle mapping results are cached. The mappings depend on the packaging and on
+     * any build extensions of the project.
+     *
+     * @param project   the project
+     * @param lifecycle the lifecycle
+     * @return the cache key
+     * @since 1.2
+     */
+    private static String getLifecycleMappingKey( MavenProject project, Lifecycle lifecycle )
+    {
+        StringBuffer key = new StringBuffer();
+        key.append( project.getPackaging() ).append( '|' ).append( lifecycle.getId() );
+        for ( Iterator i = project.getBuildPlugins().iterator(); i.hasNext(); )
+        {
+            Plugin plugin = (Plugin) i.next();
+            if ( plugin.isExtensions() )
+            {
+                key.append( '|' ).append( plugin.getKey() ).append( ':' ).append( plugin.getVersion() );
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * Find mappings for lifecycle, without consulting the session cache.
+     *
+     * @param project   the project
+     * @param lifecycle the lifecycle
+     * @return the map
+     * @throws LifecycleExecutionException the lifecycle execution exception
+     * @throws PluginNotFoundException     the plugin not found exception
+     */
+    private Map findMappingsForLifecycleUncached( MavenProject project, Lifecycle lifecycle )
+        throws LifecycleExecutionException, PluginNotFoundException
     {
         String packaging = project.getPackaging();
         Map mappings = null;
@@ -828,6 +1058,29 @@ public class DisplayPluginUpdatesMojo
      */
     private List findOptionalMojosForLifecycle( MavenProject project, Lifecycle lifecycle )
         throws LifecycleExecutionException, PluginNotFoundException
+    {
+        SessionCache cache = getSessionCache();
+        String key = getLifecycleMappingKey( project, lifecycle );
+        List optionalMojos = (List) cache.optionalMojos.get( key );
+        if ( optionalMojos == null )
+        {
+            optionalMojos = findOptionalMojosForLifecycleUncached( project, lifecycle );
+            cache.optionalMojos.put( key, optionalMojos );
+        }
+        return optionalMojos;
+    }
+
+    /**
+     * Find optional mojos for lifecycle, without consulting the session cache.
+     *
+     * @param project   the project
+     * @param lifecycle the lifecycle
+     * @return the list
+     * @throws LifecycleExecutionException the lifecycle execution exception
+     * @throws PluginNotFoundException     the plugin not found exception
+     */
+    private List findOptionalMojosForLifecycleUncached( MavenProject project, Lifecycle lifecycle )
+        throws LifecycleExecutionException, PluginNotFoundException
     {
         String packaging = project.getPackaging();
         List optionalMojos = null;
@@ -926,7 +1179,13 @@ public class DisplayPluginUpdatesMojo
                                            ArtifactRepository localRepository )
         throws LifecycleExecutionException, PluginNotFoundException
     {
-        PluginDescriptor pluginDescriptor;
+        SessionCache cache = getSessionCache();
+        String key = plugin.getKey() + ':' + plugin.getVersion();
+        PluginDescriptor pluginDescriptor = (PluginDescriptor) cache.pluginDescriptors.get( key );
+        if ( pluginDescriptor != null )
+        {
+            return pluginDescriptor;
+        }
         try
         {
             pluginDescriptor = pluginManager.verifyPlugin( plugin, project, settings, localRepository );
@@ -960,6 +1219,7 @@ public class DisplayPluginUpdatesMojo
         {
             throw new LifecycleExecutionException( e.getMessage(), e );
         }
+        cache.pluginDescriptors.put( key, pluginDescriptor );
         return pluginDescriptor;
     }
 
@@ -1072,16 +1332,7 @@ public class DisplayPluginUpdatesMojo
 
         debugVersionMap( "final aggregate version map", excludePluginManagement );
 
-        Model originalModel;
-        try
-        {
-            originalModel =
-                modelInterpolator.interpolate( getProject().getOriginalModel(), getProject().getProperties() );
-        }
-        catch ( ModelInterpolationException e )
-        {
-            throw new MojoExecutionException( e.getMessage(), e );
-        }
+        Model originalModel = getInterpolatedOriginalModel( getProject() );
         try
         {
             addProjectPlugins( plugins, originalModel.getBuild().getPluginManagement().getPlugins(),
@@ -25,6 +25,7 @@ import org.apache.maven.doxia.sink.Sink;
 import org.apache.maven.model.Plugin;
 import org.apache.maven.reporting.MavenReportException;
 import org.codehaus.mojo.versions.utils.PluginComparator;
+import org.codehaus.mojo.versions.utils.ReportFingerprint;
 import org.codehaus.plexus.util.StringUtils;
 
 import java.util.Iterator;
@@ -83,19 +84,8 @@ public class PluginUpdatesReport
     protected void doGenerateReport( Locale locale, Sink sink )
         throws MavenReportException
     {
-        Set pluginManagement = new TreeSet( new PluginComparator() );
-        if ( haveBuildPluginManagementPlugins() )
-        {
-            pluginManagement.addAll( getProject().getBuild().getPluginManagement().getPlugins() );
-        }
-
-        Set plugins = new TreeSet( new PluginComparator() );
-        if ( haveBuildPlugins() )
-        {
-            plugins.addAll( getProject().getBuild().getPlugins() );
-        }
-
-        plugins = removePluginManagment( plugins, pluginManagement );
+        Set pluginManagement = getPluginManagement();
+        Set plugins = removePluginManagment( getPlugins(), pluginManagement );
 
         try
         {
@@ -118,6 +108,36 @@ public class PluginUpdatesReport
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected boolean fingerprintInputs( ReportFingerprint fingerprint )
+    {
+        fingerprintPluginMetadata( fingerprint, getPluginManagement() );
+        fingerprintPluginMetadata( fingerprint, getPlugins() );
+        return true;
+    }
+
+    private Set getPluginManagement()
+    {
+        Set pluginManagement = new TreeSet( new PluginComparator() );
+        if ( haveBuildPluginManagementPlugins() )
+        {
+            pluginManagement.addAll( getProject().getBuild().getPluginManagement().getPlugins() );
+        }
+        return pluginManagement;
+    }
+
+    private Set getPlugins()
+    {
+        Set plugins = new TreeSet( new PluginComparator() );
+        if ( haveBuildPlugins() )
+        {
+            plugins.addAll( getProject().getBuild().getPlugins() );
+        }
+        return plugins;
+    }
+
     /**
      * Returns a set of dependencies where the dependencies which are defined in the dependency management section have
      * been filtered out.
@@ -20,9 +20,13 @@ package org.codehaus.mojo.versions;
 */
 
 import org.apache.maven.doxia.sink.Sink;
+import org.apache.maven.model.ReportPlugin;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.reporting.MavenReportException;
+import org.codehaus.mojo.versions.utils.ReportFingerprint;
 
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
 
@@ -114,6 +118,54 @@ public class PropertyUpdatesReport
         renderer.render();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    protected boolean fingerprintInputs( ReportFingerprint fingerprint )
+    {
+        fingerprint.add( includeProperties ).add( excludeProperties ).add( autoLinkItems );
+        fingerprint.addAll( getProject().getProperties() );
+        if ( properties != null )
+        {
+            for ( int i = 0; i < properties.length; i++ )
+            {
+                fingerprint.add( properties[i].getName() ).add( properties[i].getVersion() );
+                fingerprint.add( Boolean.valueOf( properties[i].isAutoLinkDependencies() ) );
+                fingerprint.add( Boolean.valueOf( properties[i].isSearchReactor() ) );
+                fingerprint.add( Boolean.valueOf( properties[i].isPreferReactor() ) );
+                fingerprint.add( Boolean.valueOf( properties[i].isBanSnapshots() ) );
+                if ( properties[i].getDependencies() != null )
+                {
+                    fingerprintDependencyMetadata( fingerprint, Arrays.asList( properties[i].getDependencies() ) );
+                }
+            }
+        }
+        // any of these may be linked to a property
+        fingerprintDependencyMetadata( fingerprint, getProject().getDependencies() );
+        if ( getProject().getDependencyManagement() != null )
+        {
+            fingerprintDependencyMetadata( fingerprint, getProject().getDependencyManagement().getDependencies() );
+        }
+        if ( getProject().getBuild() != null )
+        {
+            fingerprintPluginMetadata( fingerprint, getProject().getBuild().getPlugins() );
+            if ( getProject().getBuild().getPluginManagement() != null )
+            {
+                fingerprintPluginMetadata( fingerprint, getProject().getBuild().getPluginManagement().getPlugins() );
+            }
+        }
+        if ( getProject().getReporting() != null )
+        {
+            for ( Iterator i = getProject().getReporting().getPlugins().iterator(); i.hasNext(); )
+            {
+                ReportPlugin plugin = (ReportPlugin) i.next();
+                fingerprint.add( plugin.getGroupId() ).add( plugin.getArtifactId() ).add( plugin.getVersion() );
+                fingerprint.addMetadata( localRepository.getBasedir(), plugin.getGroupId(), plugin.getArtifactId() );
+            }
+        }
+        return true;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -52,7 +52,9 @@ import org.codehaus.mojo.versions.model.RuleSet;
 import org.codehaus.mojo.versions.model.io.xpp3.RuleXpp3Reader;
 import org.codehaus.mojo.versions.ordering.VersionComparator;
 import org.codehaus.mojo.versions.ordering.VersionComparators;
+import org.codehaus.mojo.versions.utils.CachingExpressionEvaluator;
 import org.codehaus.mojo.versions.utils.DependencyComparator;
+import org.codehaus.mojo.versions.utils.ParallelLookups;
 import org.codehaus.mojo.versions.utils.PluginComparator;
 import org.codehaus.mojo.versions.utils.RegexUtils;
 import org.codehaus.mojo.versions.utils.VersionsExpressionEvaluator;
@@ -66,7 +68,9 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -76,6 +80,8 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
 
 /**
@@ -150,6 +156,13 @@ public class DefaultVersionsHelper
      */
     private final MavenSession mavenSession;
 
+    /**
+     * The expression evaluators for each project, which remember the expressions they have evaluated.
+     *
+     * @since 1.2
+     */
+    private final Map/*<MavenProject,ExpressionEvaluator>*/ expressionEvaluators = new WeakHashMap();
+
     /**
      * Constructs a new {@link DefaultVersionsHelper}.
      *
@@ -522,18 +535,129 @@ public class DefaultVersionsHelper
                                                                            boolean usePluginRepositories )
         throws ArtifactMetadataRetrievalException, InvalidVersionSpecificationException
     {
-        Map/*<Dependency,ArtifactVersions>*/ dependencyUpdates = new TreeMap( new DependencyComparator() );
+        return lookupDependenciesUpdates( dependencies, usePluginRepositories, 1 );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public Map/*<Dependency,ArtifactVersions>*/ lookupDependenciesUpdates( Set dependencies,
+                                                                           final boolean usePluginRepositories,
+                                                                           int threads )
+        throws ArtifactMetadataRetrievalException, InvalidVersionSpecificationException
+    {
+        if ( threads < 2 )
+        {
+            Map/*<Dependency,ArtifactVersions>*/ dependencyUpdates = new TreeMap( new DependencyComparator() );
+            Iterator i = dependencies.iterator();
+            while ( i.hasNext() )
+            {
+                Dependency dependency = (Dependency) i.next();
+
+                ArtifactVersions details = lookupDependencyUpdates( dependency, usePluginRepositories );
+                dependencyUpdates.put( dependency, details );
+            }
+            return dependencyUpdates;
+        }
+
+        // the available versions only depend on the groupId and artifactId, so only look each of those up once
+        Map/*<String,List<Dependency>>*/ byKey = new LinkedHashMap();
         Iterator i = dependencies.iterator();
         while ( i.hasNext() )
         {
             Dependency dependency = (Dependency) i.next();
+            String key = ArtifactUtils.versionlessKey( dependency.getGroupId(), dependency.getArtifactId() );
+            List group = (List) byKey.get( key );
+            if ( group == null )
+            {
+                group = new ArrayList();
+                byKey.put( key, group );
+            }
+            group.add( dependency );
+        }
 
-            ArtifactVersions details = lookupDependencyUpdates( dependency, usePluginRepositories );
-            dependencyUpdates.put( dependency, details );
+        final Map/*<Dependency,ArtifactVersions>*/ dependencyUpdates =
+            Collections.synchronizedMap( new TreeMap( new DependencyComparator() ) );
+        List/*<Callable>*/ tasks = new ArrayList( byKey.size() );
+        for ( i = byKey.values().iterator(); i.hasNext(); )
+        {
+            final List/*<Dependency>*/ group = (List) i.next();
+            tasks.add( new Callable()
+            {
+                public Object call()
+                    throws ArtifactMetadataRetrievalException, InvalidVersionSpecificationException
+                {
+                    lookupDependencyGroupUpdates( group, usePluginRepositories, dependencyUpdates );
+                    return null;
+                }
+            } );
+        }
+        try
+        {
+            ParallelLookups.invokeAll( tasks, threads );
+        }
+        catch ( ArtifactMetadataRetrievalException e )
+        {
+            throw e;
+        }
+        catch ( InvalidVersionSpecificationException e )
+        {
+            throw e;
+        }
+        catch ( RuntimeException e )
+        {
+            throw e;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new ArtifactMetadataRetrievalException( "Interrupted while looking up versions", e );
+        }
+        catch ( Exception e )
+        {
+            throw new ArtifactMetadataRetrievalException( e.getMessage(), e );
         }
         return dependencyUpdates;
     }
 
+    /**
+     * Looks up the available versions of a group of dependencies that share the same groupId and artifactId.
+     *
+     * @param group                 the dependencies, all with the same groupId and artifactId.
+     * @param usePluginRepositories Search the plugin repositories.
+     * @param dependencyUpdates     the map to add the details of each dependency to.
+     * @throws ArtifactMetadataRetrievalException
+     *          When things go wrong.
+     * @throws InvalidVersionSpecificationException
+     *          When a dependency version is invalid.
+     * @since 1.2
+     */
+    private void lookupDependencyGroupUpdates( List/*<Dependency>*/ group, boolean usePluginRepositories,
+                                               Map/*<Dependency,ArtifactVersions>*/ dependencyUpdates )
+        throws ArtifactMetadataRetrievalException, InvalidVersionSpecificationException
+    {
+        List versions = null;
+        for ( Iterator i = group.iterator(); i.hasNext(); )
+        {
+            Dependency dependency = (Dependency) i.next();
+            getLog().debug(
+                "Checking " + ArtifactUtils.versionlessKey( dependency.getGroupId(), dependency.getArtifactId() ) +
+                    " for updates newer than " + dependency.getVersion() );
+            Artifact artifact =
+                createDependencyArtifact( dependency.getGroupId(), dependency.getArtifactId(),
+                                          VersionRange.createFromVersionSpec( dependency.getVersion() ),
+                                          dependency.getType(), dependency.getClassifier(), dependency.getScope() );
+            if ( versions == null )
+            {
+                List remoteRepositories = usePluginRepositories ? remotePluginRepositories : remoteArtifactRepositories;
+                versions = artifactMetadataSource.retrieveAvailableVersions( artifact, localRepository,
+                                                                             remoteRepositories );
+            }
+            dependencyUpdates.put( dependency,
+                                   new ArtifactVersions( artifact, versions, getVersionComparator( artifact ) ) );
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -601,7 +725,18 @@ public class DefaultVersionsHelper
      */
     public ExpressionEvaluator getExpressionEvaluator( MavenProject project )
     {
-        return new VersionsExpressionEvaluator( mavenSession, pathTranslator, project );
+        synchronized ( expressionEvaluators )
+        {
+            ExpressionEvaluator evaluator = (ExpressionEvaluator) expressionEvaluators.get( project );
+            if ( evaluator == null )
+            {
+                evaluator =
+                    new CachingExpressionEvaluator( new VersionsExpressionEvaluator( mavenSession, pathTranslator,
+                                                                                     project ) );
+                expressionEvaluators.put( project, evaluator );
+            }
+            return evaluator;
+        }
     }
 
     /**
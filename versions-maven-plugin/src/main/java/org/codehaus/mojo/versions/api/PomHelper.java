@@ -22,8 +22,10 @@ package org.codehaus.mojo.versions.api;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.model.BuildBase;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.model.Model;
+import org.apache.maven.model.ModelBase;
 import org.apache.maven.model.Parent;
 import org.apache.maven.model.Plugin;
 import org.apache.maven.model.Profile;
@@ -51,6 +53,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
 import java.util.Iterator;
@@ -690,93 +693,131 @@ public class PomHelper
             Profile profile = (Profile) i.next();
             activeProfiles.add( profile.getId() );
         }
-
-        // add any properties from profiles first (as they override properties from the project
+        List/*<Profile>*/ profiles = new ArrayList();
         for ( Iterator i = model.getProfiles().iterator(); i.hasNext(); )
         {
             Profile profile = (Profile) i.next();
-            if ( !activeProfiles.contains( profile.getId() ) )
+            if ( activeProfiles.contains( profile.getId() ) )
             {
-                continue;
+                profiles.add( profile );
             }
+        }
+
+        // add any properties from profiles first (as they override properties from the project
+        for ( Iterator i = profiles.iterator(); i.hasNext(); )
+        {
+            Profile profile = (Profile) i.next();
             addProperties( helper, result, profile.getId(), profile.getProperties() );
-            if ( profile.getDependencyManagement() != null )
-            {
-                addDependencyAssocations( helper, expressionEvaluator, result,
-                                          profile.getDependencyManagement().getDependencies(), false );
-            }
-            addDependencyAssocations( helper, expressionEvaluator, result, profile.getDependencies(), false );
-            if ( profile.getBuild() != null )
-            {
-                if ( profile.getBuild().getPluginManagement() != null )
-                {
-                    addPluginAssociations( helper, expressionEvaluator, result,
-                                           profile.getBuild().getPluginManagement().getPlugins() );
-                }
-                addPluginAssociations( helper, expressionEvaluator, result, profile.getBuild().getPlugins() );
-            }
-            if ( profile.getReporting() != null )
-            {
-                addReportPluginAssociations( helper, expressionEvaluator, result, profile.getReporting().getPlugins() );
-            }
         }
 
         // second, we add all the properties in the pom
         addProperties( helper, result, null, model.getProperties() );
-        if ( model.getDependencyManagement() != null )
+
+        // now that all the properties are known, a single pass collects the associations from the pom and the
+        // active profiles
+        addAssociations( helper, expressionEvaluator, result, model, model.getBuild() );
+        for ( Iterator i = profiles.iterator(); i.hasNext(); )
+        {
+            Profile profile = (Profile) i.next();
+            addAssociations( helper, expressionEvaluator, result, profile, profile.getBuild() );
+        }
+
+        // finally, remove any properties without associations
+        purgeProperties( result );
+
+        return (PropertyVersionsBuilder[]) result.values().toArray(
+            new PropertyVersionsBuilder[result.values().size()] );
+    }
+
+    /**
+     * Adds the associations to properties from the dependencies, plugins and report plugins of a pom or profile.
+     *
+     * @param helper              Our helper.
+     * @param expressionEvaluator Our expression evaluator.
+     * @param result              The map of {@link org.codehaus.mojo.versions.api.PropertyVersionsBuilder} keyed by property name.
+     * @param base                The pom or profile.
+     * @param build               The build section of the pom or profile (may be <code>null</code>).
+     * @throws ExpressionEvaluationException if an expression cannot be evaluated.
+     */
+    private static void addAssociations( VersionsHelper helper, ExpressionEvaluator expressionEvaluator, Map result,
+                                         ModelBase base, BuildBase build )
+        throws ExpressionEvaluationException
+    {
+        if ( base.getDependencyManagement() != null )
         {
             addDependencyAssocations( helper, expressionEvaluator, result,
-                                      model.getDependencyManagement().getDependencies(), false );
+                                      base.getDependencyManagement().getDependencies(), false );
         }
-        addDependencyAssocations( helper, expressionEvaluator, result, model.getDependencies(), false );
-        if ( model.getBuild() != null )
+        addDependencyAssocations( helper, expressionEvaluator, result, base.getDependencies(), false );
+        if ( build != null )
         {
-            if ( model.getBuild().getPluginManagement() != null )
+            if ( build.getPluginManagement() != null )
             {
                 addPluginAssociations( helper, expressionEvaluator, result,
-                                       model.getBuild().getPluginManagement().getPlugins() );
+                                       build.getPluginManagement().getPlugins() );
             }
-            addPluginAssociations( helper, expressionEvaluator, result, model.getBuild().getPlugins() );
+            addPluginAssociations( helper, expressionEvaluator, result, build.getPlugins() );
         }
-        if ( model.getReporting() != null )
+        if ( base.getReporting() != null )
         {
-            addReportPluginAssociations( helper, expressionEvaluator, result, model.getReporting().getPlugins() );
+            addReportPluginAssociations( helper, expressionEvaluator, result, base.getReporting().getPlugins() );
         }
+    }
 
-        // third, we add any associations from the active profiles
-        for ( Iterator i = model.getProfiles().iterator(); i.hasNext(); )
+    /**
+     * Returns the names of the known properties which are referenced from a version. The version is scanned once for
+     * <code>${...}</code> references, so the cost does not depend on the number of properties.
+     *
+     * @param result  The map of {@link org.codehaus.mojo.versions.api.PropertyVersionsBuilder} keyed by property name.
+     * @param version The version with any whitespace removed.
+     * @return The names of the referenced properties, in name order.
+     */
+    static Set/*<String>*/ getReferencedProperties( Map result, String version )
+    {
+        Set/*<String>*/ names = new TreeSet();
+        int start = version.indexOf( "${" );
+        while ( start != -1 )
         {
-            Profile profile = (Profile) i.next();
-            if ( !activeProfiles.contains( profile.getId() ) )
-            {
-                continue;
-            }
-            if ( profile.getDependencyManagement() != null )
+            int end = version.indexOf( '}', start + 2 );
+            if ( end == -1 )
             {
-                addDependencyAssocations( helper, expressionEvaluator, result,
-                                          profile.getDependencyManagement().getDependencies(), false );
+                break;
             }
-            addDependencyAssocations( helper, expressionEvaluator, result, profile.getDependencies(), false );
-            if ( profile.getBuild() != null )
+            // use the innermost reference if they are nested
+            int nested = version.lastIndexOf( "${", end );
+            String name = version.substring( nested + 2, end );
+            if ( result.containsKey( name ) )
             {
-                if ( profile.getBuild().getPluginManagement() != null )
-                {
-                    addPluginAssociations( helper, expressionEvaluator, result,
-                                           profile.getBuild().getPluginManagement().getPlugins() );
-                }
-                addPluginAssociations( helper, expressionEvaluator, result, profile.getBuild().getPlugins() );
+                names.add( name );
             }
-            if ( profile.getReporting() != null )
+            start = version.indexOf( "${", end + 1 );
+        }
+        return names;
+    }
+
+    /**
+     * Associates an artifact with each of the referenced properties.
+     *
+     * @param result                The map of {@link org.codehaus.mojo.versions.api.PropertyVersionsBuilder} keyed by
+     *                              property name.
+     * @param names                 The names of the referenced properties.
+     * @param version               The version with any whitespace removed.
+     * @param artifact              The artifact.
+     * @param usePluginRepositories Whether the artifact is resolved from the plugin repositories.
+     */
+    private static void addAssociation( Map result, Set/*<String>*/ names, String version, Artifact artifact,
+                                        boolean usePluginRepositories )
+    {
+        for ( Iterator j = names.iterator(); j.hasNext(); )
+        {
+            PropertyVersionsBuilder property = (PropertyVersionsBuilder) result.get( j.next() );
+            final String propertyRef = "${" + property.getName() + "}";
+            property.addAssociation( artifact, usePluginRepositories );
+            if ( !propertyRef.equals( version ) )
             {
-                addReportPluginAssociations( helper, expressionEvaluator, result, profile.getReporting().getPlugins() );
+                addBounds( property, version, propertyRef, artifact.getVersionRange().toString() );
             }
         }
-
-        // finally, remove any properties without associations
-        purgeProperties( result );
-
-        return (PropertyVersionsBuilder[]) result.values().toArray(
-            new PropertyVersionsBuilder[result.values().size()] );
     }
 
     /**
@@ -800,49 +841,8 @@ public class PomHelper
         for ( Iterator i = plugins.iterator(); i.hasNext(); )
         {
             Plugin plugin = (Plugin) i.next();
-            String version = plugin.getVersion();
-            if ( version != null && version.indexOf( "${" ) != -1 && version.indexOf( '}' ) != -1 )
-            {
-                version = StringUtils.deleteWhitespace( version );
-                for ( Iterator j = result.values().iterator(); j.hasNext(); )
-                {
-                    // any of these could be defined by a property
-                    PropertyVersionsBuilder property = (PropertyVersionsBuilder) j.next();
-                    final String propertyRef = "${" + property.getName() + "}";
-                    if ( version.indexOf( propertyRef ) != -1 )
-                    {
-                        String groupId = plugin.getGroupId();
-                        if ( groupId == null || groupId.trim().length() == 0 )
-                        {
-                            // group Id has a special default
-                            groupId = APACHE_MAVEN_PLUGINS_GROUPID;
-                        }
-                        else
-                        {
-                            groupId = (String) expressionEvaluator.evaluate( groupId );
-                        }
-                        String artifactId = plugin.getArtifactId();
-                        if ( artifactId == null || artifactId.trim().length() == 0 )
-                        {
-                            // malformed pom
-                            continue;
-                        }
-                        else
-                        {
-                            artifactId = (String) expressionEvaluator.evaluate( artifactId );
-                        }
-                        // might as well capture the current value
-                        VersionRange versionRange = VersionRange.createFromVersion(
-                            (String) expressionEvaluator.evaluate( plugin.getVersion() ) );
-                        property.addAssociation( helper.createPluginArtifact( groupId, artifactId, versionRange ),
-                                                 true );
-                        if ( !propertyRef.equals( version ) )
-                        {
-                            addBounds( property, version, propertyRef, versionRange.toString() );
-                        }
-                    }
-                }
-            }
+            addPluginAssociation( helper, expressionEvaluator, result, plugin.getGroupId(), plugin.getArtifactId(),
+                                  plugin.getVersion() );
             addDependencyAssocations( helper, expressionEvaluator, result, plugin.getDependencies(), true );
         }
     }
@@ -858,52 +858,47 @@ public class PomHelper
         for ( Iterator i = reportPlugins.iterator(); i.hasNext(); )
         {
             ReportPlugin plugin = (ReportPlugin) i.next();
-            String version = plugin.getVersion();
-            if ( version != null && version.indexOf( "${" ) != -1 && version.indexOf( '}' ) != -1 )
-            {
-                version = StringUtils.deleteWhitespace( version );
-                for ( Iterator j = result.values().iterator(); j.hasNext(); )
-                {
-                    PropertyVersionsBuilder property = (PropertyVersionsBuilder) j.next();
-                    final String propertyRef = "${" + property.getName() + "}";
-                    if ( version.indexOf( propertyRef ) != -1 )
-                    {
-                        // any of these could be defined by a property
-                        String groupId = plugin.getGroupId();
-                        if ( groupId == null || groupId.trim().length() == 0 )
-                        {
-                            // group Id has a special default
-                            groupId = APACHE_MAVEN_PLUGINS_GROUPID;
-                        }
-                        else
-                        {
-                            groupId = (String) expressionEvaluator.evaluate( groupId );
-                        }
-                        String artifactId = plugin.getArtifactId();
-                        if ( artifactId == null || artifactId.trim().length() == 0 )
-                        {
-                            // malformed pom
-                            continue;
-                        }
-                        else
-                        {
-                            artifactId = (String) expressionEvaluator.evaluate( artifactId );
-                        }
-                        // might as well capture the current value
-                        VersionRange versionRange = VersionRange.createFromVersion(
-                            (String) expressionEvaluator.evaluate( plugin.getVersion() ) );
-                        property.addAssociation( helper.createPluginArtifact( groupId, artifactId, versionRange ),
-                                                 true );
-                        if ( !propertyRef.equals( version ) )
-                        {
-                            addBounds( property, version, propertyRef, versionRange.toString() );
-                        }
-                    }
-                }
-            }
+            addPluginAssociation( helper, expressionEvaluator, result, plugin.getGroupId(), plugin.getArtifactId(),
+                                  plugin.getVersion() );
         }
     }
 
+    private static void addPluginAssociation( VersionsHelper helper, ExpressionEvaluator expressionEvaluator,
+                                              Map result, String groupId, String artifactId, String rawVersion )
+        throws ExpressionEvaluationException
+    {
+        if ( rawVersion == null || rawVersion.indexOf( "${" ) == -1 || rawVersion.indexOf( '}' ) == -1 )
+        {
+            return;
+        }
+        String version = StringUtils.deleteWhitespace( rawVersion );
+        Set/*<String>*/ names = getReferencedProperties( result, version );
+        if ( names.isEmpty() )
+        {
+            return;
+        }
+        if ( groupId == null || groupId.trim().length() == 0 )
+        {
+            // group Id has a special default
+            groupId = APACHE_MAVEN_PLUGINS_GROUPID;
+        }
+        else
+        {
+            groupId = (String) expressionEvaluator.evaluate( groupId );
+        }
+        if ( artifactId == null || artifactId.trim().length() == 0 )
+        {
+            // malformed pom
+            return;
+        }
+        artifactId = (String) expressionEvaluator.evaluate( artifactId );
+        // might as well capture the current value
+        VersionRange versionRange =
+            VersionRange.createFromVersion( (String) expressionEvaluator.evaluate( rawVersion ) );
+        addAssociation( result, names, version, helper.createPluginArtifact( groupId, artifactId, versionRange ),
+                        true );
+    }
+
     private static void addDependencyAssocations( VersionsHelper helper, ExpressionEvaluator expressionEvaluator,
                                                   Map result, List dependencies, boolean usePluginRepositories )
         throws ExpressionEvaluationException
@@ -916,50 +911,33 @@ public class PomHelper
         {
             Dependency dependency = (Dependency) i.next();
             String version = dependency.getVersion();
-            if ( version != null && version.indexOf( "${" ) != -1 && version.indexOf( '}' ) != -1 )
+            if ( version == null || version.indexOf( "${" ) == -1 || version.indexOf( '}' ) == -1 )
             {
-                version = StringUtils.deleteWhitespace( version );
-                for ( Iterator j = result.values().iterator(); j.hasNext(); )
-                {
-                    PropertyVersionsBuilder property = (PropertyVersionsBuilder) j.next();
-                    final String propertyRef = "${" + property.getName() + "}";
-                    if ( version.indexOf( propertyRef ) != -1 )
-                    {
-                        // Any of these could be defined by a property
-                        String groupId = dependency.getGroupId();
-                        if ( groupId == null || groupId.trim().length() == 0 )
-                        {
-                            // malformed pom
-                            continue;
-                        }
-                        else
-                        {
-                            groupId = (String) expressionEvaluator.evaluate( groupId );
-                        }
-                        String artifactId = dependency.getArtifactId();
-                        if ( artifactId == null || artifactId.trim().length() == 0 )
-                        {
-                            // malformed pom
-                            continue;
-                        }
-                        else
-                        {
-                            artifactId = (String) expressionEvaluator.evaluate( artifactId );
-                        }
-                        // might as well capture the current value
-                        VersionRange versionRange = VersionRange.createFromVersion(
-                            (String) expressionEvaluator.evaluate( dependency.getVersion() ) );
-                        property.addAssociation(
+                continue;
+            }
+            version = StringUtils.deleteWhitespace( version );
+            Set/*<String>*/ names = getReferencedProperties( result, version );
+            if ( names.isEmpty() )
+            {
+                continue;
+            }
+            String groupId = dependency.getGroupId();
+            String artifactId = dependency.getArtifactId();
+            if ( groupId == null || groupId.trim().length() == 0 || artifactId == null ||
+                artifactId.trim().length() == 0 )
+            {
+                // malformed pom
+                continue;
+            }
+            groupId = (String) expressionEvaluator.evaluate( groupId );
+            artifactId = (String) expressionEvaluator.evaluate( artifactId );
+            // might as well capture the current value
+            VersionRange versionRange =
+                VersionRange.createFromVersion( (String) expressionEvaluator.evaluate( dependency.getVersion() ) );
+            addAssociation( result, names, version,
                             helper.createDependencyArtifact( groupId, artifactId, versionRange, dependency.getType(),
                                                              dependency.getClassifier(), dependency.getScope(),
                                                              dependency.isOptional() ), usePluginRepositories );
-                        if ( !propertyRef.equals( version ) )
-                        {
-                            addBounds( property, version, propertyRef, versionRange.toString() );
-                        }
-                    }
-                }
-            }
         }
     }
 
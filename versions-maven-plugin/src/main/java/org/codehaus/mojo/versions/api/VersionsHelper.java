@@ -197,6 +197,25 @@ public interface VersionsHelper
     Map/*<Dependency,ArtifactVersions>*/ lookupDependenciesUpdates( Set dependencies, boolean usePluginRepositories )
         throws ArtifactMetadataRetrievalException, InvalidVersionSpecificationException;
 
+    /**
+     * Looks up the updates for a set of dependencies using up to <code>threads</code> concurrent lookups. With a
+     * single thread this is {@link #lookupDependenciesUpdates(Set, boolean)}; with more, the available versions of
+     * each distinct groupId:artifactId are only retrieved once. More than one thread needs a Java 5 runtime and an
+     * {@link org.apache.maven.artifact.metadata.ArtifactMetadataSource} which is thread safe, which those of Maven
+     * 2.0.x are not.
+     *
+     * @param dependencies          The set of {@link Dependency} instances to look up.
+     * @param usePluginRepositories Search the plugin repositories.
+     * @param threads               The maximum number of concurrent lookups.
+     * @return A map, keyed by dependency, with values of type {@link org.codehaus.mojo.versions.api.ArtifactVersions}.
+     * @throws ArtifactMetadataRetrievalException
+     *          When things go wrong.
+     * @since 1.2
+     */
+    Map/*<Dependency,ArtifactVersions>*/ lookupDependenciesUpdates( Set dependencies, boolean usePluginRepositories,
+                                                                    int threads )
+        throws ArtifactMetadataRetrievalException, InvalidVersionSpecificationException;
+
     /**
      * Creates an {@link org.codehaus.mojo.versions.api.ArtifactVersions} instance from a dependency.
      *
@@ -237,7 +256,8 @@ public interface VersionsHelper
         throws ArtifactMetadataRetrievalException, InvalidVersionSpecificationException;
 
     /**
-     * Returns an {@link ExpressionEvaluator} for the specified project.
+     * Returns an {@link ExpressionEvaluator} for the specified project. The same evaluator is returned for each call
+     * with the same project, and it remembers the expressions it has already evaluated.
      *
      * @param project The project.
      * @return an {@link ExpressionEvaluator} for the specified project.
@@ -0,0 +1,69 @@
+package org.codehaus.mojo.versions.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.codehaus.plexus.component.configurator.expression.ExpressionEvaluationException;
+import org.codehaus.plexus.component.configurator.expression.ExpressionEvaluator;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An {@link ExpressionEvaluator} which remembers the result of every expression it has evaluated, so that the same
+ * <code>${...}</code> expression used by many dependencies and plugins of a project is only evaluated once.
+ *
+ * @since 1.2
+ */
+public class CachingExpressionEvaluator
+    implements ExpressionEvaluator
+{
+    private final ExpressionEvaluator delegate;
+
+    private final Map/*<String,Object>*/ cache = new HashMap();
+
+    public CachingExpressionEvaluator( ExpressionEvaluator delegate )
+    {
+        this.delegate = delegate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized Object evaluate( String expression )
+        throws ExpressionEvaluationException
+    {
+        if ( cache.containsKey( expression ) )
+        {
+            return cache.get( expression );
+        }
+        Object value = delegate.evaluate( expression );
+        cache.put( expression, value );
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public File alignToBaseDirectory( File file )
+    {
+        return delegate.alignToBaseDirectory( file );
+    }
+}
@@ -0,0 +1,103 @@
+package org.codehaus.mojo.versions.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.artifact.ArtifactUtils;
+import org.apache.maven.model.Dependency;
+import org.codehaus.plexus.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Utility methods for working with the dependency management section of a project.
+ *
+ * @since 1.2
+ */
+public final class DependencyManagementUtils
+{
+    private DependencyManagementUtils()
+    {
+        throw new IllegalAccessError( "Utility classes should never be instantiated" );
+    }
+
+    /**
+     * Returns a set of dependencies where the dependencies which are defined in the dependency management section have
+     * been filtered out. The dependency management is indexed by groupId and artifactId so that the remaining
+     * criteria (scope, classifier and version) are only evaluated against the entries with the same key.
+     *
+     * @param dependencies         The set of dependencies.
+     * @param dependencyManagement The set of dependencies from the dependency management section.
+     * @return A new set of dependencies which are from the set of dependencies but not from the set of dependency
+     *         management dependencies.
+     * @since 1.2
+     */
+    public static Set/*<Dependency>*/ removeDependencyManagement( Collection/*<Dependency>*/ dependencies,
+                                                                  Collection/*<Dependency>*/ dependencyManagement )
+    {
+        Map/*<String,List<Dependency>>*/ index = new HashMap();
+        for ( Iterator i = dependencyManagement.iterator(); i.hasNext(); )
+        {
+            Dependency t = (Dependency) i.next();
+            String key = ArtifactUtils.versionlessKey( t.getGroupId(), t.getArtifactId() );
+            List bucket = (List) index.get( key );
+            if ( bucket == null )
+            {
+                bucket = new ArrayList( 1 );
+                index.put( key, bucket );
+            }
+            bucket.add( t );
+        }
+
+        Set result = new TreeSet( new DependencyComparator() );
+        for ( Iterator i = dependencies.iterator(); i.hasNext(); )
+        {
+            Dependency c = (Dependency) i.next();
+            List bucket = (List) index.get( ArtifactUtils.versionlessKey( c.getGroupId(), c.getArtifactId() ) );
+            if ( bucket == null || !isManaged( c, bucket ) )
+            {
+                result.add( c );
+            }
+        }
+        return result;
+    }
+
+    private static boolean isManaged( Dependency c, List/*<Dependency>*/ bucket )
+    {
+        for ( Iterator j = bucket.iterator(); j.hasNext(); )
+        {
+            Dependency t = (Dependency) j.next();
+            if ( ( t.getScope() == null || StringUtils.equals( t.getScope(), c.getScope() ) ) &&
+                ( t.getClassifier() == null || StringUtils.equals( t.getClassifier(), c.getClassifier() ) ) &&
+                ( c.getVersion() == null || t.getVersion() == null ||
+                    StringUtils.equals( t.getVersion(), c.getVersion() ) ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
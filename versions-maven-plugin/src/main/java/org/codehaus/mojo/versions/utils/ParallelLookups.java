@@ -0,0 +1,89 @@
+package org.codehaus.mojo.versions.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs repository lookups on several threads.
+ * <p/>
+ * The plugin is written to the Java 1.4 language level, but this class uses the <code>java.util.concurrent</code>
+ * executors of Java 5. That is a deliberate decision: the lookups are only run here when more than one lookup thread
+ * is asked for, which needs both a Java 5 runtime and a Maven whose repository access is thread safe. The callers keep
+ * a plain loop for a single thread, so the default path does not depend on this class.
+ *
+ * @since 1.2
+ */
+public final class ParallelLookups
+{
+    private ParallelLookups()
+    {
+    }
+
+    /**
+     * Runs lookups on up to the specified number of threads, and waits for all of them.
+     *
+     * @param tasks   the {@link Callable} lookups to run.
+     * @param threads the maximum number of threads to use, at least two.
+     * @return the result of each lookup, in the order of the lookups.
+     * @throws Exception the exception of the first lookup that failed, in the order of the lookups, or an
+     *                   {@link InterruptedException} if the calling thread was interrupted while waiting.
+     * @since 1.2
+     */
+    public static List invokeAll( List/*<Callable>*/ tasks, int threads )
+        throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool( Math.max( 1, Math.min( threads, tasks.size() ) ) );
+        try
+        {
+            List/*<Future>*/ futures = executor.invokeAll( tasks );
+            List results = new ArrayList( futures.size() );
+            for ( Iterator i = futures.iterator(); i.hasNext(); )
+            {
+                try
+                {
+                    results.add( ( (Future) i.next() ).get() );
+                }
+                catch ( ExecutionException e )
+                {
+                    Throwable cause = e.getCause();
+                    if ( cause instanceof Error )
+                    {
+                        throw (Error) cause;
+                    }
+                    throw (Exception) cause;
+                }
+            }
+            return results;
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package org.codehaus.mojo.versions.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.doxia.sink.Sink;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.util.IOUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores the sequence of {@link Sink} events produced when rendering a report, keyed by a {@link ReportFingerprint}
+ * of the report's inputs, so that the events can be replayed instead of looking up and rendering everything again.
+ *
+ * @since 1.2
+ */
+public class ReportCache
+{
+    private final File cacheFile;
+
+    private final String fingerprint;
+
+    private final long maxAge;
+
+    private final Log log;
+
+    /**
+     * The recorded events, each one a <code>Object[]{String signature, Object[] args}</code>.
+     */
+    private final List/*<Object[]>*/ events = new ArrayList();
+
+    /**
+     * Set when an event could not be recorded, in which case nothing is stored.
+     */
+    private boolean recordable = true;
+
+    /**
+     * Creates a new report cache.
+     *
+     * @param cacheFile   the file to hold the recorded events.
+     * @param fingerprint the fingerprint of the report inputs.
+     * @param maxAge      the maximum age in milliseconds of a reusable recording.
+     * @param log         the logger to use.
+     * @since 1.2
+     */
+    public ReportCache( File cacheFile, String fingerprint, long maxAge, Log log )
+    {
+        this.cacheFile = cacheFile;
+        this.fingerprint = fingerprint;
+        this.maxAge = maxAge;
+        this.log = log;
+    }
+
+    /**
+     * Replays a previous recording into the sink if one exists for the same fingerprint and is not too old.
+     *
+     * @param sink the sink to replay into.
+     * @return <code>true</code> if the report was replayed.
+     * @since 1.2
+     */
+    public boolean replay( Sink sink )
+    {
+        if ( !cacheFile.isFile() || System.currentTimeMillis() - cacheFile.lastModified() > maxAge )
+        {
+            return false;
+        }
+        List recorded;
+        InputStream is = null;
+        try
+        {
+            is = new BufferedInputStream( new FileInputStream( cacheFile ) );
+            ObjectInputStream ois = new ObjectInputStream( is );
+            if ( !fingerprint.equals( ois.readObject() ) )
+            {
+                return false;
+            }
+            recorded = (List) ois.readObject();
+        }
+        catch ( IOException e )
+        {
+            log.debug( "Could not read " + cacheFile + ": " + e.getMessage() );
+            return false;
+        }
+        catch ( ClassNotFoundException e )
+        {
+            log.debug( "Could not read " + cacheFile + ": " + e.getMessage() );
+            return false;
+        }
+        catch ( ClassCastException e )
+        {
+            log.debug( "Could not read " + cacheFile + ": " + e.getMessage() );
+            return false;
+        }
+        finally
+        {
+            IOUtil.close( is );
+        }
+
+        Map/*<String,Method>*/ methods = new HashMap();
+        Method[] sinkMethods = Sink.class.getMethods();
+        for ( int i = 0; i < sinkMethods.length; i++ )
+        {
+            methods.put( signature( sinkMethods[i] ), sinkMethods[i] );
+        }
+        for ( Iterator i = recorded.iterator(); i.hasNext(); )
+        {
+            if ( !methods.containsKey( ( (Object[]) i.next() )[0] ) )
+            {
+                // recorded against a different Sink API, render from scratch
+                return false;
+            }
+        }
+        for ( Iterator i = recorded.iterator(); i.hasNext(); )
+        {
+            Object[] event = (Object[]) i.next();
+            Method method = (Method) methods.get( event[0] );
+            try
+            {
+                method.invoke( sink, (Object[]) event[1] );
+            }
+            catch ( IllegalAccessException e )
+            {
+                throw new IllegalStateException( "Sink method " + method + " is not accessible" );
+            }
+            catch ( InvocationTargetException e )
+            {
+                Throwable cause = e.getTargetException();
+                if ( cause instanceof RuntimeException )
+                {
+                    throw (RuntimeException) cause;
+                }
+                if ( cause instanceof Error )
+                {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException( cause.getMessage() );
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wraps a sink so that every event sent to it is also recorded.
+     *
+     * @param sink the sink to wrap.
+     * @return the recording sink.
+     * @since 1.2
+     */
+    public Sink record( final Sink sink )
+    {
+        events.clear();
+        recordable = true;
+        return (Sink) Proxy.newProxyInstance( Sink.class.getClassLoader(), new Class[]{ Sink.class },
+                                              new InvocationHandler()
+                                              {
+                                                  public Object invoke( Object proxy, Method method, Object[] args )
+                                                      throws Throwable
+                                                  {
+                                                      if ( method.getDeclaringClass() == Object.class )
+                                                      {
+                                                          return method.invoke( sink, args );
+                                                      }
+                                                      recordEvent( method, args );
+                                                      try
+                                                      {
+                                                          return method.invoke( sink, args );
+                                                      }
+                                                      catch ( InvocationTargetException e )
+                                                      {
+                                                          throw e.getTargetException();
+                                                      }
+                                                  }
+                                              } );
+    }
+
+    /**
+     * Stores the events recorded since the last call to {@link #record(Sink)}.
+     *
+     * @since 1.2
+     */
+    public void store()
+    {
+        if ( !recordable )
+        {
+            log.debug( "Report output cannot be cached, it will be regenerated next time" );
+            cacheFile.delete();
+            return;
+        }
+        cacheFile.getParentFile().mkdirs();
+        boolean stored = false;
+        OutputStream os = null;
+        try
+        {
+            os = new BufferedOutputStream( new FileOutputStream( cacheFile ) );
+            ObjectOutputStream oos = new ObjectOutputStream( os );
+            oos.writeObject( fingerprint );
+            oos.writeObject( events );
+            oos.flush();
+            stored = true;
+        }
+        catch ( IOException e )
+        {
+            log.debug( "Could not write " + cacheFile + ": " + e.getMessage() );
+        }
+        finally
+        {
+            IOUtil.close( os );
+        }
+        if ( !stored )
+        {
+            cacheFile.delete();
+        }
+    }
+
+    private synchronized void recordEvent( Method method, Object[] args )
+    {
+        if ( !recordable )
+        {
+            return;
+        }
+        Object[] copy = args == null ? new Object[0] : (Object[]) args.clone();
+        for ( int i = 0; i < copy.length; i++ )
+        {
+            if ( copy[i] != null && !( copy[i] instanceof Serializable ) )
+            {
+                recordable = false;
+                events.clear();
+                return;
+            }
+        }
+        events.add( new Object[]{ signature( method ), copy } );
+    }
+
+    private static String signature( Method method )
+    {
+        StringBuffer buf = new StringBuffer( method.getName() );
+        buf.append( '(' );
+        Class[] types = method.getParameterTypes();
+        for ( int i = 0; i < types.length; i++ )
+        {
+            if ( i > 0 )
+            {
+                buf.append( ',' );
+            }
+            buf.append( types[i].getName() );
+        }
+        return buf.append( ')' ).toString();
+    }
+}
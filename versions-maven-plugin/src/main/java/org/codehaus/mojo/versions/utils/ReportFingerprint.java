@@ -0,0 +1,229 @@
+package org.codehaus.mojo.versions.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Plugin;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Accumulates the inputs of a report into a single digest so that a previously rendered report can be reused when
+ * none of its inputs have changed.
+ *
+ * @since 1.2
+ */
+public class ReportFingerprint
+{
+    private final MessageDigest digest;
+
+    /**
+     * Creates a new empty fingerprint.
+     *
+     * @since 1.2
+     */
+    public ReportFingerprint()
+    {
+        try
+        {
+            digest = MessageDigest.getInstance( "SHA-1" );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IllegalStateException( "SHA-1 is a mandatory MessageDigest algorithm" );
+        }
+    }
+
+    /**
+     * Adds a single value to the fingerprint.
+     *
+     * @param value the value (may be <code>null</code>).
+     * @return this fingerprint.
+     * @since 1.2
+     */
+    public ReportFingerprint add( Object value )
+    {
+        try
+        {
+            digest.update( String.valueOf( value ).getBytes( "UTF-8" ) );
+        }
+        catch ( UnsupportedEncodingException e )
+        {
+            throw new IllegalStateException( "UTF-8 is a mandatory encoding" );
+        }
+        digest.update( (byte) 0 );
+        return this;
+    }
+
+    /**
+     * Adds a set of dependencies to the fingerprint.
+     *
+     * @param dependencies the dependencies.
+     * @return this fingerprint.
+     * @since 1.2
+     */
+    public ReportFingerprint addDependencies( Collection/*<Dependency>*/ dependencies )
+    {
+        add( "dependencies" );
+        add( new Integer( dependencies.size() ) );
+        for ( Iterator i = dependencies.iterator(); i.hasNext(); )
+        {
+            Dependency dependency = (Dependency) i.next();
+            add( dependency.getGroupId() );
+            add( dependency.getArtifactId() );
+            add( dependency.getVersion() );
+            add( dependency.getType() );
+            add( dependency.getClassifier() );
+            add( dependency.getScope() );
+        }
+        return this;
+    }
+
+    /**
+     * Adds a set of plugins to the fingerprint.
+     *
+     * @param plugins the plugins.
+     * @return this fingerprint.
+     * @since 1.2
+     */
+    public ReportFingerprint addPlugins( Collection/*<Plugin>*/ plugins )
+    {
+        add( "plugins" );
+        add( new Integer( plugins.size() ) );
+        for ( Iterator i = plugins.iterator(); i.hasNext(); )
+        {
+            Plugin plugin = (Plugin) i.next();
+            add( plugin.getGroupId() );
+            add( plugin.getArtifactId() );
+            add( plugin.getVersion() );
+        }
+        return this;
+    }
+
+    /**
+     * Adds a map of values to the fingerprint in key order.
+     *
+     * @param values the values.
+     * @return this fingerprint.
+     * @since 1.2
+     */
+    public ReportFingerprint addAll( Map values )
+    {
+        Map sorted = new TreeMap();
+        for ( Iterator i = values.entrySet().iterator(); i.hasNext(); )
+        {
+            Map.Entry entry = (Map.Entry) i.next();
+            sorted.put( String.valueOf( entry.getKey() ), entry.getValue() );
+        }
+        add( new Integer( sorted.size() ) );
+        for ( Iterator i = sorted.entrySet().iterator(); i.hasNext(); )
+        {
+            Map.Entry entry = (Map.Entry) i.next();
+            add( entry.getKey() );
+            add( entry.getValue() );
+        }
+        return this;
+    }
+
+    /**
+     * Adds the name, size and timestamp of a file to the fingerprint.
+     *
+     * @param file the file (may be <code>null</code> or not exist).
+     * @return this fingerprint.
+     * @since 1.2
+     */
+    public ReportFingerprint addFile( File file )
+    {
+        if ( file == null || !file.isFile() )
+        {
+            return add( "missing:" + file );
+        }
+        add( file.getPath() );
+        add( new Long( file.length() ) );
+        return add( new Long( file.lastModified() ) );
+    }
+
+    /**
+     * Adds the timestamps of the repository metadata files held in the local repository for the specified groupId and
+     * artifactId. When the metadata is refreshed from a remote repository the timestamps change.
+     *
+     * @param localRepositoryBasedir the base directory of the local repository.
+     * @param groupId                the group id.
+     * @param artifactId             the artifact id.
+     * @return this fingerprint.
+     * @since 1.2
+     */
+    public ReportFingerprint addMetadata( String localRepositoryBasedir, String groupId, String artifactId )
+    {
+        File dir = new File( localRepositoryBasedir, groupId.replace( '.', '/' ) + '/' + artifactId );
+        String[] names = dir.list();
+        if ( names == null )
+        {
+            return add( "no-metadata:" + groupId + ':' + artifactId );
+        }
+        Arrays.sort( names );
+        for ( int i = 0; i < names.length; i++ )
+        {
+            if ( names[i].startsWith( "maven-metadata" ) && names[i].endsWith( ".xml" ) )
+            {
+                addFile( new File( dir, names[i] ) );
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Returns the hex encoded digest of everything added so far.
+     *
+     * @return the hex encoded digest.
+     * @since 1.2
+     */
+    public String toString()
+    {
+        byte[] bytes;
+        try
+        {
+            bytes = ( (MessageDigest) digest.clone() ).digest();
+        }
+        catch ( CloneNotSupportedException e )
+        {
+            bytes = digest.digest();
+        }
+        StringBuffer buf = new StringBuffer( bytes.length * 2 );
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            String hex = Integer.toHexString( bytes[i] & 0xff );
+            if ( hex.length() < 2 )
+            {
+                buf.append( '0' );
+            }
+            buf.append( hex );
+        }
+        return buf.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package org.codehaus.mojo.versions;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.DependencyManagement;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.mojo.versions.utils.DependencyComparator;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+public class DependencyUpdatesAggregateReportTest
+    extends TestCase
+{
+    private static Dependency dependency( String artifactId, String version )
+    {
+        Dependency dependency = new Dependency();
+        dependency.setGroupId( "org.example" );
+        dependency.setArtifactId( artifactId );
+        dependency.setVersion( version );
+        return dependency;
+    }
+
+    private static MavenProject project( String artifactId, Dependency[] managed, Dependency[] dependencies )
+    {
+        Model model = new Model();
+        model.setGroupId( "org.example" );
+        model.setArtifactId( artifactId );
+        model.setVersion( "1.0" );
+        if ( managed != null )
+        {
+            DependencyManagement dependencyManagement = new DependencyManagement();
+            dependencyManagement.setDependencies( Arrays.asList( managed ) );
+            model.setDependencyManagement( dependencyManagement );
+        }
+        model.setDependencies( Arrays.asList( dependencies ) );
+        return new MavenProject( model );
+    }
+
+    public void testDistinctDependenciesOfTheReactor()
+    {
+        MavenProject parent = project( "parent", new Dependency[]{ dependency( "managed", "1.0" ) },
+                                       new Dependency[0] );
+        MavenProject api = project( "api", null, new Dependency[]{ dependency( "managed", "1.0" ),
+            dependency( "shared", "2.0" ) } );
+        MavenProject impl = project( "impl", null, new Dependency[]{ dependency( "shared", "2.0" ),
+            dependency( "shared", "2.1" ) } );
+
+        Map dependencyManagementUsage = new TreeMap( new DependencyComparator() );
+        Map dependencyUsage = new TreeMap( new DependencyComparator() );
+        DependencyUpdatesAggregateReport.collectReactorDependencies( Arrays.asList( new MavenProject[]{ parent, api,
+            impl } ), dependencyManagementUsage, dependencyUsage );
+
+        assertEquals( 1, dependencyManagementUsage.size() );
+        assertEquals( Collections.singleton( "parent" ),
+                      dependencyManagementUsage.get( dependency( "managed", "1.0" ) ) );
+
+        // the managed dependency is only reported with the dependency management
+        assertEquals( 2, dependencyUsage.size() );
+        assertEquals( Arrays.asList( new String[]{ "api", "impl" } ),
+                      Arrays.asList( ( (Set) dependencyUsage.get( dependency( "shared", "2.0" ) ) )
+                          .toArray() ) );
+        assertEquals( Collections.singleton( "impl" ), dependencyUsage.get( dependency( "shared", "2.1" ) ) );
+    }
+}
@@ -0,0 +1,90 @@
+package org.codehaus.mojo.versions;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.maven.model.Model;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.interpolation.RegexBasedModelInterpolator;
+
+import java.util.Map;
+import java.util.Properties;
+
+public class DisplayPluginUpdatesMojoTest
+    extends TestCase
+{
+    /**
+     * Counts the models it is asked to interpolate, instead of interpolating them.
+     */
+    private static class CountingInterpolator
+        extends RegexBasedModelInterpolator
+    {
+        private int interpolated;
+
+        CountingInterpolator()
+            throws Exception
+        {
+            super( new Properties() );
+        }
+
+        public Model interpolate( Model model, Map context )
+        {
+            interpolated++;
+            Model result = new Model();
+            result.setArtifactId( model.getArtifactId() + "-" + context.get( "suffix" ) );
+            return result;
+        }
+    }
+
+    private static MavenProject project( String artifactId )
+    {
+        Model model = new Model();
+        model.setGroupId( "org.example" );
+        model.setArtifactId( artifactId );
+        model.setVersion( "1.0" );
+        MavenProject project = new MavenProject( model );
+        project.setOriginalModel( model );
+        return project;
+    }
+
+    public void testInterpolatedModelsAreShared()
+        throws Exception
+    {
+        DisplayPluginUpdatesMojo.SessionCache cache = new DisplayPluginUpdatesMojo.SessionCache();
+        CountingInterpolator interpolator = new CountingInterpolator();
+        Properties properties = new Properties();
+        properties.setProperty( "suffix", "a" );
+
+        Model parent = cache.getInterpolatedModel( project( "parent" ), properties, interpolator );
+        assertEquals( "parent-a", parent.getArtifactId() );
+        assertSame( parent, cache.getInterpolatedModel( project( "parent" ), properties, interpolator ) );
+        assertEquals( 1, interpolator.interpolated );
+
+        cache.getInterpolatedModel( project( "other" ), properties, interpolator );
+        assertEquals( 2, interpolator.interpolated );
+
+        // a module with different properties gets its own interpolation
+        Properties changed = new Properties();
+        changed.setProperty( "suffix", "b" );
+        Model changedParent = cache.getInterpolatedModel( project( "parent" ), changed, interpolator );
+        assertEquals( "parent-b", changedParent.getArtifactId() );
+        assertEquals( 3, interpolator.interpolated );
+    }
+}
@@ -0,0 +1,161 @@
+package org.codehaus.mojo.versions.api;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import junit.framework.TestCase;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.factory.DefaultArtifactFactory;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.manager.DefaultWagonManager;
+import org.apache.maven.artifact.metadata.ArtifactMetadataRetrievalException;
+import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.repository.DefaultArtifactRepository;
+import org.apache.maven.artifact.repository.layout.DefaultRepositoryLayout;
+import org.apache.maven.artifact.versioning.DefaultArtifactVersion;
+import org.apache.maven.artifact.versioning.VersionRange;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.project.artifact.MavenMetadataSource;
+import org.apache.maven.project.path.DefaultPathTranslator;
+import org.apache.maven.settings.Settings;
+import org.codehaus.mojo.versions.utils.DependencyComparator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Test the lookups of {@link DefaultVersionsHelper} on several threads.
+ */
+public class DefaultVersionsHelperLookupTest
+    extends TestCase
+{
+    private final Map/*<String,Integer>*/ lookups = Collections.synchronizedMap( new HashMap() );
+
+    public void testVersionsAreLookedUpOncePerArtifact()
+        throws Exception
+    {
+        VersionsHelper helper = createHelper();
+
+        Map sequential = helper.lookupDependenciesUpdates( dependencies(), false );
+        assertEquals( "one lookup per dependency", new Integer( 2 ), lookups.get( "first" ) );
+
+        lookups.clear();
+        Map threaded = helper.lookupDependenciesUpdates( dependencies(), false, 4 );
+        assertEquals( new Integer( 1 ), lookups.get( "first" ) );
+        assertEquals( new Integer( 1 ), lookups.get( "second" ) );
+
+        assertEquals( 3, threaded.size() );
+        assertEquals( sequential.keySet(), threaded.keySet() );
+        for ( Iterator i = sequential.keySet().iterator(); i.hasNext(); )
+        {
+            Dependency dependency = (Dependency) i.next();
+            DefaultArtifactVersion current = new DefaultArtifactVersion( dependency.getVersion() );
+            assertEquals( ( (ArtifactVersions) sequential.get( dependency ) ).getNewestVersion( current, null ),
+                          ( (ArtifactVersions) threaded.get( dependency ) ).getNewestVersion( current, null ) );
+        }
+    }
+
+    public void testFailedLookupIsRethrown()
+        throws Exception
+    {
+        VersionsHelper helper = createHelper();
+        Set dependencies = dependencies();
+        dependencies.add( dependency( "missing", "1.0" ) );
+        try
+        {
+            helper.lookupDependenciesUpdates( dependencies, false, 4 );
+            fail( "failed lookup not rethrown" );
+        }
+        catch ( ArtifactMetadataRetrievalException e )
+        {
+            assertEquals( "missing not found", e.getMessage() );
+        }
+    }
+
+    private static Set dependencies()
+    {
+        Set dependencies = new TreeSet( new DependencyComparator() );
+        dependencies.add( dependency( "first", "1.0" ) );
+        dependencies.add( dependency( "first", "1.1" ) );
+        dependencies.add( dependency( "second", "1.0" ) );
+        return dependencies;
+    }
+
+    private static Dependency dependency( String artifactId, String version )
+    {
+        Dependency dependency = new Dependency();
+        dependency.setGroupId( "org.example" );
+        dependency.setArtifactId( artifactId );
+        dependency.setVersion( version );
+        return dependency;
+    }
+
+    private VersionsHelper createHelper()
+        throws Exception
+    {
+        ArtifactMetadataSource metadataSource = new MavenMetadataSource()
+        {
+            public List retrieveAvailableVersions( Artifact artifact, ArtifactRepository localRepository,
+                                                   List remoteRepositories )
+                throws ArtifactMetadataRetrievalException
+            {
+                if ( "missing".equals( artifact.getArtifactId() ) )
+                {
+                    throw new ArtifactMetadataRetrievalException( "missing not found" );
+                }
+                synchronized ( lookups )
+                {
+                    Integer count = (Integer) lookups.get( artifact.getArtifactId() );
+                    lookups.put( artifact.getArtifactId(), new Integer( count == null ? 1 : count.intValue() + 1 ) );
+                }
+                return Arrays.asList( new DefaultArtifactVersion[]{ new DefaultArtifactVersion( "1.0" ),
+                    new DefaultArtifactVersion( "1.1" ), new DefaultArtifactVersion( "2.0" ) } );
+            }
+        };
+        return new DefaultVersionsHelper( new TestArtifactFactory(), metadataSource, new ArrayList(), new ArrayList(),
+                                          new DefaultArtifactRepository( "", "", new DefaultRepositoryLayout() ),
+                                          new DefaultWagonManager(), new Settings(), "", null,
+                                          new SystemStreamLog(), null, new DefaultPathTranslator() );
+    }
+
+    /**
+     * Creates artifacts without an artifact handler manager, which is only injected in a container.
+     */
+    private static class TestArtifactFactory
+        extends DefaultArtifactFactory
+    {
+        public Artifact createDependencyArtifact( String groupId, String artifactId, VersionRange versionRange,
+                                                  String type, String classifier, String scope )
+        {
+            return new DefaultArtifact( groupId, artifactId, versionRange, scope, type, classifier,
+                                        new DefaultArtifactHandler( type ) );
+        }
+    }
+}
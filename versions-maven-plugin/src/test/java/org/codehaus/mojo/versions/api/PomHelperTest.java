@@ -7,6 +7,11 @@ import org.codehaus.stax2.XMLInputFactory2;
 import javax.xml.stream.XMLInputFactory;
 import java.io.File;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * Tets the methods of {@link PomHelper}.
@@ -42,4 +47,28 @@ public class PomHelperTest
         assertNotSame( oldVersion, newVersion );
     }
 
+    /**
+     * Tests that only the known properties referenced from a version are found, whatever their position.
+     */
+    public void testReferencedProperties()
+    {
+        Map properties = new TreeMap();
+        properties.put( "a", null );
+        properties.put( "b", null );
+        properties.put( "c", null );
+
+        assertEquals( set( new String[]{ "a" } ), PomHelper.getReferencedProperties( properties, "${a}" ) );
+        assertEquals( set( new String[]{ "a", "c" } ),
+                      PomHelper.getReferencedProperties( properties, "${c}-${unknown}-${a}" ) );
+        assertEquals( set( new String[]{ "b" } ), PomHelper.getReferencedProperties( properties, "1.0-${b}" ) );
+        assertEquals( set( new String[]{ "c" } ), PomHelper.getReferencedProperties( properties, "${x.${c}}" ) );
+        assertEquals( set( new String[0] ), PomHelper.getReferencedProperties( properties, "1.0" ) );
+        assertEquals( set( new String[0] ), PomHelper.getReferencedProperties( properties, "${a" ) );
+    }
+
+    private static Set set( String[] names )
+    {
+        return new TreeSet( Arrays.asList( names ) );
+    }
+
 }
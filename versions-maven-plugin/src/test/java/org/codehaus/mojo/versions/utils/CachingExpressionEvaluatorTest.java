@@ -0,0 +1,105 @@
+package org.codehaus.mojo.versions.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.codehaus.plexus.component.configurator.expression.ExpressionEvaluationException;
+import org.codehaus.plexus.component.configurator.expression.ExpressionEvaluator;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests {@link CachingExpressionEvaluator}.
+ */
+public class CachingExpressionEvaluatorTest
+    extends TestCase
+{
+    public void testReturnsTheSameValuesAsTheDelegate()
+        throws Exception
+    {
+        CountingEvaluator delegate = new CountingEvaluator();
+        CachingExpressionEvaluator evaluator = new CachingExpressionEvaluator( delegate );
+
+        String[] expressions = { "${junit.version}", "${plexus.version}", "${undefined}", "1.0", "${junit.version}" };
+        for ( int i = 0; i < expressions.length; i++ )
+        {
+            assertEquals( expressions[i], delegate.evaluate( expressions[i] ), evaluator.evaluate( expressions[i] ) );
+        }
+    }
+
+    public void testEachExpressionIsEvaluatedOnce()
+        throws Exception
+    {
+        CountingEvaluator delegate = new CountingEvaluator();
+        CachingExpressionEvaluator evaluator = new CachingExpressionEvaluator( delegate );
+
+        for ( int i = 0; i < 3; i++ )
+        {
+            assertEquals( "3.8.1", evaluator.evaluate( "${junit.version}" ) );
+            assertNull( evaluator.evaluate( "${undefined}" ) );
+        }
+        assertEquals( 1, delegate.getCount( "${junit.version}" ) );
+        assertEquals( "null results are remembered too", 1, delegate.getCount( "${undefined}" ) );
+    }
+
+    public void testAlignToBaseDirectoryIsDelegated()
+    {
+        CachingExpressionEvaluator evaluator = new CachingExpressionEvaluator( new CountingEvaluator() );
+        assertEquals( new File( "base", "pom.xml" ), evaluator.alignToBaseDirectory( new File( "pom.xml" ) ) );
+    }
+
+    private static final class CountingEvaluator
+        implements ExpressionEvaluator
+    {
+        private final Map/*<String,Integer>*/ counts = new HashMap();
+
+        public Object evaluate( String expression )
+            throws ExpressionEvaluationException
+        {
+            counts.put( expression, new Integer( getCount( expression ) + 1 ) );
+            if ( "${junit.version}".equals( expression ) )
+            {
+                return "3.8.1";
+            }
+            if ( "${plexus.version}".equals( expression ) )
+            {
+                return "1.5.5";
+            }
+            if ( expression.startsWith( "${" ) )
+            {
+                return null;
+            }
+            return expression;
+        }
+
+        public File alignToBaseDirectory( File file )
+        {
+            return new File( "base", file.getPath() );
+        }
+
+        int getCount( String expression )
+        {
+            Integer count = (Integer) counts.get( expression );
+            return count == null ? 0 : count.intValue();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.codehaus.mojo.versions.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.maven.model.Dependency;
+
+import java.util.Arrays;
+import java.util.Set;
+
+public class DependencyManagementUtilsTest
+    extends TestCase
+{
+
+    private static Dependency dependency( String groupId, String artifactId, String version, String scope,
+                                          String classifier )
+    {
+        Dependency dependency = new Dependency();
+        dependency.setGroupId( groupId );
+        dependency.setArtifactId( artifactId );
+        dependency.setVersion( version );
+        dependency.setScope( scope );
+        dependency.setClassifier( classifier );
+        return dependency;
+    }
+
+    public void testUnmanagedDependenciesAreKept()
+    {
+        Dependency a = dependency( "group", "a", "1.0", "compile", null );
+        Dependency b = dependency( "group", "b", "1.0", "compile", null );
+        Set result = DependencyManagementUtils.removeDependencyManagement( Arrays.asList( new Dependency[]{ a, b } ),
+                                                                            Arrays.asList( new Dependency[]{
+                                                                                dependency( "other", "a", "1.0", null,
+                                                                                            null ) } ) );
+        assertEquals( 2, result.size() );
+    }
+
+    public void testManagedDependenciesAreRemoved()
+    {
+        Dependency a = dependency( "group", "a", "1.0", "compile", null );
+        Dependency b = dependency( "group", "b", null, "test", null );
+        Set result = DependencyManagementUtils.removeDependencyManagement( Arrays.asList( new Dependency[]{ a, b } ),
+                                                                            Arrays.asList( new Dependency[]{
+                                                                                dependency( "group", "a", "1.0", null,
+                                                                                            null ),
+                                                                                dependency( "group", "b", "2.0", null,
+                                                                                            null ) } ) );
+        assertTrue( result.isEmpty() );
+    }
+
+    public void testRemainingCriteriaAreEvaluatedWithinTheBucket()
+    {
+        Dependency a = dependency( "group", "a", "1.0", "compile", "jdk15" );
+        Set result = DependencyManagementUtils.removeDependencyManagement( Arrays.asList( new Dependency[]{ a } ),
+                                                                            Arrays.asList( new Dependency[]{
+                                                                                dependency( "group", "a", "1.0", "test",
+                                                                                            null ),
+                                                                                dependency( "group", "a", "1.0", null,
+                                                                                            "jdk14" ),
+                                                                                dependency( "group", "a", "2.0", null,
+                                                                                            null ) } ) );
+        assertEquals( 1, result.size() );
+        assertSame( a, result.iterator().next() );
+
+        result = DependencyManagementUtils.removeDependencyManagement( Arrays.asList( new Dependency[]{ a } ),
+                                                                       Arrays.asList( new Dependency[]{
+                                                                           dependency( "group", "a", "2.0", null,
+                                                                                       null ),
+                                                                           dependency( "group", "a", "1.0", "compile",
+                                                                                       "jdk15" ) } ) );
+        assertTrue( result.isEmpty() );
+    }
+}
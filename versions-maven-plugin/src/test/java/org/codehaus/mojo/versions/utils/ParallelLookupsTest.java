@@ -0,0 +1,102 @@
+package org.codehaus.mojo.versions.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+public class ParallelLookupsTest
+    extends TestCase
+{
+    public void testResultsKeepTheOrderOfTheLookups()
+        throws Exception
+    {
+        final Set/*<Thread>*/ threads = Collections.synchronizedSet( new HashSet() );
+        List tasks = new ArrayList();
+        for ( int i = 0; i < 6; i++ )
+        {
+            final Integer result = new Integer( i );
+            tasks.add( new Callable()
+            {
+                public Object call()
+                    throws Exception
+                {
+                    threads.add( Thread.currentThread() );
+                    // the first lookups finish last
+                    Thread.sleep( ( 6 - result.intValue() ) * 10 );
+                    return result;
+                }
+            } );
+        }
+
+        List results = ParallelLookups.invokeAll( tasks, 3 );
+        assertEquals( Arrays.asList( new Integer[]{ new Integer( 0 ), new Integer( 1 ), new Integer( 2 ),
+            new Integer( 3 ), new Integer( 4 ), new Integer( 5 ) } ), results );
+        assertFalse( "lookup ran on the calling thread", threads.contains( Thread.currentThread() ) );
+    }
+
+    public void testFirstFailureIsRethrown()
+        throws Exception
+    {
+        final IOException first = new IOException( "first" );
+        List tasks = new ArrayList();
+        tasks.add( new Callable()
+        {
+            public Object call()
+            {
+                return "found";
+            }
+        } );
+        tasks.add( new Callable()
+        {
+            public Object call()
+                throws Exception
+            {
+                Thread.sleep( 50 );
+                throw first;
+            }
+        } );
+        tasks.add( new Callable()
+        {
+            public Object call()
+            {
+                throw new IllegalStateException( "second" );
+            }
+        } );
+        try
+        {
+            ParallelLookups.invokeAll( tasks, 3 );
+            fail( "failure not rethrown" );
+        }
+        catch ( IOException e )
+        {
+            assertSame( first, e );
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.codehaus.mojo.versions.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.maven.doxia.sink.Sink;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ReportCacheTest
+    extends TestCase
+{
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    private File cacheFile;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        File directory = new File( "target/test-classes/report-cache-test" );
+        FileUtils.deleteDirectory( directory );
+        cacheFile = new File( directory, "report.cache" );
+    }
+
+    /**
+     * Returns a sink which adds the name and arguments of every event it receives to a list.
+     */
+    private static Sink sink( final List/*<String>*/ events )
+    {
+        return (Sink) Proxy.newProxyInstance( Sink.class.getClassLoader(), new Class[]{ Sink.class },
+                                              new InvocationHandler()
+                                              {
+                                                  public Object invoke( Object proxy, Method method, Object[] args )
+                                                  {
+                                                      events.add( method.getName()
+                                                          + ( args == null ? "" : Arrays.asList( args ).toString() ) );
+                                                      return null;
+                                                  }
+                                              } );
+    }
+
+    private void render( ReportCache cache, List/*<String>*/ events )
+    {
+        Sink sink = cache.record( sink( events ) );
+        sink.paragraph();
+        sink.text( "1.0 -> 2.0" );
+        sink.paragraph_();
+        cache.store();
+    }
+
+    public void testUnchangedFingerprintIsReplayed()
+    {
+        List rendered = new ArrayList();
+        render( new ReportCache( cacheFile, "fingerprint", DAY, new SystemStreamLog() ), rendered );
+        assertEquals( Arrays.asList( new String[]{ "paragraph", "text[1.0 -> 2.0]", "paragraph_" } ), rendered );
+
+        List replayed = new ArrayList();
+        assertTrue( new ReportCache( cacheFile, "fingerprint", DAY, new SystemStreamLog() ).replay(
+            sink( replayed ) ) );
+        assertEquals( rendered, replayed );
+    }
+
+    public void testChangedFingerprintIsRenderedAgain()
+    {
+        render( new ReportCache( cacheFile, "fingerprint", DAY, new SystemStreamLog() ), new ArrayList() );
+
+        List replayed = new ArrayList();
+        assertFalse( new ReportCache( cacheFile, "changed", DAY, new SystemStreamLog() ).replay( sink( replayed ) ) );
+        assertTrue( replayed.isEmpty() );
+    }
+
+    public void testOldRecordingIsRenderedAgain()
+    {
+        render( new ReportCache( cacheFile, "fingerprint", DAY, new SystemStreamLog() ), new ArrayList() );
+        cacheFile.setLastModified( System.currentTimeMillis() - 2 * DAY );
+
+        List replayed = new ArrayList();
+        assertFalse( new ReportCache( cacheFile, "fingerprint", DAY, new SystemStreamLog() ).replay(
+            sink( replayed ) ) );
+        assertTrue( replayed.isEmpty() );
+    }
+
+    public void testMissingRecordingIsRenderedAgain()
+    {
+        assertFalse( new ReportCache( cacheFile, "fingerprint", DAY, new SystemStreamLog() ).replay(
+            sink( new ArrayList() ) ) );
+    }
+}
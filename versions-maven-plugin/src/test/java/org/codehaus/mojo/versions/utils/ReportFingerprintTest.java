@@ -0,0 +1,104 @@
+package org.codehaus.mojo.versions.utils;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import junit.framework.TestCase;
+import org.apache.maven.model.Dependency;
+import org.codehaus.plexus.util.FileUtils;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ReportFingerprintTest
+    extends TestCase
+{
+    private File repository;
+
+    private File metadata;
+
+    protected void setUp()
+        throws Exception
+    {
+        super.setUp();
+        repository = new File( "target/test-classes/report-fingerprint-test" );
+        FileUtils.deleteDirectory( repository );
+        File directory = new File( repository, "org/example/artifact" );
+        directory.mkdirs();
+        metadata = new File( directory, "maven-metadata-central.xml" );
+        FileUtils.fileWrite( metadata.getPath(), "<metadata/>" );
+        metadata.setLastModified( 1000000000000L );
+    }
+
+    private static Dependency dependency( String version )
+    {
+        Dependency dependency = new Dependency();
+        dependency.setGroupId( "org.example" );
+        dependency.setArtifactId( "artifact" );
+        dependency.setVersion( version );
+        return dependency;
+    }
+
+    private String fingerprint( String version, Map properties )
+    {
+        return new ReportFingerprint().addDependencies( Arrays.asList( new Dependency[]{ dependency( version ) } ) )
+            .addAll( properties )
+            .addMetadata( repository.getPath(), "org.example", "artifact" )
+            .toString();
+    }
+
+    public void testSameInputsGiveSameFingerprint()
+    {
+        Map properties = new HashMap();
+        properties.put( "b", "2" );
+        properties.put( "a", "1" );
+        String fingerprint = fingerprint( "1.0", properties );
+        assertEquals( 40, fingerprint.length() );
+
+        Map reordered = new HashMap();
+        reordered.put( "a", "1" );
+        reordered.put( "b", "2" );
+        assertEquals( fingerprint, fingerprint( "1.0", reordered ) );
+    }
+
+    public void testChangedInputsChangeFingerprint()
+    {
+        Map properties = new HashMap();
+        properties.put( "a", "1" );
+        String fingerprint = fingerprint( "1.0", properties );
+
+        assertFalse( fingerprint.equals( fingerprint( "1.1", properties ) ) );
+        properties.put( "a", "2" );
+        assertFalse( fingerprint.equals( fingerprint( "1.0", properties ) ) );
+    }
+
+    public void testRefreshedMetadataChangesFingerprint()
+    {
+        Map properties = new HashMap();
+        String fingerprint = fingerprint( "1.0", properties );
+
+        metadata.setLastModified( 1000000060000L );
+        assertFalse( fingerprint.equals( fingerprint( "1.0", properties ) ) );
+
+        metadata.delete();
+        assertFalse( fingerprint.equals( fingerprint( "1.0", properties ) ) );
+    }
+}